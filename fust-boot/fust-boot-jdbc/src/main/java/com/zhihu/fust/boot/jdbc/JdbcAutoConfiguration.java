@@ -44,6 +44,9 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
             .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
             .build();
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(JSON_FACTORY);
+    private static final TypeReference<List<DatabaseProperties>> DB_PROPERTIES_TYPE =
+            new TypeReference<List<DatabaseProperties>>() {
+            };
 
     public JdbcAutoConfiguration() {
     }
@@ -63,6 +66,7 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
     }
 
     @Bean
+    @ConditionalOnMissingBean(JdbcConnectionFactory.class)
     public JdbcConnectionFactory defaultJdbcConnectionFactory(ConnectionStrategy connectionStrategy) {
         return new JdbcConnectionFactory(connectionStrategy);
     }
@@ -78,7 +82,7 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
         return new DefaultDataSourceDiscover();
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     @ConditionalOnMissingBean(ConnectionStrategy.class)
     public ConnectionStrategy connectionStrategy(DataSourceFileProvider dataSourceFileProvider,
                                                  DataSourceDiscover dataSourceDiscover) throws IOException {
@@ -135,13 +139,27 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
         List<DatabaseProperties> properties = createDbProperties(fileProvider, discover);
         List<DataSourceAdapter> sourceAdapters = parseDbProperties(properties);
         String name = getDefaultDbName(properties, sourceAdapters.size());
-        return new JdbcConnectionStrategy(name, sourceAdapters);
+        JdbcConnectionStrategy strategy = new JdbcConnectionStrategy(name, sourceAdapters);
+        fileProvider.addChangeListener(content -> reload(strategy, content, discover));
+        return strategy;
+    }
+
+    private static void reload(JdbcConnectionStrategy strategy, String content, DataSourceDiscover discover) {
+        if (StringUtils.isEmpty(content)) {
+            logger.warn("ds file changed to empty, ignore it");
+            return;
+        }
+        try {
+            List<DatabaseProperties> properties = OBJECT_MAPPER.readValue(content, DB_PROPERTIES_TYPE);
+            discover(properties, discover);
+            strategy.reload(properties);
+        } catch (IOException | RuntimeException e) {
+            logger.error("reload ds file error, keep the current config", e);
+        }
     }
 
     private List<DataSourceAdapter> parseDbProperties(List<DatabaseProperties> properties) {
-        return properties.stream()
-                .map(DataSourceAdapter::new)
-                .collect(Collectors.toList());
+        return DataSourceBootstrap.createAdapters(properties);
     }
 
     private static String getDefaultDbName(List<DatabaseProperties> properties, int dbCount) {
@@ -172,6 +190,17 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
 
     public List<DatabaseProperties> createDbProperties(DataSourceFileProvider dataSourceFileProvider,
                                                        DataSourceDiscover discover) throws IOException {
+        String content = dataSourceFileProvider.getDataSourceContent();
+        if (content != null) {
+            if (StringUtils.isEmpty(content)) {
+                logger.warn("ds file is empty|{}", dataSourceFileProvider.getDataSourceFile());
+                return Collections.emptyList();
+            }
+            List<DatabaseProperties> properties = OBJECT_MAPPER.readValue(content, DB_PROPERTIES_TYPE);
+            discover(properties, discover);
+            return properties;
+        }
+
         String dsFile = dataSourceFileProvider.getDataSourceFile();
         if (StringUtils.isEmpty(dsFile)) {
             return Collections.emptyList();
@@ -188,10 +217,12 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
             return Collections.emptyList();
         }
 
-        List<DatabaseProperties> properties = OBJECT_MAPPER.readValue(url,
-                new TypeReference<List<DatabaseProperties>>() {
-                });
+        List<DatabaseProperties> properties = OBJECT_MAPPER.readValue(url, DB_PROPERTIES_TYPE);
+        discover(properties, discover);
+        return properties;
+    }
 
+    private static void discover(List<DatabaseProperties> properties, DataSourceDiscover discover) {
         // check data source need discover
         if (discover != null) {
             for (DatabaseProperties p : properties) {
@@ -215,8 +246,6 @@ public class JdbcAutoConfiguration implements ApplicationContextAware {
                 }
             }
         }
-
-        return properties;
     }
 
     private static boolean isUnitTest() {
@@ -0,0 +1,32 @@
+package com.zhihu.fust.boot.mybatis;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.zhihu.fust.spring.mybatis.cache.EntityCacheBroadcaster;
+import com.zhihu.fust.spring.mybatis.cache.EntityCaches;
+
+/**
+ * sets the broadcaster of the @Cached models before the sqlSessionFactory is created,
+ * and removes it when the context closes
+ */
+public class EntityCacheBroadcasterInitializer implements InitializingBean, DisposableBean {
+    private final EntityCacheBroadcaster broadcaster;
+
+    /**
+     * @param broadcaster null disables the broadcast
+     */
+    public EntityCacheBroadcasterInitializer(EntityCacheBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        EntityCaches.setBroadcaster(broadcaster);
+    }
+
+    @Override
+    public void destroy() {
+        EntityCaches.setBroadcaster(null);
+    }
+}
@@ -11,16 +11,19 @@ import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
 import org.mybatis.spring.boot.autoconfigure.SpringBootVFS;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.util.CollectionUtils;
 
 import com.zhihu.fust.spring.jdbc.ConnectionStrategy;
 import com.zhihu.fust.spring.jdbc.DataSourceAdapter;
 import com.zhihu.fust.spring.jdbc.JdbcConnectionStrategy;
+import com.zhihu.fust.spring.mybatis.cache.EntityCacheBroadcaster;
 import com.zhihu.fust.spring.mybatis.extend.DefaultConfiguration;
 import com.zhihu.fust.spring.mybatis.extend.DefaultExecutorInterceptor;
 import com.zhihu.fust.spring.mybatis.extend.DefaultExecutorInterceptorContext;
@@ -55,7 +58,15 @@ public class MybatisBeanConfig {
                 interceptorList);
     }
 
+    // @Cached 模型的缓存失效通知其他实例，在 sqlSessionFactory 之前设置
     @Bean
+    public EntityCacheBroadcasterInitializer entityCacheBroadcasterInitializer(
+            ObjectProvider<EntityCacheBroadcaster> entityCacheBroadcaster) {
+        return new EntityCacheBroadcasterInitializer(entityCacheBroadcaster.getIfAvailable());
+    }
+
+    @Bean
+    @DependsOn("entityCacheBroadcasterInitializer")
     public SqlSessionFactory sqlSessionFactory(DataSource dataSource, DefaultConfiguration defaultConfiguration)
             throws Exception {
         SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
@@ -1,9 +1,12 @@
 package com.zhihu.fust.armeria.grpc.server;
 
+import com.linecorp.armeria.common.logging.RequestLogProperty;
+import com.linecorp.armeria.server.ServiceRequestContext;
 import com.zhihu.fust.armeria.grpc.GrpcTelemetry;
 import com.zhihu.fust.armeria.grpc.exception.GrpcBusinessError;
 import com.zhihu.fust.armeria.grpc.exception.GrpcErrorInfo;
 import com.zhihu.fust.commons.exception.ExceptionUtils;
+import com.zhihu.fust.telemetry.api.RequestDeadline;
 import com.zhihu.fust.telemetry.api.ServiceEntry;
 import com.zhihu.fust.telemetry.api.ServiceMeter;
 import com.zhihu.fust.telemetry.api.ServiceMeterKind;
@@ -20,6 +23,7 @@ import javax.annotation.Nullable;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * grpc server interceptor
@@ -40,8 +44,12 @@ public class DefaultGrpcServerInterceptor implements ServerInterceptor {
                 .setSpanKind(SpanKind.SERVER)
                 .startSpan();
 
-        Context context = Context.current().with(span)
+        Context entryContext = Context.current().with(span)
                 .with(ServiceEntry.SERVICE_ENTRY_KEY, ServiceEntry.create(methodName));
+        RequestDeadline deadline = getDeadline();
+        Context context = deadline == null
+                          ? entryContext
+                          : entryContext.with(RequestDeadline.REQUEST_DEADLINE_KEY, deadline);
 
         Map<String, Object> customContextMap = new HashMap<>(8);
         customContextMap.put(GrpcServerContext.KEY_HEADERS, headers);
@@ -132,6 +140,20 @@ public class DefaultGrpcServerInterceptor implements ServerInterceptor {
         };
     }
 
+    /**
+     * the request timeout of armeria, including the grpc-timeout sent by the client, starts at the request start
+     */
+    @Nullable
+    private static RequestDeadline getDeadline() {
+        ServiceRequestContext ctx = ServiceRequestContext.currentOrNull();
+        if (ctx == null || ctx.requestTimeoutMillis() <= 0
+            || !ctx.log().isAvailable(RequestLogProperty.REQUEST_START_TIME)) {
+            return null;
+        }
+        long start = ctx.log().partial().requestStartTimeNanos();
+        return RequestDeadline.at(start + TimeUnit.MILLISECONDS.toNanos(ctx.requestTimeoutMillis()));
+    }
+
     @Nullable
     private static GrpcErrorInfo extractBizError(Throwable e) {
         if (e == null) {
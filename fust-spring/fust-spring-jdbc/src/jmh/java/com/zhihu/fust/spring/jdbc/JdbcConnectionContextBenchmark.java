@@ -0,0 +1,106 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * begin/commit overhead of the parent/child connection wrappers, the real connections do nothing
+ * <p>
+ * run: ./gradlew :fust-spring:fust-spring-jdbc:jmh
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdbcConnectionContextBenchmark {
+
+    private static final ConnectionStrategy STRATEGY = new NoopStrategy();
+
+    @State(Scope.Thread)
+    public static class TransactionState {
+        @Setup(Level.Trial)
+        public void setup() {
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Benchmark
+    public void directStatement() throws SQLException {
+        JdbcConnectionWrapper connection = new JdbcConnectionWrapper(STRATEGY, true);
+        connection.prepareStatement("SELECT 1");
+        connection.close();
+    }
+
+    @Benchmark
+    public void transactionWithTwoChildren(TransactionState state) throws SQLException {
+        runTransaction();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transactionWithTwoChildrenContended(TransactionState state) throws SQLException {
+        runTransaction();
+    }
+
+    private static void runTransaction() throws SQLException {
+        JdbcConnectionWrapper parent = new JdbcConnectionWrapper(STRATEGY, false);
+        parent.setAutoCommit(false);
+        JdbcConnectionWrapper first = new JdbcConnectionWrapper(STRATEGY, true);
+        JdbcConnectionWrapper second = new JdbcConnectionWrapper(STRATEGY, true);
+        first.prepareStatement("UPDATE a SET x = 1");
+        second.prepareStatement("UPDATE b SET x = 1");
+        first.close();
+        second.close();
+        parent.commit();
+        parent.setAutoCommit(true);
+        parent.close();
+    }
+
+    private static final class NoopStrategy implements ConnectionStrategy {
+        private final Connection connection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return Boolean.FALSE;
+                    }
+                    if (type == int.class) {
+                        return 0;
+                    }
+                    return null;
+                });
+
+        @Override
+        public Connection getConnection(String sql) {
+            return connection;
+        }
+
+        @Override
+        public Connection getMasterConnection() {
+            return connection;
+        }
+    }
+}
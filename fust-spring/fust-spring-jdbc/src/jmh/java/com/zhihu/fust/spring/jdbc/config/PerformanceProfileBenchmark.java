@@ -0,0 +1,116 @@
+package com.zhihu.fust.spring.jdbc.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * compare the performance profiles against a local mysql, e.g.
+ * {@code docker run -e MYSQL_ALLOW_EMPTY_PASSWORD=yes -e MYSQL_DATABASE=bench -p 3306:3306 mysql:8}
+ * <p>
+ * run: ./gradlew :fust-spring:fust-spring-jdbc:jmh -Pjmh.includes=PerformanceProfileBenchmark
+ * <p>
+ * the url and user can be changed by system properties bench.jdbc.url, bench.jdbc.user, bench.jdbc.password
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerformanceProfileBenchmark {
+    private static final int BATCH_SIZE = 200;
+    private static final int TABLE_ROWS = 10_000;
+
+    @Param({"oltp-default", "oltp-tuned", "batch-write", "large-read"})
+    private String profile;
+
+    private HikariDataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getProperty("bench.jdbc.url", "jdbc:mysql://127.0.0.1:3306/bench"));
+        config.setUsername(System.getProperty("bench.jdbc.user", "root"));
+        config.setPassword(System.getProperty("bench.jdbc.password", ""));
+        config.setMaximumPoolSize(4);
+        PerformanceProfile.of(profile).applyTo(config);
+        dataSource = new HikariDataSource(config);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_profile");
+            statement.execute("CREATE TABLE bench_profile (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                              + "name VARCHAR(64) NOT NULL, value BIGINT NOT NULL)");
+            statement.execute("INSERT INTO bench_profile (name, value) WITH RECURSIVE seq(n) AS "
+                              + "(SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + TABLE_ROWS + ") "
+                              + "SELECT CONCAT('name-', n), n FROM seq");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public long pointSelect() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT name, value FROM bench_profile WHERE id = ?")) {
+            ps.setLong(1, 1 + (System.nanoTime() % TABLE_ROWS));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(2) : 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public int batchInsert() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO bench_profile (name, value) VALUES (?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                ps.setString(1, "batch");
+                ps.setLong(2, i);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            connection.commit();
+            connection.setAutoCommit(true);
+            return counts.length;
+        }
+    }
+
+    @Benchmark
+    public long fullScan() throws SQLException {
+        long sum = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT id, value FROM bench_profile WHERE id <= ?")) {
+            ps.setLong(1, TABLE_ROWS);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sum += rs.getLong(2);
+                }
+            }
+        }
+        return sum;
+    }
+}
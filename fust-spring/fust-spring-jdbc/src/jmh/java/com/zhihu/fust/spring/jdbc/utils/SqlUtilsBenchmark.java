@@ -0,0 +1,61 @@
+package com.zhihu.fust.spring.jdbc.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compare the sql read/write classifier with the previous lowercase + contains implementation
+ * <p>
+ * run: ./gradlew :fust-spring:fust-spring-jdbc:jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlUtilsBenchmark {
+
+    @Param({"64", "4096", "8192"})
+    private int length;
+
+    private String sql;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("/* mybatis */ SELECT `id`, `name`, `created_at` FROM `user` WHERE `id` IN (");
+        while (sb.length() < length) {
+            sb.append("?, ");
+        }
+        sb.append("?) ORDER BY `id`");
+        sql = sb.toString();
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        String lower = sql.toLowerCase();
+        return lower.startsWith("update") || lower.contains("for update")
+               || lower.contains("insert") || lower.contains("delete") || lower.contains("truncate");
+    }
+
+    @Benchmark
+    public boolean classifier() {
+        return SqlClassifier.isWrite(sql);
+    }
+
+    @Benchmark
+    public boolean cached() {
+        return SqlUtils.isUpdateSql(sql);
+    }
+}
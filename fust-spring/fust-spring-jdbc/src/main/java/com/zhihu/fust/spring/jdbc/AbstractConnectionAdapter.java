@@ -18,30 +18,36 @@ public abstract class AbstractConnectionAdapter extends AbstractUnsupportedOpera
      */
     protected Connection delegate = null;
 
-    protected boolean autoCommit = true;
-
-    private boolean readOnly = true;
+    /**
+     * settings applied to the real connection when it is bound
+     */
+    private final ConnectionState state = new ConnectionState();
 
     private boolean closed;
 
-    private int transactionIsolation = TRANSACTION_READ_UNCOMMITTED;
-
     @Override
     public final boolean getAutoCommit() throws SQLException {
-        return autoCommit;
+        return state.getAutoCommit();
     }
 
     @Override
     public final void setAutoCommit(final boolean autoCommit) throws SQLException {
-        this.autoCommit = autoCommit;
-        recordMethodInvocation(Connection.class, "setAutoCommit", new Class[]{boolean.class},
-                new Object[]{autoCommit});
+        state.setAutoCommit(autoCommit);
         if (delegate != null) {
             delegate.setAutoCommit(autoCommit);
         }
         log.trace("setAutoCommit this|{} autoCommit|{}", this, autoCommit);
     }
 
+    /**
+     * apply the settings of this connection to the real connection
+     *
+     * @param target real connection
+     */
+    protected final void applyState(final Connection target) throws SQLException {
+        state.applyTo(target);
+    }
+
     protected List<SQLException> closeConnection() {
         closed = true;
         List<SQLException> exceptions = new LinkedList<>();
@@ -53,7 +59,7 @@ public abstract class AbstractConnectionAdapter extends AbstractUnsupportedOpera
             exceptions.add(ex);
         }
         log.trace("close this|{} delegate|{} autoCommit|{} exceptions|{}",
-                this, delegate, autoCommit, exceptions);
+                this, delegate, state.getAutoCommit(), exceptions);
         return exceptions;
     }
 
@@ -64,15 +70,12 @@ public abstract class AbstractConnectionAdapter extends AbstractUnsupportedOpera
 
     @Override
     public final boolean isReadOnly() throws SQLException {
-        return readOnly;
+        return state.isReadOnly();
     }
 
     @Override
     public final void setReadOnly(final boolean readOnly) throws SQLException {
-
-        this.readOnly = readOnly;
-        recordMethodInvocation(Connection.class, "setReadOnly", new Class[]{boolean.class},
-                new Object[]{readOnly});
+        state.setReadOnly(readOnly);
         if (delegate != null) {
             delegate.setReadOnly(readOnly);
         }
@@ -82,20 +85,17 @@ public abstract class AbstractConnectionAdapter extends AbstractUnsupportedOpera
 
     @Override
     public final int getTransactionIsolation() throws SQLException {
-        return transactionIsolation;
+        return state.getTransactionIsolation();
     }
 
     @Override
     public final void setTransactionIsolation(final int level) throws SQLException {
-        transactionIsolation = level;
-        recordMethodInvocation(Connection.class, "setTransactionIsolation",
-                new Class[]{int.class}, new Object[]{level});
-
+        state.setTransactionIsolation(level);
         if (delegate != null) {
             delegate.setTransactionIsolation(level);
         }
         log.trace("setTransactionIsolation this|{} currentConnection|{} transactionIsolation|{}",
-                this, delegate, transactionIsolation);
+                this, delegate, level);
     }
 
     // ------- Consist with MySQL driver implementation -------
@@ -0,0 +1,181 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+import com.zhihu.fust.telemetry.api.MeterClient;
+
+/**
+ * commit or rollback the child connections of a multi-database transaction
+ * <p>
+ * sequential: one by one, stop at the first failure (default)
+ * <p>
+ * parallel: all children at once on a bounded executor, the caller thread takes the first child,
+ * every failure is collected. when the executor is saturated the caller runs the child itself.
+ * <p>
+ * metrics:
+ * <ul>
+ *     <li>db.transaction.complete.time: histogram in ms, tags op, mode</li>
+ *     <li>db.transaction.complete.skew: histogram in ms between the first and the last child done, tags op</li>
+ *     <li>db.transaction.partial.commit.count: some children committed while others failed, tags mode</li>
+ * </ul>
+ */
+final class ChildConnectionCommitter {
+    private static final Logger log = LoggerFactory.getLogger(ChildConnectionCommitter.class);
+
+    private static final String COMPLETE_TIME = "db.transaction.complete.time";
+    private static final String COMPLETE_SKEW = "db.transaction.complete.skew";
+    private static final String PARTIAL_COMMIT = "db.transaction.partial.commit.count";
+    private static final MeterClient METER_CLIENT = MeterClient.getMeterClient();
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_SIZE = 256;
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<>(QUEUE_SIZE),
+                                          NamingPatternThreadFactory.of("jdbc-commit-%d", true),
+                                          new ThreadPoolExecutor.CallerRunsPolicy());
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ChildConnectionCommitter() {
+    }
+
+    /**
+     * @return the failure, empty if all done
+     */
+    static List<SQLException> sequential(List<Connection> connections, boolean commit) {
+        if (connections.size() < 2) {
+            return runSingle(connections, commit);
+        }
+        long start = System.nanoTime();
+        int done = 0;
+        try {
+            for (Connection connection : connections) {
+                complete(connection, commit);
+                done++;
+            }
+        } catch (SQLException e) {
+            if (commit && done > 0) {
+                log.error("partial commit, committed|{} total|{}", done, connections.size(), e);
+                METER_CLIENT.increment(PARTIAL_COMMIT, "mode:sequential");
+            }
+            return Collections.singletonList(e);
+        } finally {
+            recordTime(start, commit, "mode:sequential");
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return all failures, empty if all done
+     */
+    static List<SQLException> parallel(List<Connection> connections, boolean commit) {
+        int size = connections.size();
+        if (size < 2) {
+            return runSingle(connections, commit);
+        }
+        long start = System.nanoTime();
+        long[] doneNanos = new long[size];
+        SQLException[] errors = new SQLException[size];
+        List<Future<?>> futures = new ArrayList<>(size - 1);
+        for (int i = 1; i < size; i++) {
+            int index = i;
+            futures.add(EXECUTOR.submit(() -> run(connections.get(index), commit, index, doneNanos, errors)));
+        }
+        run(connections.get(0), commit, 0, doneNanos, errors);
+        boolean interrupted = false;
+        for (int i = 0; i < futures.size(); i++) {
+            // a commit in flight can not be abandoned, wait for it even if interrupted
+            while (true) {
+                try {
+                    futures.get(i).get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    errors[i + 1] = new SQLException("complete child connection failed", e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        recordTime(start, commit, "mode:parallel");
+
+        List<SQLException> failures = new ArrayList<>();
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (errors[i] != null) {
+                failures.add(errors[i]);
+            } else {
+                first = Math.min(first, doneNanos[i]);
+                last = Math.max(last, doneNanos[i]);
+            }
+        }
+        int done = size - failures.size();
+        if (done > 1) {
+            METER_CLIENT.recordHistogramValue(COMPLETE_SKEW, (last - first) / 1_000_000.0, op(commit));
+        }
+        if (commit && done > 0 && !failures.isEmpty()) {
+            log.error("partial commit, committed|{} total|{} errors|{}", done, size, failures);
+            METER_CLIENT.increment(PARTIAL_COMMIT, "mode:parallel");
+        }
+        return failures;
+    }
+
+    private static List<SQLException> runSingle(List<Connection> connections, boolean commit) {
+        try {
+            for (Connection connection : connections) {
+                complete(connection, commit);
+            }
+        } catch (SQLException e) {
+            return Collections.singletonList(e);
+        }
+        return Collections.emptyList();
+    }
+
+    private static void run(Connection connection, boolean commit, int index, long[] doneNanos,
+                            SQLException[] errors) {
+        try {
+            complete(connection, commit);
+            doneNanos[index] = System.nanoTime();
+        } catch (SQLException e) {
+            errors[index] = e;
+        } catch (RuntimeException e) {
+            errors[index] = new SQLException("complete child connection failed", e);
+        }
+    }
+
+    private static void complete(Connection connection, boolean commit) throws SQLException {
+        if (commit) {
+            connection.commit();
+        } else {
+            connection.rollback();
+        }
+    }
+
+    private static void recordTime(long start, boolean commit, String mode) {
+        METER_CLIENT.recordHistogramValue(COMPLETE_TIME, (System.nanoTime() - start) / 1_000_000.0, op(commit), mode);
+    }
+
+    private static String op(boolean commit) {
+        return commit ? "op:commit" : "op:rollback";
+    }
+}
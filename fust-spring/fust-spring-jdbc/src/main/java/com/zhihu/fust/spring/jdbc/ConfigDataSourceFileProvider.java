@@ -0,0 +1,43 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.util.function.Consumer;
+
+import com.zhihu.fust.commons.lang.SpiServiceLoader;
+import com.zhihu.fust.core.config.ConfigFileFormatEnum;
+import com.zhihu.fust.core.config.IConfigFile;
+import com.zhihu.fust.core.config.IConfigService;
+
+/**
+ * load the data source file from config center, pool size and replicas are reloaded on change
+ */
+public class ConfigDataSourceFileProvider implements DataSourceFileProvider {
+    private final IConfigFile configFile;
+
+    /**
+     * @param namespace json file namespace in config center
+     */
+    public ConfigDataSourceFileProvider(String namespace) {
+        this(SpiServiceLoader.get(IConfigService.class)
+                             .orElseThrow(() -> new IllegalStateException("no config service found")),
+             namespace);
+    }
+
+    public ConfigDataSourceFileProvider(IConfigService configService, String namespace) {
+        this.configFile = configService.getConfigFile(namespace, ConfigFileFormatEnum.JSON);
+    }
+
+    @Override
+    public String getDataSourceFile() {
+        return configFile.getNamespace();
+    }
+
+    @Override
+    public String getDataSourceContent() {
+        return configFile.hasContent() ? configFile.getContent() : "";
+    }
+
+    @Override
+    public void addChangeListener(Consumer<String> listener) {
+        configFile.addChangeListener(event -> listener.accept(event.getNewValue()));
+    }
+}
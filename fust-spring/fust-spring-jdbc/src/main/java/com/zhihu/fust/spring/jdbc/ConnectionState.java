@@ -0,0 +1,72 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * connection settings made on a wrapper before the real connection is bound
+ * <p>
+ * only the settings which have been set (dirty) are applied to the real connection
+ */
+final class ConnectionState {
+    private static final int AUTO_COMMIT = 1;
+    private static final int READ_ONLY = 1 << 1;
+    private static final int TRANSACTION_ISOLATION = 1 << 2;
+
+    private int dirty;
+    private boolean autoCommit = true;
+    private boolean readOnly = true;
+    private int transactionIsolation = Connection.TRANSACTION_READ_UNCOMMITTED;
+
+    boolean getAutoCommit() {
+        return autoCommit;
+    }
+
+    void setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+        dirty |= AUTO_COMMIT;
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        dirty |= READ_ONLY;
+    }
+
+    int getTransactionIsolation() {
+        return transactionIsolation;
+    }
+
+    void setTransactionIsolation(int transactionIsolation) {
+        this.transactionIsolation = transactionIsolation;
+        dirty |= TRANSACTION_ISOLATION;
+    }
+
+    boolean isDirty() {
+        return dirty != 0;
+    }
+
+    /**
+     * apply the dirty settings in the order of spring transaction begin: read only, isolation, auto commit
+     * <p>
+     * auto commit is compared with the pooled connection first, the getter is answered locally by hikari
+     * and the mysql driver. read only and isolation getters may query the server, so they are set directly.
+     */
+    void applyTo(Connection connection) throws SQLException {
+        if (dirty == 0) {
+            return;
+        }
+        if ((dirty & READ_ONLY) != 0) {
+            connection.setReadOnly(readOnly);
+        }
+        if ((dirty & TRANSACTION_ISOLATION) != 0) {
+            connection.setTransactionIsolation(transactionIsolation);
+        }
+        if ((dirty & AUTO_COMMIT) != 0 && connection.getAutoCommit() != autoCommit) {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
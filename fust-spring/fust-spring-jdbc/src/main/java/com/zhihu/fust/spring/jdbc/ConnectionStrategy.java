@@ -3,7 +3,7 @@ package com.zhihu.fust.spring.jdbc;
 import java.sql.Connection;
 import java.sql.SQLException;
 
-public interface ConnectionStrategy {
+public interface ConnectionStrategy extends AutoCloseable {
     Connection getConnection(String sql) throws SQLException;
 
     Connection getMasterConnection() throws SQLException;
@@ -11,4 +11,29 @@ public interface ConnectionStrategy {
     default String getDatabaseName() {
         return "default";
     }
+
+    /**
+     * called for every statement prepared on a connection of the strategy,
+     * the connection is routed by the first statement only
+     *
+     * @return true if the statement writes the current database and opens its read-your-writes window,
+     * the write is pending until the connection commits or closes
+     */
+    default boolean onPrepareStatement(String sql) {
+        return false;
+    }
+
+    /**
+     * @return read-your-writes window in millis of the current database, 0 if disabled
+     */
+    default long getReadYourWritesMs() {
+        return 0;
+    }
+
+    /**
+     * release the resources of the strategy, called when the spring context is closed
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -1,9 +1,20 @@
 package com.zhihu.fust.spring.jdbc;
 
 import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
 import com.zhihu.fust.core.env.Env;
+import com.zhihu.fust.spring.jdbc.balance.Replica;
+import com.zhihu.fust.spring.jdbc.balance.ReplicaBalancer;
+import com.zhihu.fust.spring.jdbc.balance.ReplicaBalancers;
+import com.zhihu.fust.spring.jdbc.balance.ReplicaHealth;
+import com.zhihu.fust.spring.jdbc.balance.ReplicaHealthChecker;
+import com.zhihu.fust.spring.jdbc.balance.ReplicationLagSampler;
 import com.zhihu.fust.spring.jdbc.config.DataSourceProperties;
 import com.zhihu.fust.spring.jdbc.config.DatabaseProperties;
+import com.zhihu.fust.spring.jdbc.config.JdbcConstants;
+import com.zhihu.fust.spring.jdbc.config.PerformanceProfile;
+import com.zhihu.fust.spring.jdbc.pool.PoolMetrics;
 import com.zhihu.fust.telemetry.mysql.TracingQueryInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,16 +24,30 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
-public class DataSourceAdapter {
+/**
+ * the master and replicas of a database, closed with the {@link ConnectionStrategy} owning it
+ */
+public class DataSourceAdapter implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(DataSourceAdapter.class);
     private final DataSource master;
-    private final List<DataSource> slaves;
-    private final List<DataSourceProperties> slavePropertiesList;
-    private final Random random = new Random();
+    private volatile ReplicaSet replicaSet;
+    private volatile ReplicaBalancer balancer;
+    /**
+     * the balancer is set by {@link #setReplicaBalancer(ReplicaBalancer)}, not replaced on reload
+     */
+    private volatile boolean customBalancer;
+    private volatile boolean fallbackToMaster;
+    private volatile long readYourWritesMs;
     private final String name;
-    private final boolean masterOnly;
+    private volatile boolean masterOnly;
     private boolean defaultDb;
+    private boolean closed;
+    /**
+     * properties of the last (re)load, null if created by data sources directly
+     */
+    private DatabaseProperties properties;
     private static final String DEFAULT_TRACER = TracingQueryInterceptor.class.getName();
 
     public boolean isDefaultDb() {
@@ -40,7 +65,7 @@ public class DataSourceAdapter {
      * @param master master DataSource
      */
     public DataSourceAdapter(String name, DataSource master) {
-        this(name, master, Collections.singletonList(master), true);
+        this(name, master, Collections.emptyList(), true);
     }
 
     /**
@@ -53,9 +78,15 @@ public class DataSourceAdapter {
      */
     public DataSourceAdapter(String name, DataSource master, List<DataSource> slaves, boolean masterOnly) {
         this.name = name;
-        this.slavePropertiesList = new ArrayList<>();
         this.master = master;
-        this.slaves = slaves;
+        List<Replica> replicas = new ArrayList<>(slaves.size());
+        for (int i = 0; i < slaves.size(); i++) {
+            replicas.add(new Replica(name + "_replica_" + i, slaves.get(i), 1));
+        }
+        this.replicaSet = new ReplicaSet(name, Collections.unmodifiableList(replicas), null);
+        this.balancer = ReplicaBalancers.create(null);
+        this.fallbackToMaster = true;
+        this.readYourWritesMs = 0;
         this.masterOnly = masterOnly;
     }
 
@@ -65,32 +96,206 @@ public class DataSourceAdapter {
      * @param properties 数据库配置属性
      */
     public DataSourceAdapter(DatabaseProperties properties) {
-        this.slaves = new ArrayList<>();
-        this.slavePropertiesList = new ArrayList<>();
+        this(properties, createDataSources(properties));
+    }
+
+    /**
+     * @param properties  数据库配置属性
+     * @param dataSources data sources created in the order of {@link DatabaseProperties#getDataSourcePropertiesList()}
+     */
+    DataSourceAdapter(DatabaseProperties properties, List<DataSource> dataSources) {
+        List<Replica> replicas = new ArrayList<>();
         DataSource localMaster = null;
         List<DataSourceProperties> propertiesList = properties.getDataSourcePropertiesList();
-        for (DataSourceProperties p : propertiesList) {
+        for (int i = 0; i < propertiesList.size(); i++) {
+            DataSourceProperties p = propertiesList.get(i);
             if (p.isMaster()) {
-                if (localMaster != null) {
-                    logger.error("multi master find, new master|{}", p.getName());
-                    throw new IllegalStateException("Not support multi master");
-                }
-                localMaster = createDataSource(properties, p);
+                localMaster = dataSources.get(i);
             } else {
-                slavePropertiesList.add(p);
-                slaves.add(createDataSource(properties, p));
+                replicas.add(newReplica(properties, p, dataSources.get(i)));
             }
         }
+        this.replicaSet = createReplicaSet(properties, replicas);
+        this.balancer = ReplicaBalancers.create(properties.getReplicaBalancer());
+        this.fallbackToMaster = properties.isReplicaFallbackToMaster();
+        this.readYourWritesMs = properties.getReadYourWritesMs();
         this.name = properties.getName();
         this.master = localMaster;
         this.masterOnly = properties.isMasterOnly();
+        this.properties = properties;
+    }
+
+    private static Replica newReplica(DatabaseProperties properties, DataSourceProperties p, DataSource dataSource) {
+        ReplicaHealth health = new ReplicaHealth(properties.getReplicaFailureThreshold(),
+                                                 properties.getReplicaEjectMs(),
+                                                 properties.getReplicaMaxEjectMs());
+        return new Replica(p.getName(), dataSource, p.getWeight(), health);
+    }
+
+    private static ReplicaSet createReplicaSet(DatabaseProperties properties, List<Replica> replicas) {
+        List<Replica> list = Collections.unmodifiableList(replicas);
+        ReplicationLagSampler lagSampler = null;
+        if (properties.getReadYourWritesMs() > 0 && properties.getReplicaLagSampleMs() > 0 && !list.isEmpty()
+            && !properties.isMasterOnly()) {
+            lagSampler = ReplicationLagSampler.start(properties.getName(), list,
+                                                     properties.getReplicaLagQuery(),
+                                                     properties.getReplicaLagSampleMs());
+        }
+        return new ReplicaSet(properties.getName(), list, lagSampler);
+    }
+
+    /**
+     * apply a changed config at runtime
+     * <ul>
+     *     <li>minIdle, maxPoolSize and connectionTimeoutMs are applied to all pools live</li>
+     *     <li>replicas are added or removed by swapping the replica list, removed pools are drained in background</li>
+     *     <li>a replica with the same url keeps its pool, health (ejection), stats and replication progress,
+     *     the weight and eject thresholds are applied to it</li>
+     *     <li>balancer, fallback, read-your-writes and masterOnly are applied, the balancer is only replaced
+     *     when its name changes and no custom balancer is set</li>
+     *     <li>other changes, e.g. master url, need a restart</li>
+     * </ul>
+     */
+    public synchronized void reload(DatabaseProperties newProperties) {
+        if (closed) {
+            throw new IllegalStateException("reload a closed adapter, db|" + name);
+        }
+        if (properties == null) {
+            throw new IllegalStateException("reload not supported, adapter not created by properties, db|" + name);
+        }
+        if (!name.equals(newProperties.getName())) {
+            throw new IllegalArgumentException("reload with another db name|" + newProperties.getName());
+        }
+        checkSingleMaster(newProperties);
+        ReplicaBalancer newBalancer = null;
+        if (!customBalancer && !Objects.equals(properties.getReplicaBalancer(), newProperties.getReplicaBalancer())) {
+            newBalancer = ReplicaBalancers.create(newProperties.getReplicaBalancer());
+        }
+        Map<String, DataSourceProperties> oldProperties = new HashMap<>();
+        for (DataSourceProperties p : properties.getDataSourcePropertiesList()) {
+            oldProperties.put(p.getName(), p);
+        }
+        Map<String, Replica> oldReplicas = new HashMap<>();
+        for (Replica replica : replicaSet.replicas) {
+            oldReplicas.put(replica.getName(), replica);
+        }
+
+        List<Replica> replicas = new ArrayList<>();
+        List<DataSource> created = new ArrayList<>();
+        try {
+            for (DataSourceProperties p : newProperties.getDataSourcePropertiesList()) {
+                DataSourceProperties old = oldProperties.get(p.getName());
+                if (p.isMaster()) {
+                    if (old == null || !old.isMaster() || !isSameDataSource(old, p)) {
+                        logger.warn("master changed, restart to apply it, db|{} master|{}", name, p.getName());
+                    }
+                    resize(master, newProperties);
+                    continue;
+                }
+                Replica replica = oldReplicas.get(p.getName());
+                if (replica != null && old != null && isSameDataSource(old, p)) {
+                    resize(replica.getDataSource(), newProperties);
+                    if (replica.getWeight() != p.getWeight()) {
+                        replica = replica.withWeight(p.getWeight());
+                    }
+                    replicas.add(replica);
+                } else {
+                    DataSource dataSource = createDataSource(newProperties, p);
+                    created.add(dataSource);
+                    replicas.add(newReplica(newProperties, p, dataSource));
+                }
+            }
+            for (Replica replica : replicas) {
+                replica.getHealth().configure(newProperties.getReplicaFailureThreshold(),
+                                              newProperties.getReplicaEjectMs(),
+                                              newProperties.getReplicaMaxEjectMs());
+            }
+        } catch (RuntimeException e) {
+            created.forEach(dataSource -> DataSourceDrainer.drain(name, dataSource));
+            throw e;
+        }
+
+        if (newBalancer != null) {
+            balancer = newBalancer;
+        }
+        fallbackToMaster = newProperties.isReplicaFallbackToMaster();
+        readYourWritesMs = newProperties.getReadYourWritesMs();
+        masterOnly = newProperties.isMasterOnly();
+        ReplicaSet old = replicaSet;
+        replicaSet = createReplicaSet(newProperties, replicas);
+        properties = newProperties;
+        old.close();
+        for (Replica replica : old.replicas) {
+            if (!containsDataSource(replicas, replica.getDataSource())) {
+                logger.info("replica removed, db|{} replica|{}", name, replica.getName());
+                DataSourceDrainer.drain(name + "/" + replica.getName(), replica.getDataSource());
+            }
+        }
+        logger.info("reload db|{} replicas|{}", name, replicas);
+    }
+
+    private static boolean isSameDataSource(DataSourceProperties a, DataSourceProperties b) {
+        return Objects.equals(a.getUrl(), b.getUrl())
+               && Objects.equals(a.getUsername(), b.getUsername())
+               && Objects.equals(a.getPassword(), b.getPassword());
+    }
+
+    private static boolean containsDataSource(List<Replica> replicas, DataSource dataSource) {
+        for (Replica replica : replicas) {
+            if (replica.getDataSource() == dataSource) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resize(DataSource dataSource, DatabaseProperties p) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return;
+        }
+        HikariConfigMXBean pool = ((HikariDataSource) dataSource).getHikariConfigMXBean();
+        int maxPoolSize = p.getMaxPoolSize();
+        int minIdle = Math.min(p.getMinIdle(), maxPoolSize);
+        if (pool.getMaximumPoolSize() != maxPoolSize || pool.getMinimumIdle() != minIdle) {
+            logger.info("resize pool, db|{} pool|{} maxPoolSize|{} -> {} minIdle|{} -> {}", name, pool.getPoolName(),
+                        pool.getMaximumPoolSize(), maxPoolSize, pool.getMinimumIdle(), minIdle);
+            pool.setMaximumPoolSize(maxPoolSize);
+            pool.setMinimumIdle(minIdle);
+        }
+        Integer connectionTimeoutMs = p.getConnectionTimeoutMs();
+        if (connectionTimeoutMs != null && pool.getConnectionTimeout() != connectionTimeoutMs) {
+            pool.setConnectionTimeout(connectionTimeoutMs);
+        }
     }
 
     public String getName() {
         return name;
     }
 
-    private static DataSource createDataSource(DatabaseProperties db, DataSourceProperties ds) {
+    private static List<DataSource> createDataSources(DatabaseProperties properties) {
+        checkSingleMaster(properties);
+        List<DataSource> dataSources = new ArrayList<>();
+        for (DataSourceProperties p : properties.getDataSourcePropertiesList()) {
+            dataSources.add(createDataSource(properties, p));
+        }
+        return dataSources;
+    }
+
+    static void checkSingleMaster(DatabaseProperties properties) {
+        boolean found = false;
+        for (DataSourceProperties p : properties.getDataSourcePropertiesList()) {
+            if (p.isMaster()) {
+                if (found) {
+                    logger.error("multi master find, db|{} new master|{}", properties.getName(), p.getName());
+                    throw new IllegalStateException("Not support multi master");
+                }
+                found = true;
+            }
+        }
+    }
+
+    static DataSource createDataSource(DatabaseProperties db, DataSourceProperties ds) {
+        long start = System.nanoTime();
         HikariConfig config = new HikariConfig();
 
         config.setMinimumIdle(db.getMinIdle());
@@ -102,9 +307,7 @@ public class DataSourceAdapter {
         config.setPassword(ds.getPassword());
 
         config.addDataSourceProperty("characterEncoding", "utf8");
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        PerformanceProfile.of(db.getProfile()).applyTo(config);
 
         // process 0000-00-00 00:00:00 to null in java
         config.addDataSourceProperty("zeroDateTimeBehavior", "convertToNull");
@@ -116,12 +319,24 @@ public class DataSourceAdapter {
                 .ifPresent(config::setConnectionTimeout);
 
         config.addDataSourceProperty("queryInterceptors", DEFAULT_TRACER);
+        String role = ds.isMaster() ? JdbcConstants.MASTER : JdbcConstants.REPLICA;
+        config.setMetricsTrackerFactory(new PoolMetrics(db.getName(), role, ds.getName()));
 
         HikariDataSourceCreator creator = new HikariDataSourceCreator(config);
-        if (Env.isProduction()) {
-            return creator.getNow();
+        HikariDataSource dataSource;
+        if (db.isAsyncInit()) {
+            // do not wait for the first connection, the pool is filled in background
+            config.setInitializationFailTimeout(-1);
+            dataSource = creator.getNow();
+            creator.warmUp(dataSource);
+        } else if (Env.isProduction()) {
+            dataSource = creator.getNow();
+        } else {
+            dataSource = creator.getWithRetry();
         }
-        return creator.getWithRetry();
+        logger.info("init dataSource db|{} ds|{} url|{} cost|{}ms", db.getName(), ds.getName(), ds.getUrl(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return dataSource;
     }
 
     public boolean isMasterOnly() {
@@ -133,20 +348,173 @@ public class DataSourceAdapter {
         return master.getConnection();
     }
 
+    public boolean isReadYourWrites() {
+        return readYourWritesMs > 0;
+    }
+
+    public long getReadYourWritesMs() {
+        return readYourWritesMs;
+    }
+
+    /**
+     * @param lastWriteMillis last write time of current thread, 0 if no write
+     * @return true if a read must go to master to see the last write
+     */
+    public boolean isReplicaBehind(long lastWriteMillis) {
+        if (lastWriteMillis <= 0) {
+            return false;
+        }
+        if (lastWriteMillis != Long.MAX_VALUE && System.currentTimeMillis() - lastWriteMillis > readYourWritesMs) {
+            return false;
+        }
+        ReplicaSet set = replicaSet;
+        if (set.lagSampler == null) {
+            return true;
+        }
+        for (Replica replica : set.getAvailable()) {
+            if (replica.getReplicatedUntilMillis() < lastWriteMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Connection getSlaveConnection() throws SQLException {
-        if (slaves.isEmpty()) {
+        ReplicaSet set = replicaSet;
+        ReplicaHealthChecker healthChecker = set.healthChecker;
+        if (healthChecker == null) {
             logger.debug("no slave db found, return master connection");
             return getMasterConnection();
         }
-        int index = random.nextInt(slaves.size());
-        DataSourceProperties p = slavePropertiesList.get(index);
+        List<Replica> candidates = healthChecker.getAvailable();
+        if (candidates.isEmpty()) {
+            if (fallbackToMaster) {
+                logger.debug("all slaves ejected, return master connection, db|{}", name);
+                healthChecker.recordFallback();
+                return getMasterConnection();
+            }
+            candidates = set.replicas;
+        }
+        Replica replica = select(candidates);
+        try {
+            return getReplicaConnection(healthChecker, replica);
+        } catch (SQLException e) {
+            // one retry only, the failed acquire has already waited for the connection timeout
+            Replica other = selectOther(healthChecker.getAvailable(), replica);
+            if (other != null) {
+                logger.warn("GET slave connection failed, retry db|{} slave|{} -> {}", name, replica.getName(), other.getName());
+                return getReplicaConnection(healthChecker, other);
+            }
+            if (fallbackToMaster) {
+                logger.warn("GET slave connection failed, fallback to master, db|{} slave|{}", name, replica.getName());
+                healthChecker.recordFallback();
+                return getMasterConnection();
+            }
+            throw e;
+        }
+    }
+
+    private Replica select(List<Replica> candidates) {
+        return candidates.size() == 1 ? candidates.get(0) : candidates.get(balancer.select(candidates));
+    }
+
+    /**
+     * @return another available replica, null if there is none
+     */
+    private Replica selectOther(List<Replica> candidates, Replica failed) {
+        if (!candidates.contains(failed)) {
+            return candidates.isEmpty() ? null : select(candidates);
+        }
+        if (candidates.size() == 1) {
+            return null;
+        }
+        List<Replica> others = new ArrayList<>(candidates);
+        others.remove(failed);
+        return select(others);
+    }
+
+    private Connection getReplicaConnection(ReplicaHealthChecker healthChecker, Replica replica) throws SQLException {
         if (logger.isDebugEnabled()) {
-            logger.debug("GET slave connection from db|{}  slave|{}", name, p.getName());
+            logger.debug("GET slave connection from db|{}  slave|{}", name, replica.getName());
         }
-        return slaves.get(index).getConnection();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Connection connection = replica.getDataSource().getConnection();
+            success = true;
+            healthChecker.recordSuccess(replica);
+            return connection;
+        } catch (SQLException e) {
+            healthChecker.recordFailure(replica, e);
+            throw e;
+        } finally {
+            replica.getStats().recordAcquire(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * replace the replica balancer, e.g. a custom implementation
+     */
+    public void setReplicaBalancer(ReplicaBalancer balancer) {
+        this.balancer = balancer;
+        this.customBalancer = true;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicaSet.replicas;
+    }
+
+    /**
+     * @return replicas which are not ejected by health check
+     */
+    public List<Replica> getAvailableReplicas() {
+        return replicaSet.getAvailable();
     }
 
     public DataSource getMaster() {
         return master;
     }
+
+    /**
+     * stop the health check and lag sampling of the replicas, the pools are not closed
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        replicaSet.close();
+    }
+
+    /**
+     * replicas with their health checker and lag sampler, swapped as a whole on reload
+     */
+    private static final class ReplicaSet {
+        private final List<Replica> replicas;
+        /**
+         * null if there is no replica
+         */
+        private final ReplicaHealthChecker healthChecker;
+        private final ReplicationLagSampler lagSampler;
+
+        private ReplicaSet(String dbName, List<Replica> replicas, ReplicationLagSampler lagSampler) {
+            this.replicas = replicas;
+            this.healthChecker = replicas.isEmpty() ? null : new ReplicaHealthChecker(dbName, replicas);
+            this.lagSampler = lagSampler;
+        }
+
+        private List<Replica> getAvailable() {
+            return healthChecker == null ? replicas : healthChecker.getAvailable();
+        }
+
+        private void close() {
+            if (healthChecker != null) {
+                healthChecker.close();
+            }
+            if (lagSampler != null) {
+                lagSampler.close();
+            }
+        }
+    }
 }
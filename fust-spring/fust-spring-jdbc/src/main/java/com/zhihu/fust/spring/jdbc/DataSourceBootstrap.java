@@ -0,0 +1,105 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zhihu.fust.commons.lang.concurrent.ExecutorServiceUtils;
+import com.zhihu.fust.spring.jdbc.config.DataSourceProperties;
+import com.zhihu.fust.spring.jdbc.config.DatabaseProperties;
+
+/**
+ * create the adapters of all databases, masters and replicas are initialized concurrently
+ * <p>
+ * all initialization failures are reported together, the data sources already created are closed
+ */
+public final class DataSourceBootstrap {
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceBootstrap.class);
+    private static final int MAX_PARALLELISM = 8;
+
+    private DataSourceBootstrap() {
+    }
+
+    public static List<DataSourceAdapter> createAdapters(List<DatabaseProperties> properties) {
+        properties.forEach(DataSourceAdapter::checkSingleMaster);
+        int total = properties.stream().mapToInt(p -> p.getDataSourcePropertiesList().size()).sum();
+        if (total <= 1) {
+            return properties.stream().map(DataSourceAdapter::new).collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        List<List<DataSource>> created = new ArrayList<>(properties.size());
+        List<String> errors = new ArrayList<>();
+        List<Throwable> causes = new ArrayList<>();
+        ExecutorService executor = ExecutorServiceUtils.newFixedThreadPool(Math.min(total, MAX_PARALLELISM),
+                                                                           "dataSource-bootstrap-%d");
+        try {
+            List<List<Future<DataSource>>> futures = new ArrayList<>(properties.size());
+            for (DatabaseProperties db : properties) {
+                List<Future<DataSource>> dbFutures = new ArrayList<>();
+                for (DataSourceProperties ds : db.getDataSourcePropertiesList()) {
+                    dbFutures.add(executor.submit(() -> DataSourceAdapter.createDataSource(db, ds)));
+                }
+                futures.add(dbFutures);
+            }
+            for (int i = 0; i < properties.size(); i++) {
+                DatabaseProperties db = properties.get(i);
+                List<DataSource> dataSources = new ArrayList<>();
+                for (int j = 0; j < futures.get(i).size(); j++) {
+                    Throwable error = null;
+                    try {
+                        dataSources.add(futures.get(i).get(j).get());
+                    } catch (ExecutionException e) {
+                        error = e.getCause();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        error = e;
+                    }
+                    if (error != null) {
+                        dataSources.add(null);
+                        errors.add(db.getName() + "/" + db.getDataSourcePropertiesList().get(j).getName()
+                                   + ": " + error.getMessage());
+                        causes.add(error);
+                    }
+                }
+                created.add(dataSources);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        if (!errors.isEmpty()) {
+            created.forEach(dataSources -> dataSources.forEach(DataSourceBootstrap::closeQuietly));
+            IllegalStateException e = new IllegalStateException("init dataSource failed|" + errors);
+            causes.forEach(e::addSuppressed);
+            throw e;
+        }
+        logger.info("init dataSources, db|{} dataSource|{} cost|{}ms", properties.size(), total,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        List<DataSourceAdapter> adapters = new ArrayList<>(properties.size());
+        for (int i = 0; i < properties.size(); i++) {
+            adapters.add(new DataSourceAdapter(properties.get(i), created.get(i)));
+        }
+        return adapters;
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                logger.warn("close dataSource error", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+
+/**
+ * close a data source removed by reload without breaking the queries in flight
+ * <p>
+ * idle connections are evicted at once, borrowed connections are closed when they are returned,
+ * the pool is closed when no connection is borrowed or the drain timeout is reached.
+ */
+final class DataSourceDrainer {
+    private static final Logger log = LoggerFactory.getLogger(DataSourceDrainer.class);
+
+    private static final long CHECK_INTERVAL_MS = 500;
+    private static final long DRAIN_TIMEOUT_MS = 60_000;
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(NamingPatternThreadFactory.of("dataSource-drain-%d", true));
+
+    private DataSourceDrainer() {
+    }
+
+    static void drain(String name, DataSource dataSource) {
+        if (!(dataSource instanceof AutoCloseable)) {
+            return;
+        }
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            if (pool != null) {
+                pool.softEvictConnections();
+            }
+        }
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        log.info("drain dataSource|{}", name);
+        SCHEDULER.schedule(() -> check(name, dataSource, deadline), CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void check(String name, DataSource dataSource, long deadline) {
+        int active = getActiveConnections(dataSource);
+        if (active > 0 && System.currentTimeMillis() < deadline) {
+            SCHEDULER.schedule(() -> check(name, dataSource, deadline), CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (active > 0) {
+            log.warn("drain dataSource timeout, close with active connections, dataSource|{} active|{}", name, active);
+        }
+        try {
+            ((AutoCloseable) dataSource).close();
+            log.info("dataSource closed|{}", name);
+        } catch (Exception e) {
+            log.warn("close dataSource error|{}", name, e);
+        }
+    }
+
+    private static int getActiveConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+        // unknown pool, wait for the timeout
+        return 1;
+    }
+}
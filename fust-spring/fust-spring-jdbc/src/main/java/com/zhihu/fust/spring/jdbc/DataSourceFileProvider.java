@@ -1,7 +1,22 @@
 package com.zhihu.fust.spring.jdbc;
 
+import java.util.function.Consumer;
+
 public interface DataSourceFileProvider {
     DataSourceFileProvider EMPTY = () -> "";
 
     String getDataSourceFile();
+
+    /**
+     * @return content of the data source file, null to load it from {@link #getDataSourceFile()}
+     */
+    default String getDataSourceContent() {
+        return null;
+    }
+
+    /**
+     * watch the data source file, the listener receives the new content on change
+     */
+    default void addChangeListener(Consumer<String> listener) {
+    }
 }
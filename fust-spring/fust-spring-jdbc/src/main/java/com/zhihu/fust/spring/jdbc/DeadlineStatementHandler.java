@@ -0,0 +1,107 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import com.zhihu.fust.telemetry.api.RequestDeadline;
+
+/**
+ * proxy of a prepared statement whose query timeout is derived from the request deadline when it is executed,
+ * instead of once when it is prepared
+ * <p>
+ * frameworks like mybatis and spring jdbc call setQueryTimeout after prepareStatement with their own statement
+ * or transaction timeout, it is kept as an upper bound: the smaller of it and the remaining budget is applied
+ * right before every execute. an execute after the deadline is rejected by {@link QueryTimeoutPolicy} without
+ * reaching the server, the statement and its connection are already borrowed then.
+ */
+final class DeadlineStatementHandler implements InvocationHandler {
+    private final PreparedStatement delegate;
+    private final QueryTimeoutPolicy policy;
+    private final String databaseName;
+    /**
+     * null if the request has no deadline, the max of the policy applies
+     */
+    private final RequestDeadline deadline;
+    /**
+     * timeout set by the caller, 0 if none
+     */
+    private int requestedSeconds;
+    /**
+     * timeout applied to the delegate
+     */
+    private int appliedSeconds;
+
+    private DeadlineStatementHandler(PreparedStatement delegate, QueryTimeoutPolicy policy, String databaseName,
+                                     RequestDeadline deadline) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.databaseName = databaseName;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param seconds timeout derived when the statement is prepared
+     */
+    static PreparedStatement wrap(PreparedStatement delegate, QueryTimeoutPolicy policy, String databaseName,
+                                  RequestDeadline deadline, int seconds) throws SQLException {
+        DeadlineStatementHandler handler = new DeadlineStatementHandler(delegate, policy, databaseName, deadline);
+        handler.apply(seconds);
+        return (PreparedStatement) Proxy.newProxyInstance(DeadlineStatementHandler.class.getClassLoader(),
+                                                          new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute")) {
+            apply(policy.getTimeoutSeconds(databaseName, deadline));
+        } else if ("setQueryTimeout".equals(name)) {
+            setQueryTimeout((Integer) args[0]);
+            return null;
+        } else if ("getQueryTimeout".equals(name)) {
+            return appliedSeconds;
+        } else if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, name, args);
+        }
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object invokeObjectMethod(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "DeadlineStatement{" + delegate + '}';
+        }
+    }
+
+    private void setQueryTimeout(int seconds) throws SQLException {
+        if (seconds < 0) {
+            throw new SQLException("query timeout must be >= 0|" + seconds);
+        }
+        requestedSeconds = seconds;
+        apply(policy.getTimeoutSeconds(databaseName, deadline));
+    }
+
+    /**
+     * @param seconds timeout of the policy, 0 if unlimited
+     */
+    private void apply(int seconds) throws SQLException {
+        int timeout = requestedSeconds <= 0 ? seconds
+                                            : seconds <= 0 ? requestedSeconds : Math.min(seconds, requestedSeconds);
+        if (timeout != appliedSeconds) {
+            delegate.setQueryTimeout(timeout);
+            appliedSeconds = timeout;
+        }
+    }
+}
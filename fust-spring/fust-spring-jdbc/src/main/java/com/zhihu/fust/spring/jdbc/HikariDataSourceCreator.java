@@ -1,5 +1,7 @@
 package com.zhihu.fust.spring.jdbc;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -22,7 +24,7 @@ class HikariDataSourceCreator {
     private static final Logger log = LoggerFactory.getLogger(HikariDataSourceCreator.class);
     private static final int MAX_RETRY_COUNT = 3;
     private static final ExecutorService INIT_EXECUTOR =
-            ExecutorServiceUtils.newCachedThreadPool(3, 20, "default-dataSource-init-%d");
+            ExecutorServiceUtils.newCachedThreadPool(3, 64, "default-dataSource-init-%d");
 
     // 配置项
     private final HikariConfig config;
@@ -91,4 +93,20 @@ class HikariDataSourceCreator {
         }
         throw new IllegalStateException("init db error|{} by 3 times" + config.getJdbcUrl());
     }
+
+    /**
+     * get the first connection in background, for a pool created without waiting for it
+     */
+    public void warmUp(HikariDataSource dataSource) {
+        getExecutorService().execute(() -> {
+            long start = System.nanoTime();
+            try (Connection ignored = dataSource.getConnection()) {
+                log.info("warmUpDataSource, url|{} cost|{}ms", config.getJdbcUrl(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (SQLException e) {
+                log.error("warmUpDataSource error, url|{} connectionTimeout|{}",
+                        config.getJdbcUrl(), config.getConnectionTimeout(), e);
+            }
+        });
+    }
 }
@@ -0,0 +1,116 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 通过子父连接的方式，实现多数据源的事务管理
+ * <p>
+ * the context of a parent connection is bound to spring transaction resources,
+ * so it follows the transaction instead of a thread local of our own. a parent opened while another one is bound,
+ * e.g. REQUIRES_NEW, shadows the outer context until it is closed.
+ * <p>
+ * contexts are recycled by a small shared pool, it is not per thread so it works with any number of (virtual) threads.
+ */
+final class JdbcConnectionContext {
+    /**
+     * resource key in {@link TransactionSynchronizationManager}
+     */
+    static final Object RESOURCE_KEY = JdbcConnectionContext.class;
+
+    private static final int POOL_SIZE = 32;
+    private static final int POOL_MASK = POOL_SIZE - 1;
+    private static final int POOL_PROBES = 4;
+    private static final AtomicReferenceArray<JdbcConnectionContext> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    private JdbcConnectionWrapper parent;
+    private final List<JdbcConnectionWrapper> children = new ArrayList<>(4);
+    /**
+     * context shadowed by this one
+     */
+    private Object previous;
+
+    private JdbcConnectionContext() {
+    }
+
+    /**
+     * create a context for the parent connection and bind it to current transaction resources
+     */
+    static JdbcConnectionContext bind(JdbcConnectionWrapper parent) {
+        JdbcConnectionContext context = acquire();
+        context.parent = parent;
+        context.previous = TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+        TransactionSynchronizationManager.bindResource(RESOURCE_KEY, context);
+        return context;
+    }
+
+    /**
+     * @return the bound context of the actual transaction, null if there is none
+     */
+    static JdbcConnectionContext current() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        JdbcConnectionContext context = (JdbcConnectionContext) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+        // a context closed out of order may be restored by the inner one, it is dead
+        return context == null || context.parent == null ? null : context;
+    }
+
+    JdbcConnectionWrapper getParent() {
+        return parent;
+    }
+
+    List<JdbcConnectionWrapper> getChildren() {
+        return children;
+    }
+
+    void addChild(JdbcConnectionWrapper child) {
+        children.add(child);
+    }
+
+    /**
+     * unbind from transaction resources, restore the shadowed context and recycle this one
+     */
+    void unbind() {
+        Object bound = TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+        parent = null;
+        children.clear();
+        if (bound != this && bound != null) {
+            // closed out of order, keep the inner one bound, this one is still referenced by it so do not recycle
+            TransactionSynchronizationManager.bindResource(RESOURCE_KEY, bound);
+            return;
+        }
+        if (previous != null) {
+            TransactionSynchronizationManager.bindResource(RESOURCE_KEY, previous);
+            previous = null;
+        }
+        release(this);
+    }
+
+    private static JdbcConnectionContext acquire() {
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < POOL_PROBES; i++) {
+            int index = (start + i) & POOL_MASK;
+            JdbcConnectionContext context = POOL.get(index);
+            if (context != null && POOL.compareAndSet(index, context, null)) {
+                return context;
+            }
+        }
+        return new JdbcConnectionContext();
+    }
+
+    private static void release(JdbcConnectionContext context) {
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i < POOL_PROBES; i++) {
+            int index = (start + i) & POOL_MASK;
+            if (POOL.get(index) == null && POOL.compareAndSet(index, null, context)) {
+                return;
+            }
+        }
+        // pool is full, drop it
+    }
+}
@@ -5,6 +5,10 @@ public class JdbcConnectionFactory {
 
     private boolean directMode;
 
+    private boolean parallelCommit;
+
+    private QueryTimeoutPolicy queryTimeoutPolicy = QueryTimeoutPolicy.getDefault();
+
     public JdbcConnectionFactory(ConnectionStrategy strategy) {
         this.strategy = strategy;
     }
@@ -13,8 +17,22 @@ public class JdbcConnectionFactory {
         this.directMode = directMode;
     }
 
+    /**
+     * commit/rollback the connections of a multi-database transaction in parallel, default is sequential
+     */
+    public void setParallelCommit(boolean parallelCommit) {
+        this.parallelCommit = parallelCommit;
+    }
+
+    /**
+     * query timeout derived from the request deadline, default is {@link QueryTimeoutPolicy#getDefault()}
+     */
+    public void setQueryTimeoutPolicy(QueryTimeoutPolicy queryTimeoutPolicy) {
+        this.queryTimeoutPolicy = queryTimeoutPolicy;
+    }
+
     public JdbcConnectionWrapper createConnection() {
-        return new JdbcConnectionWrapper(strategy, directMode);
+        return new JdbcConnectionWrapper(strategy, directMode, parallelCommit, queryTimeoutPolicy);
     }
 
     public ConnectionStrategy getConnectStrategy() {
@@ -1,5 +1,8 @@
 package com.zhihu.fust.spring.jdbc;
 
+import com.zhihu.fust.telemetry.api.ServiceEntry;
+import io.opentelemetry.context.Context;
+
 public class JdbcConnectionHint {
     protected static class Hint {
         boolean master;
@@ -8,6 +11,11 @@ public class JdbcConnectionHint {
     }
 
     private static final ThreadLocal<Hint> MASTER_HINT = ThreadLocal.withInitial(Hint::new);
+    /**
+     * writes of a thread out of any request, e.g. a job, not cleared with the hint.
+     * requests track their writes in the {@link ServiceEntry} of the context, put by the server entries
+     */
+    private static final ThreadLocal<JdbcWrites> THREAD_WRITES = new ThreadLocal<>();
 
     public static boolean isMaster() {
         Hint hint = MASTER_HINT.get();
@@ -42,4 +50,66 @@ public class JdbcConnectionHint {
     public static void clear() {
         MASTER_HINT.remove();
     }
+
+    /**
+     * record a write to the database finished now, e.g. by a connection not created by fust,
+     * in the current request, or on current thread out of a request
+     *
+     * @param readYourWritesMs reads go to master within this window after the write
+     */
+    public static void markWrite(String databaseName, long readYourWritesMs) {
+        JdbcWrites writes = currentWrites(true);
+        writes.begin(databaseName, readYourWritesMs);
+        writes.complete(databaseName, System.currentTimeMillis());
+    }
+
+    /**
+     * a connection starts writing the database, pending until it calls {@link JdbcWrites#complete(String, long)}
+     * on the returned writes, they may be not current any more when the connection is closed on another thread
+     */
+    static JdbcWrites beginWrite(String databaseName, long readYourWritesMs) {
+        JdbcWrites writes = currentWrites(true);
+        writes.begin(databaseName, readYourWritesMs);
+        return writes;
+    }
+
+    /**
+     * @return last write time in millis of the database in the current request, 0 if no write,
+     * {@link Long#MAX_VALUE} if a connection is still writing
+     */
+    public static long getLastWriteMillis(String databaseName) {
+        JdbcWrites writes = currentWrites(false);
+        return writes == null ? 0 : writes.getLastWriteMillis(databaseName);
+    }
+
+    /**
+     * @return whether the current request, or current thread out of a request, has a write still pending
+     * or in the read-your-writes window of its database, reads may be routed to master until then
+     */
+    public static boolean hasWrites() {
+        JdbcWrites writes = currentWrites(false);
+        return writes != null && writes.hasWrites(System.currentTimeMillis());
+    }
+
+    private static JdbcWrites currentWrites(boolean create) {
+        ServiceEntry entry = Context.current().get(ServiceEntry.SERVICE_ENTRY_KEY);
+        if (entry != null) {
+            return create ? entry.computeAttributeIfAbsent(JdbcWrites.ATTRIBUTE, name -> new JdbcWrites())
+                          : entry.getAttribute(JdbcWrites.ATTRIBUTE);
+        }
+        JdbcWrites writes = THREAD_WRITES.get();
+        if (writes == null && create) {
+            writes = new JdbcWrites();
+            THREAD_WRITES.set(writes);
+        }
+        return writes;
+    }
+
+    /**
+     * forget the writes of current thread out of a request, e.g. at the end of a job when threads are pooled.
+     * writes of a request end with its context
+     */
+    public static void clearWrites() {
+        THREAD_WRITES.remove();
+    }
 }
@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.zhihu.fust.commons.lang.StringUtils;
+import com.zhihu.fust.spring.jdbc.config.DatabaseProperties;
 import com.zhihu.fust.spring.jdbc.utils.SqlUtils;
 
 /**
@@ -48,6 +49,24 @@ public class JdbcConnectionStrategy implements ConnectionStrategy {
         return targetDataSources;
     }
 
+    /**
+     * reload the changed config of the databases, adding or removing a database needs a restart
+     */
+    public void reload(List<DatabaseProperties> properties) {
+        for (DatabaseProperties p : properties) {
+            DataSourceAdapter adapter = targetDataSources.get(p.getName());
+            if (adapter == null) {
+                log.warn("new database is ignored until restart, db|{}", p.getName());
+                continue;
+            }
+            try {
+                adapter.reload(p);
+            } catch (RuntimeException e) {
+                log.error("reload db error, keep the current config, db|{}", p.getName(), e);
+            }
+        }
+    }
+
     @Override
     public Connection getConnection(String sql) throws SQLException {
         log.debug("get connect by sql|{}", sql);
@@ -65,9 +84,31 @@ public class JdbcConnectionStrategy implements ConnectionStrategy {
         if (sourceAdapter.isMasterOnly()) {
             return sourceAdapter.getMasterConnection();
         }
+        if (sourceAdapter.isReadYourWrites()
+            && sourceAdapter.isReplicaBehind(JdbcConnectionHint.getLastWriteMillis(dbName))) {
+            log.debug("replica is behind the last write, read from master, db|{}", dbName);
+            return sourceAdapter.getMasterConnection();
+        }
         return sourceAdapter.getSlaveConnection();
     }
 
+    /**
+     * only writes open the read-your-writes window, not reads on master by a hint or in a transaction
+     */
+    @Override
+    public boolean onPrepareStatement(String sql) {
+        return getReadYourWritesMs() > 0 && SqlUtils.isUpdateSql(sql);
+    }
+
+    @Override
+    public long getReadYourWritesMs() {
+        if (empty) {
+            return 0;
+        }
+        DataSourceAdapter sourceAdapter = targetDataSources.get(getDatabaseName());
+        return sourceAdapter == null ? 0 : sourceAdapter.getReadYourWritesMs();
+    }
+
     @Override
     public Connection getMasterConnection() throws SQLException {
         if (empty) {
@@ -77,6 +118,14 @@ public class JdbcConnectionStrategy implements ConnectionStrategy {
         return targetDataSources.get(dbName).getMasterConnection();
     }
 
+    /**
+     * stop the background tasks of all adapters, e.g. replica health check
+     */
+    @Override
+    public void close() {
+        targetDataSources.values().forEach(DataSourceAdapter::close);
+    }
+
     @Override
     public String getDatabaseName() {
         String dbName = JdbcConnectionHint.getDatabaseName();
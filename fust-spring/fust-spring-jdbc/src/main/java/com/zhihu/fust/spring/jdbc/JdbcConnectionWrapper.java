@@ -6,75 +6,63 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zhihu.fust.telemetry.api.RequestDeadline;
 
 /**
  * jdbc connection
  * 1. DirectMode: get sql connection directly
  * 2. ParentMode: parent connection control the transaction, children connection execution sql
+ * <p>
+ * the parent binds a {@link JdbcConnectionContext} to the transaction resources,
+ * children created in the actual transaction attach to it.
  */
 public class JdbcConnectionWrapper extends AbstractConnectionAdapter implements Connection {
 
-    /**
-     * 通过子父连接的方式，实现多数据源的事务管理
-     */
-    static class JdbcConnectionContext {
-        JdbcConnectionWrapper parent;
-        List<JdbcConnectionWrapper> children = new ArrayList<>();
-
-        JdbcConnectionContext(JdbcConnectionWrapper parent) {
-            this.parent = parent;
-        }
-
-        void addChild(JdbcConnectionWrapper child) {
-            children.add(child);
-        }
-
-        void replay(Connection connection) {
-            parent.replayMethodsInvocation(connection);
-        }
-    }
-
-    private static final String TAG_CURRENT = "current";
     private static final Logger log = LoggerFactory.getLogger(JdbcConnectionWrapper.class);
 
     private final ConnectionStrategy strategy;
     private final boolean directMode;
-    private static final ThreadLocal<Map<String, JdbcConnectionContext>> CONTEXT = new ThreadLocal<>();
-    private String transactionName;
+    /**
+     * commit/rollback children in parallel, only used by the parent
+     */
+    private final boolean parallelCommit;
+    private final QueryTimeoutPolicy queryTimeoutPolicy;
+    /**
+     * parent: its own context, child: context of the parent, null if not in a transaction
+     */
+    private JdbcConnectionContext context;
+    /**
+     * writes of the request holding the pending write of the delegate, null if the delegate has not written
+     */
+    private JdbcWrites pendingWrites;
+    private String writeDatabase;
 
     public JdbcConnectionWrapper(ConnectionStrategy strategy, boolean directMode) {
+        this(strategy, directMode, false);
+    }
+
+    public JdbcConnectionWrapper(ConnectionStrategy strategy, boolean directMode, boolean parallelCommit) {
+        this(strategy, directMode, parallelCommit, QueryTimeoutPolicy.getDefault());
+    }
+
+    public JdbcConnectionWrapper(ConnectionStrategy strategy, boolean directMode, boolean parallelCommit,
+                                 QueryTimeoutPolicy queryTimeoutPolicy) {
         this.strategy = strategy;
         this.directMode = directMode;
-        Map<String, JdbcConnectionContext> contextMap = CONTEXT.get();
+        this.parallelCommit = parallelCommit;
+        this.queryTimeoutPolicy = queryTimeoutPolicy;
         if (!directMode) {
-            if (contextMap == null) {
-                contextMap = new HashMap<>();
-            }
-            // use a tag as transaction name
-            contextMap.put(TAG_CURRENT, new JdbcConnectionContext(this));
-            // set parent context
-            CONTEXT.set(contextMap);
+            context = JdbcConnectionContext.bind(this);
         } else {
-            transactionName = TransactionSynchronizationManager.getCurrentTransactionName();
-            log.trace("Attach transaction|{} this|{}", transactionName, this);
-            if (contextMap != null) {
-                if (contextMap.containsKey(TAG_CURRENT)) {
-                    // reset the transaction name
-                    JdbcConnectionContext context = contextMap.remove(TAG_CURRENT);
-                    context.parent.transactionName = transactionName;
-                    contextMap.put(transactionName, context);
-                    log.trace("Success set transactionName|{} for parent|{}", transactionName, context.parent);
-                }
-                // find the child connection
-                contextMap.get(transactionName).addChild(this);
+            context = JdbcConnectionContext.current();
+            if (context != null) {
+                context.addChild(this);
             }
         }
         log.trace("new JdbcConnectionWrapper this|{} strategy|{} directMode|{}", this, strategy, directMode);
@@ -86,17 +74,15 @@ public class JdbcConnectionWrapper extends AbstractConnectionAdapter implements
         try {
             if (delegate != null) {
                 delegate.commit();
-            } else if (CONTEXT.get() != null && transactionName != null) {
-                // 存在开了事务，但是没有 DAO 执行情况，此时由于没有子连接，transactionName 为 null
-                for (JdbcConnectionWrapper child : CONTEXT.get().get(transactionName).children) {
-                    child.delegate.commit();
-                }
+            } else if (!directMode && context != null) {
+                // 存在开了事务，但是没有 DAO 执行情况，此时没有子连接
+                exceptions.addAll(completeChildren(true));
             }
         } catch (final SQLException ex) {
             exceptions.add(ex);
         }
-        log.trace("commit this|{} delegate|{} autoCommit|{} exceptions|{}",
-                  this, delegate, autoCommit, exceptions);
+        completeWrites();
+        log.trace("commit this|{} delegate|{} exceptions|{}", this, delegate, exceptions);
         throwSQLExceptionIfNecessary(exceptions);
     }
 
@@ -106,65 +92,123 @@ public class JdbcConnectionWrapper extends AbstractConnectionAdapter implements
         try {
             if (delegate != null) {
                 delegate.rollback();
-            } else if (CONTEXT.get() != null && transactionName != null) {
-                String name = transactionName;
-                for (JdbcConnectionWrapper childConnection : CONTEXT.get().get(name).children) {
-                    childConnection.delegate.rollback();
-                }
+            } else if (!directMode && context != null) {
+                exceptions.addAll(completeChildren(false));
             }
         } catch (final SQLException ex) {
             exceptions.add(ex);
         }
-        log.trace("rollback this|{} delegate|{} autoCommit|{} exceptions|{}",
-                  this, delegate, autoCommit, exceptions);
+        completeWrites();
+        log.trace("rollback this|{} delegate|{} exceptions|{}", this, delegate, exceptions);
         throwSQLExceptionIfNecessary(exceptions);
     }
 
+    /**
+     * the transaction ends, writes of this connection and its children are visible on master from now on
+     */
+    private void completeWrites() {
+        completeWrite();
+        if (!directMode && context != null) {
+            for (JdbcConnectionWrapper child : context.getChildren()) {
+                child.completeWrite();
+            }
+        }
+    }
+
+    private void completeWrite() {
+        if (pendingWrites != null) {
+            pendingWrites.complete(writeDatabase, System.currentTimeMillis());
+            pendingWrites = null;
+            writeDatabase = null;
+        }
+    }
+
+    private List<SQLException> completeChildren(boolean commit) {
+        List<JdbcConnectionWrapper> children = context.getChildren();
+        List<Connection> connections = new ArrayList<>(children.size());
+        for (JdbcConnectionWrapper child : children) {
+            if (child.delegate != null) {
+                connections.add(child.delegate);
+            }
+        }
+        return parallelCommit
+               ? ChildConnectionCommitter.parallel(connections, commit)
+               : ChildConnectionCommitter.sequential(connections, commit);
+    }
+
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return getConnection(sql).prepareStatement(sql);
+        int timeout = getQueryTimeout();
+        return withQueryTimeout(getConnection(sql).prepareStatement(sql), timeout);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType,
                                               int resultSetConcurrency) throws SQLException {
-        return getConnection(sql).prepareStatement(sql, resultSetType, resultSetConcurrency);
+        int timeout = getQueryTimeout();
+        return withQueryTimeout(getConnection(sql).prepareStatement(sql, resultSetType, resultSetConcurrency), timeout);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
                                               int resultSetHoldability) throws SQLException {
-        return getConnection(sql).prepareStatement(sql, resultSetType, resultSetConcurrency,
-                                                   resultSetHoldability);
+        int timeout = getQueryTimeout();
+        return withQueryTimeout(getConnection(sql).prepareStatement(sql, resultSetType, resultSetConcurrency,
+                                                                    resultSetHoldability), timeout);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-        return getConnection(sql).prepareStatement(sql, autoGeneratedKeys);
+        int timeout = getQueryTimeout();
+        return withQueryTimeout(getConnection(sql).prepareStatement(sql, autoGeneratedKeys), timeout);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-        return getConnection(sql).prepareStatement(sql, columnIndexes);
+        int timeout = getQueryTimeout();
+        return withQueryTimeout(getConnection(sql).prepareStatement(sql, columnIndexes), timeout);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-        return getConnection(sql).prepareStatement(sql, columnNames);
+        int timeout = getQueryTimeout();
+        return withQueryTimeout(getConnection(sql).prepareStatement(sql, columnNames), timeout);
+    }
+
+    /**
+     * resolved before the connection is borrowed, a request out of budget does not touch the pool
+     */
+    private int getQueryTimeout() throws SQLException {
+        return queryTimeoutPolicy.getTimeoutSeconds(strategy.getDatabaseName());
+    }
+
+    /**
+     * statements without any timeout are returned as is, otherwise the timeout is applied again at execute time,
+     * so the time spent between prepare and execute counts and a later setQueryTimeout can not extend it
+     */
+    private PreparedStatement withQueryTimeout(PreparedStatement statement, int seconds) throws SQLException {
+        if (seconds <= 0) {
+            return statement;
+        }
+        return DeadlineStatementHandler.wrap(statement, queryTimeoutPolicy, strategy.getDatabaseName(),
+                                             RequestDeadline.current(), seconds);
     }
 
     private Connection getConnection(String sql) throws SQLException {
         if (delegate == null) {
             //get the real connection
             delegate = strategy.getConnection(sql);
-            if (directMode && CONTEXT.get() != null) {
+            if (context != null) {
                 // use parent connection info
-                String name = transactionName;
-                CONTEXT.get().get(name).replay(delegate);
+                context.getParent().applyState(delegate);
             } else {
-                replayMethodsInvocation(delegate);
+                applyState(delegate);
             }
         }
+        if (strategy.onPrepareStatement(sql) && pendingWrites == null) {
+            writeDatabase = strategy.getDatabaseName();
+            pendingWrites = JdbcConnectionHint.beginWrite(writeDatabase, strategy.getReadYourWritesMs());
+        }
         log.trace("getConnection this|{} cur|{} strategy|{} child|{} sql|{}",
                   this, delegate, strategy, directMode, sql);
         return delegate;
@@ -181,36 +225,28 @@ public class JdbcConnectionWrapper extends AbstractConnectionAdapter implements
 
     @Override
     public void close() throws SQLException {
-        String name = transactionName;
         // 存在父连接，关闭动作由父连接操作。
         // 回滚等操作会在父连接代理给子连接，如果子连接已关闭，导致操作无法执行。
-        if (name != null && CONTEXT.get().get(name) != null && directMode) {
+        if (directMode && context != null) {
             return;
         }
 
         log.trace("close connection this|{} cur|{} strategy|{}", this, delegate, strategy);
 
         List<SQLException> exceptions = new LinkedList<>();
-        if (CONTEXT.get() != null && name != null) {
-            for (JdbcConnectionWrapper connection : CONTEXT.get().get(name).children) {
+        if (context != null) {
+            for (JdbcConnectionWrapper connection : context.getChildren()) {
+                connection.completeWrite();
                 exceptions.addAll(connection.closeConnection());
             }
+            // 清理父连接的上下文
+            context.unbind();
+            context = null;
         }
 
+        completeWrite();
         JdbcConnectionHint.clear();
 
-        // 清理父连接的上下文
-        if (CONTEXT.get() != null) {
-            if (name == null) {
-                name = TAG_CURRENT;
-            }
-            CONTEXT.get().remove(name);
-            if (CONTEXT.get().isEmpty()) {
-                log.trace("all transactions done!");
-                CONTEXT.remove();
-            }
-        }
-
         // 始终释放自己，对于直连模式是必须的
         closeConnection();
         throwSQLExceptionIfNecessary(exceptions);
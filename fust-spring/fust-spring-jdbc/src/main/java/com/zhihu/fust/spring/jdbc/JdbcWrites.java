@@ -0,0 +1,76 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * last write time of each database in a request, or on a thread out of any request.
+ * a write is pending from the first write statement of a connection until the connection commits or closes,
+ * replicas can not have it before that.
+ */
+final class JdbcWrites {
+    /**
+     * attribute name in {@link com.zhihu.fust.telemetry.api.ServiceEntry}
+     */
+    static final String ATTRIBUTE = "jdbc-writes";
+
+    /**
+     * database -> mark, guarded by this
+     */
+    private final Map<String, Mark> marks = new HashMap<>(4);
+
+    /**
+     * a connection starts writing the database
+     *
+     * @param readYourWritesMs reads of the request go to master within this window after the write
+     */
+    synchronized void begin(String databaseName, long readYourWritesMs) {
+        Mark mark = marks.computeIfAbsent(databaseName, name -> new Mark());
+        mark.pending++;
+        mark.readYourWritesMs = readYourWritesMs;
+    }
+
+    /**
+     * the connection of a {@link #begin(String, long)} commits or closes, the write is visible on master
+     */
+    synchronized void complete(String databaseName, long nowMillis) {
+        Mark mark = marks.get(databaseName);
+        if (mark == null || mark.pending == 0) {
+            return;
+        }
+        mark.pending--;
+        mark.lastMillis = nowMillis;
+    }
+
+    /**
+     * @return last write time in millis of the database, 0 if no write, {@link Long#MAX_VALUE} if still writing
+     */
+    synchronized long getLastWriteMillis(String databaseName) {
+        Mark mark = marks.get(databaseName);
+        if (mark == null) {
+            return 0;
+        }
+        return mark.pending > 0 ? Long.MAX_VALUE : mark.lastMillis;
+    }
+
+    /**
+     * @return true if a write is pending or its read-your-writes window is not over
+     */
+    synchronized boolean hasWrites(long nowMillis) {
+        for (Mark mark : marks.values()) {
+            if (mark.pending > 0 || nowMillis - mark.lastMillis <= mark.readYourWritesMs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Mark {
+        /**
+         * connections writing the database and not committed or closed yet
+         */
+        private int pending;
+        private long lastMillis;
+        private long readYourWritesMs;
+    }
+}
@@ -0,0 +1,103 @@
+package com.zhihu.fust.spring.jdbc;
+
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import com.zhihu.fust.commons.lang.PropertyUtils;
+import com.zhihu.fust.telemetry.api.MeterClient;
+import com.zhihu.fust.telemetry.api.RequestDeadline;
+
+/**
+ * derive the query timeout of a statement from the remaining {@link RequestDeadline} of the request
+ * <ul>
+ *     <li>the remaining time is rounded up to seconds, then clamped to [minSeconds, maxSeconds]</li>
+ *     <li>without a deadline, maxSeconds is used, 0 keeps the driver default (no timeout)</li>
+ *     <li>the deadline is already exceeded when the statement is prepared,
+ *     the query is rejected before a connection is borrowed</li>
+ *     <li>the timeout is derived again right before every execute, see {@link DeadlineStatementHandler},
+ *     a deadline exceeded between prepare and execute rejects the execute on the borrowed connection</li>
+ * </ul>
+ * both rejections count in db.query.deadline.rejected.count. statements are only created by prepareStatement,
+ * the routing connection does not support createStatement and prepareCall, so no statement skips the policy.
+ * the default policy reads JDBC_QUERY_TIMEOUT_MIN_SECONDS (default 1) and JDBC_QUERY_TIMEOUT_MAX_SECONDS (default 0)
+ * from system properties or environment variables.
+ */
+public final class QueryTimeoutPolicy {
+    public static final String MIN_SECONDS = "JDBC_QUERY_TIMEOUT_MIN_SECONDS";
+    public static final String MAX_SECONDS = "JDBC_QUERY_TIMEOUT_MAX_SECONDS";
+
+    private static final String REJECTED_COUNT = "db.query.deadline.rejected.count";
+    private static final MeterClient METER_CLIENT = MeterClient.getMeterClient();
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final QueryTimeoutPolicy DEFAULT =
+            new QueryTimeoutPolicy(PropertyUtils.getIntProperty(MIN_SECONDS).orElse(1),
+                                   PropertyUtils.getIntProperty(MAX_SECONDS).orElse(0));
+
+    private final int minSeconds;
+    private final int maxSeconds;
+
+    /**
+     * @param minSeconds floor of the timeout, at least 1, jdbc treats 0 as no timeout
+     * @param maxSeconds ceiling of the timeout, 0 if unlimited
+     */
+    public QueryTimeoutPolicy(int minSeconds, int maxSeconds) {
+        if (minSeconds < 1) {
+            throw new IllegalArgumentException("minSeconds must be positive|" + minSeconds);
+        }
+        if (maxSeconds < 0 || maxSeconds > 0 && maxSeconds < minSeconds) {
+            throw new IllegalArgumentException("maxSeconds must be 0 or not less than minSeconds|" + maxSeconds);
+        }
+        this.minSeconds = minSeconds;
+        this.maxSeconds = maxSeconds;
+    }
+
+    public static QueryTimeoutPolicy getDefault() {
+        return DEFAULT;
+    }
+
+    public int getMinSeconds() {
+        return minSeconds;
+    }
+
+    public int getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    /**
+     * @param db database name, tag of the rejected count
+     * @return query timeout in seconds, 0 to keep the driver default
+     * @throws SQLTimeoutException the deadline of the request is exceeded
+     */
+    int getTimeoutSeconds(String db) throws SQLTimeoutException {
+        return getTimeoutSeconds(db, RequestDeadline.current());
+    }
+
+    /**
+     * @param deadline deadline of the request, null if none
+     */
+    int getTimeoutSeconds(String db, RequestDeadline deadline) throws SQLTimeoutException {
+        if (deadline == null) {
+            return maxSeconds;
+        }
+        return getTimeoutSeconds(db, deadline.remainingNanos());
+    }
+
+    int getTimeoutSeconds(String db, long remainingNanos) throws SQLTimeoutException {
+        if (remainingNanos <= 0) {
+            METER_CLIENT.increment(REJECTED_COUNT, "db:" + db);
+            throw new SQLTimeoutException("request deadline exceeded|" + db);
+        }
+        long seconds = remainingNanos / NANOS_PER_SECOND + (remainingNanos % NANOS_PER_SECOND == 0 ? 0 : 1);
+        seconds = Math.max(minSeconds, seconds);
+        if (maxSeconds > 0) {
+            seconds = Math.min(seconds, maxSeconds);
+        }
+        return (int) Math.min(seconds, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryTimeoutPolicy{minSeconds=" + minSeconds + ", maxSeconds=" + maxSeconds + '}';
+    }
+}
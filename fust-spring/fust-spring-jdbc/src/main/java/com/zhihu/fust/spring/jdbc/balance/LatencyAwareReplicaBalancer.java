@@ -0,0 +1,13 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+/**
+ * power of two choices on the moving average of connection acquire latency,
+ * weighted by pool load, a slow or overloaded replica receives less reads.
+ * the average decays while the replica is idle, see {@link ReplicaStats}, so one slow sample does not starve it
+ */
+public class LatencyAwareReplicaBalancer extends PowerOfTwoChoicesReplicaBalancer {
+    @Override
+    protected double cost(Replica replica) {
+        return replica.getStats().getAcquireLatencyEwma() * (replica.getLoad() + 1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * pick two random replicas and use the one with less load
+ */
+public class PowerOfTwoChoicesReplicaBalancer implements ReplicaBalancer {
+    @Override
+    public int select(List<Replica> replicas) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = replicas.size();
+        int first = random.nextInt(size);
+        // second is a different replica
+        int second = (first + 1 + random.nextInt(size - 1)) % size;
+        return cost(replicas.get(second)) < cost(replicas.get(first)) ? second : first;
+    }
+
+    protected double cost(Replica replica) {
+        return replica.getLoad();
+    }
+}
@@ -0,0 +1,14 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * uniform random, the default balancer
+ */
+public class RandomReplicaBalancer implements ReplicaBalancer {
+    @Override
+    public int select(List<Replica> replicas) {
+        return ThreadLocalRandom.current().nextInt(replicas.size());
+    }
+}
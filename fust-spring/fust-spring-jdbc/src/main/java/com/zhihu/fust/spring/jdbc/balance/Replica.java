@@ -0,0 +1,105 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zhihu.fust.spring.jdbc.pool.PoolMetrics;
+
+/**
+ * replica data source with its weight, runtime stats and health
+ */
+public final class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    private final int weight;
+    private final ReplicaStats stats;
+    private final ReplicaHealth health;
+    private final PoolMetrics poolMetrics;
+    /**
+     * the replica has applied all writes committed on master before this time, sampled by {@link ReplicationLagSampler}
+     */
+    private volatile long replicatedUntilMillis;
+
+    public Replica(String name, DataSource dataSource, int weight) {
+        this(name, dataSource, weight, ReplicaHealth.defaults());
+    }
+
+    public Replica(String name, DataSource dataSource, int weight, ReplicaHealth health) {
+        this(name, dataSource, weight, health, new ReplicaStats());
+    }
+
+    private Replica(String name, DataSource dataSource, int weight, ReplicaHealth health, ReplicaStats stats) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("replica weight must >= 0, replica|" + name);
+        }
+        this.name = name;
+        this.dataSource = dataSource;
+        this.weight = weight;
+        this.health = health;
+        this.stats = stats;
+        this.poolMetrics = PoolMetrics.of(dataSource);
+    }
+
+    /**
+     * @return the same replica with another weight, health, stats and replication progress are kept
+     */
+    public Replica withWeight(int weight) {
+        Replica replica = new Replica(name, dataSource, weight, health, stats);
+        replica.replicatedUntilMillis = replicatedUntilMillis;
+        return replica;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public ReplicaStats getStats() {
+        return stats;
+    }
+
+    public ReplicaHealth getHealth() {
+        return health;
+    }
+
+    public long getReplicatedUntilMillis() {
+        return replicatedUntilMillis;
+    }
+
+    public void setReplicatedUntilMillis(long replicatedUntilMillis) {
+        this.replicatedUntilMillis = replicatedUntilMillis;
+    }
+
+    /**
+     * active connections + threads waiting for a connection, 0 if the pool is not hikari
+     */
+    public int getLoad() {
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            if (pool != null) {
+                return pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * pool saturation of the last metrics report, see {@link PoolMetrics#getSaturation()}, 0 if the pool is not tracked
+     */
+    public double getSaturation() {
+        return poolMetrics == null ? 0 : poolMetrics.getSaturation();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
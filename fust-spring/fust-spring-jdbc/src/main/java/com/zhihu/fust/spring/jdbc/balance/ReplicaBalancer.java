@@ -0,0 +1,14 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.util.List;
+
+/**
+ * select a replica for a read connection
+ */
+public interface ReplicaBalancer {
+    /**
+     * @param replicas immutable replica list, at least 2 replicas
+     * @return index of the selected replica
+     */
+    int select(List<Replica> replicas);
+}
@@ -0,0 +1,34 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import com.zhihu.fust.commons.lang.StringUtils;
+
+/**
+ * create replica balancer by name configured in {@code DatabaseProperties#replicaBalancer}
+ */
+public final class ReplicaBalancers {
+    public static final String RANDOM = "random";
+    public static final String WEIGHTED_ROUND_ROBIN = "weighted-round-robin";
+    public static final String POWER_OF_TWO_CHOICES = "p2c";
+    public static final String LATENCY_AWARE = "ewma";
+
+    private ReplicaBalancers() {
+    }
+
+    public static ReplicaBalancer create(String name) {
+        if (StringUtils.isEmpty(name)) {
+            return new RandomReplicaBalancer();
+        }
+        switch (name) {
+            case RANDOM:
+                return new RandomReplicaBalancer();
+            case WEIGHTED_ROUND_ROBIN:
+                return new WeightedRoundRobinReplicaBalancer();
+            case POWER_OF_TWO_CHOICES:
+                return new PowerOfTwoChoicesReplicaBalancer();
+            case LATENCY_AWARE:
+                return new LatencyAwareReplicaBalancer();
+            default:
+                throw new IllegalArgumentException("unknown replica balancer|" + name);
+        }
+    }
+}
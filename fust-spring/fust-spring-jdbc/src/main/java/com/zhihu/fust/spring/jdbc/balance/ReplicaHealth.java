@@ -0,0 +1,145 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * circuit breaker of a replica
+ * <p>
+ * the replica is ejected after {@code failureThreshold} consecutive acquire failures (timeouts included),
+ * it gets no read traffic until a background probe succeeds. the first probe runs after {@code ejectMs},
+ * every failed probe doubles the window up to {@code maxEjectMs}.
+ */
+public final class ReplicaHealth {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_EJECT_MS = 1_000;
+    public static final long DEFAULT_MAX_EJECT_MS = 30_000;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile int failureThreshold;
+    private volatile boolean ejected;
+    /**
+     * the checker serving the replica, replaced when a reload creates a new checker for the kept replica
+     */
+    private volatile ReplicaHealthChecker owner;
+    /**
+     * guarded by this
+     */
+    private long ejectNanos;
+    private long maxEjectNanos;
+    private long nextProbeNanos;
+    private long currentEjectNanos;
+
+    /**
+     * @param failureThreshold consecutive failures to eject the replica, <= 0 disables ejection
+     * @param ejectMs          backoff window before the first probe
+     * @param maxEjectMs       max backoff window
+     */
+    public ReplicaHealth(int failureThreshold, long ejectMs, long maxEjectMs) {
+        configure(failureThreshold, ejectMs, maxEjectMs);
+    }
+
+    public static ReplicaHealth defaults() {
+        return new ReplicaHealth(DEFAULT_FAILURE_THRESHOLD, DEFAULT_EJECT_MS, DEFAULT_MAX_EJECT_MS);
+    }
+
+    /**
+     * change the thresholds, the current ejection is kept, its next window is capped by the new max
+     */
+    public synchronized void configure(int failureThreshold, long ejectMs, long maxEjectMs) {
+        if (ejectMs <= 0 || maxEjectMs < ejectMs) {
+            throw new IllegalArgumentException("invalid eject window|" + ejectMs + "," + maxEjectMs);
+        }
+        this.failureThreshold = failureThreshold;
+        this.ejectNanos = TimeUnit.MILLISECONDS.toNanos(ejectMs);
+        this.maxEjectNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectMs);
+        this.currentEjectNanos = Math.min(currentEjectNanos, maxEjectNanos);
+    }
+
+    ReplicaHealthChecker getOwner() {
+        return owner;
+    }
+
+    void setOwner(ReplicaHealthChecker owner) {
+        this.owner = owner;
+    }
+
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * @return true if the replica is ejected by this failure
+     */
+    public boolean recordFailure(long nowNanos) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failureThreshold <= 0 || failures < failureThreshold || ejected) {
+            return false;
+        }
+        synchronized (this) {
+            if (ejected) {
+                return false;
+            }
+            currentEjectNanos = ejectNanos;
+            nextProbeNanos = nowNanos + currentEjectNanos;
+            ejected = true;
+            return true;
+        }
+    }
+
+    public void recordSuccess() {
+        // avoid writing the shared counter on the hot path
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * claim the probe of an ejected replica whose backoff window has passed,
+     * the caller must call {@link #completeProbe(boolean, long)} after a successful claim
+     */
+    public boolean tryStartProbe(long nowNanos) {
+        if (!ejected) {
+            return false;
+        }
+        synchronized (this) {
+            if (nowNanos - nextProbeNanos < 0) {
+                return false;
+            }
+        }
+        return probing.compareAndSet(false, true);
+    }
+
+    /**
+     * @return true if the replica is reinstated
+     */
+    public boolean completeProbe(boolean success, long nowNanos) {
+        try {
+            synchronized (this) {
+                if (success) {
+                    consecutiveFailures.set(0);
+                    ejected = false;
+                    return true;
+                }
+                currentEjectNanos = Math.min(currentEjectNanos * 2, maxEjectNanos);
+                nextProbeNanos = nowNanos + currentEjectNanos;
+                return false;
+            }
+        } finally {
+            probing.set(false);
+        }
+    }
+
+    /**
+     * give up a claimed probe without changing the state, it will be retried later
+     */
+    public void abortProbe() {
+        probing.set(false);
+    }
+}
@@ -0,0 +1,166 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+import com.zhihu.fust.telemetry.api.MeterClient;
+
+/**
+ * track the health of the replicas of a database, keep the list of replicas which can serve reads
+ * and probe the ejected replicas in background
+ * <p>
+ * metrics:
+ * <ul>
+ *     <li>db.replica.ejected: gauge, 1 if the replica is ejected, tags db, replica</li>
+ *     <li>db.replica.eject.count: replica ejected, tags db, replica</li>
+ *     <li>db.replica.reinstate.count: replica back to service after a successful probe, tags db, replica</li>
+ *     <li>db.replica.fallback.count: read routed to master because no replica is available, tags db</li>
+ * </ul>
+ */
+public final class ReplicaHealthChecker implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthChecker.class);
+
+    private static final long CHECK_INTERVAL_MS = 1_000;
+    private static final int PROBE_VALID_TIMEOUT_SECONDS = 1;
+    private static final int MAX_CONCURRENT_PROBES = 8;
+
+    private static final String EJECTED = "db.replica.ejected";
+    private static final String EJECT_COUNT = "db.replica.eject.count";
+    private static final String REINSTATE_COUNT = "db.replica.reinstate.count";
+    private static final String FALLBACK_COUNT = "db.replica.fallback.count";
+    private static final MeterClient METER_CLIENT = MeterClient.getMeterClient();
+
+    private static final Set<ReplicaHealthChecker> CHECKERS = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(NamingPatternThreadFactory.of("replica-health-check-%d", true));
+    /**
+     * a probe may block for the whole connection timeout, run them outside the scheduler
+     */
+    private static final ExecutorService PROBE_EXECUTOR =
+            new ThreadPoolExecutor(0, MAX_CONCURRENT_PROBES, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                                   NamingPatternThreadFactory.of("replica-health-probe-%d", true));
+
+    static {
+        SCHEDULER.scheduleWithFixedDelay(ReplicaHealthChecker::checkAll,
+                                         CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private final String dbName;
+    private final List<Replica> replicas;
+    private volatile List<Replica> available;
+
+    public ReplicaHealthChecker(String dbName, List<Replica> replicas) {
+        this.dbName = dbName;
+        this.replicas = replicas;
+        this.available = replicas;
+        if (!replicas.isEmpty()) {
+            // take over before the refresh, a probe of the old checker finishing later refreshes this one
+            for (Replica replica : replicas) {
+                replica.getHealth().setOwner(this);
+            }
+            // replicas kept by a reload may be ejected already
+            refresh();
+            CHECKERS.add(this);
+        }
+    }
+
+    /**
+     * @return replicas not ejected, the same list instance is returned until the health of a replica changes
+     */
+    public List<Replica> getAvailable() {
+        return available;
+    }
+
+    public void recordSuccess(Replica replica) {
+        replica.getHealth().recordSuccess();
+    }
+
+    public void recordFailure(Replica replica, SQLException cause) {
+        if (replica.getHealth().recordFailure(System.nanoTime())) {
+            log.warn("replica ejected, db|{} replica|{} error|{}", dbName, replica.getName(), cause.getMessage());
+            METER_CLIENT.increment(EJECT_COUNT, tags(replica));
+            refresh();
+        }
+    }
+
+    public void recordFallback() {
+        METER_CLIENT.increment(FALLBACK_COUNT, "db:" + dbName);
+    }
+
+    @Override
+    public void close() {
+        CHECKERS.remove(this);
+    }
+
+    private synchronized void refresh() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (!replica.getHealth().isEjected()) {
+                healthy.add(replica);
+            }
+        }
+        // keep the original instance when all are healthy, balancers cache state per list
+        available = healthy.size() == replicas.size() ? replicas : Collections.unmodifiableList(healthy);
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Replica replica : replicas) {
+            ReplicaHealth health = replica.getHealth();
+            METER_CLIENT.recordGaugeValue(EJECTED, health.isEjected() ? 1L : 0L, tags(replica));
+            if (health.tryStartProbe(now)) {
+                try {
+                    PROBE_EXECUTOR.execute(() -> probe(replica));
+                } catch (RejectedExecutionException e) {
+                    // too many probes in flight, retry on next check
+                    health.abortProbe();
+                }
+            }
+        }
+    }
+
+    private void probe(Replica replica) {
+        boolean success = false;
+        try (Connection connection = replica.getDataSource().getConnection()) {
+            success = connection.isValid(PROBE_VALID_TIMEOUT_SECONDS);
+        } catch (SQLException | RuntimeException e) {
+            log.debug("replica probe failed, db|{} replica|{} error|{}", dbName, replica.getName(), e.getMessage());
+        }
+        if (replica.getHealth().completeProbe(success, System.nanoTime())) {
+            log.info("replica reinstated, db|{} replica|{}", dbName, replica.getName());
+            METER_CLIENT.increment(REINSTATE_COUNT, tags(replica));
+            // the probe may be started by a checker replaced by a reload since
+            replica.getHealth().getOwner().refresh();
+        }
+    }
+
+    private String[] tags(Replica replica) {
+        return new String[]{"db:" + dbName, "replica:" + replica.getName()};
+    }
+
+    private static void checkAll() {
+        for (ReplicaHealthChecker checker : CHECKERS) {
+            try {
+                checker.check();
+            } catch (RuntimeException e) {
+                log.warn("replica health check error, db|{}", checker.dbName, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * connection acquire stats of a replica
+ * counters are striped, so recording on the acquire path does not contend between threads
+ * <p>
+ * the moving average decays by half every {@link #DECAY_HALF_LIFE_NANOS} without a sample, a replica that is
+ * not picked because of a slow sample becomes cheap again, receives reads and gets fresh samples
+ */
+public final class ReplicaStats {
+    /**
+     * weight of the latest sample in the moving average
+     */
+    private static final double EWMA_ALPHA = 0.2;
+    static final long DECAY_HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * moving average and the time of its last sample, swapped together so a decay never reads
+     * the average of one sample with the time of another
+     */
+    private static final class Sample {
+        private final double ewma;
+        private final long nanos;
+
+        Sample(double ewma, long nanos) {
+            this.ewma = ewma;
+            this.nanos = nanos;
+        }
+
+        double decay(long nowNanos) {
+            long idleNanos = nowNanos - nanos;
+            if (idleNanos <= 0) {
+                return ewma;
+            }
+            return ewma * Math.pow(0.5, (double) idleNanos / DECAY_HALF_LIFE_NANOS);
+        }
+    }
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    /**
+     * null before the first sample
+     */
+    private final AtomicReference<Sample> sample = new AtomicReference<>();
+
+    /**
+     * record a connection acquire
+     *
+     * @param nanos   time spent on getConnection, a failed acquire is usually the connection timeout
+     * @param success whether a connection is returned
+     */
+    public void recordAcquire(long nanos, boolean success) {
+        recordAcquire(nanos, success, System.nanoTime());
+    }
+
+    void recordAcquire(long nanos, boolean success, long nowNanos) {
+        acquireCount.increment();
+        acquireNanos.add(nanos);
+        if (!success) {
+            failureCount.increment();
+        }
+        Sample prev;
+        Sample next;
+        do {
+            prev = sample.get();
+            next = prev == null
+                    ? new Sample(nanos, nowNanos)
+                    // a sample taken before the last one does not move the time back
+                    : new Sample(prev.decay(nowNanos) * (1 - EWMA_ALPHA) + nanos * EWMA_ALPHA,
+                                 Math.max(prev.nanos, nowNanos));
+        } while (!sample.compareAndSet(prev, next));
+    }
+
+    /**
+     * @return moving average of acquire latency in nanos, 0 if no sample yet
+     */
+    public double getAcquireLatencyEwma() {
+        return getAcquireLatencyEwma(System.nanoTime());
+    }
+
+    double getAcquireLatencyEwma(long nowNanos) {
+        Sample current = sample.get();
+        return current == null ? 0 : current.decay(nowNanos);
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public long getAcquireNanos() {
+        return acquireNanos.sum();
+    }
+}
@@ -0,0 +1,154 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zhihu.fust.commons.lang.StringUtils;
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+import com.zhihu.fust.telemetry.api.MeterClient;
+
+/**
+ * sample the replication lag of replicas in background and update {@link Replica#getReplicatedUntilMillis()}
+ * <p>
+ * by default the lag is read from {@code SHOW REPLICA STATUS} (or {@code SHOW SLAVE STATUS} before mysql 8.0.22),
+ * it has second resolution. a custom lag query, e.g. on a heartbeat table, should return the lag in millis
+ * as the first column of the first row.
+ * <p>
+ * metrics: db.replica.lag, gauge in millis, tags db, replica
+ */
+public final class ReplicationLagSampler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLagSampler.class);
+
+    private static final int QUERY_TIMEOUT_SECONDS = 1;
+    private static final int ER_PARSE_ERROR = 1064;
+    private static final String SYNTAX_ERROR_STATE = "42000";
+    private static final String LAG = "db.replica.lag";
+    private static final MeterClient METER_CLIENT = MeterClient.getMeterClient();
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(NamingPatternThreadFactory.of("replica-lag-sampler-%d", true));
+
+    private final String dbName;
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private volatile boolean legacyStatus;
+    private ScheduledFuture<?> future;
+
+    private ReplicationLagSampler(String dbName, List<Replica> replicas, String lagQuery) {
+        this.dbName = dbName;
+        this.replicas = replicas;
+        this.lagQuery = StringUtils.isEmpty(lagQuery) ? null : lagQuery;
+    }
+
+    /**
+     * @param lagQuery   custom query returning the lag in millis, null to use replica status
+     * @param intervalMs sample interval
+     */
+    public static ReplicationLagSampler start(String dbName, List<Replica> replicas, String lagQuery, long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("sample interval must > 0|" + intervalMs);
+        }
+        ReplicationLagSampler sampler = new ReplicationLagSampler(dbName, replicas, lagQuery);
+        sampler.future = SCHEDULER.scheduleWithFixedDelay(sampler::sampleAll, 0, intervalMs, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+
+    @Override
+    public void close() {
+        future.cancel(false);
+    }
+
+    void sampleAll() {
+        for (Replica replica : replicas) {
+            // an ejected replica serves no read, and would block the sampler until connection timeout
+            if (replica.getHealth().isEjected()) {
+                continue;
+            }
+            try {
+                sample(replica);
+            } catch (SQLException | RuntimeException e) {
+                log.debug("sample replication lag failed, db|{} replica|{} error|{}",
+                          dbName, replica.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private void sample(Replica replica) throws SQLException {
+        long start = System.currentTimeMillis();
+        long lagMillis = queryLagMillis(replica);
+        if (lagMillis < 0) {
+            // replication is not running, keep the last value so it only gets older
+            log.debug("replication is not running, db|{} replica|{}", dbName, replica.getName());
+            return;
+        }
+        replica.setReplicatedUntilMillis(start - lagMillis);
+        METER_CLIENT.recordGaugeValue(LAG, lagMillis, "db:" + dbName, "replica:" + replica.getName());
+    }
+
+    /**
+     * @return lag in millis, -1 if unknown
+     */
+    private long queryLagMillis(Replica replica) throws SQLException {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+            if (lagQuery != null) {
+                try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                    if (!rs.next()) {
+                        return -1;
+                    }
+                    long lag = rs.getLong(1);
+                    return rs.wasNull() ? -1 : Math.max(lag, 0);
+                }
+            }
+            if (!legacyStatus) {
+                try {
+                    return queryStatusLag(statement, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+                } catch (SQLException e) {
+                    if (!isSyntaxError(e)) {
+                        // e.g. a timeout or a lost connection, retry on next sample
+                        throw e;
+                    }
+                    log.info("SHOW REPLICA STATUS not supported, use SHOW SLAVE STATUS, db|{}", dbName);
+                    legacyStatus = true;
+                }
+            }
+            return queryStatusLag(statement, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+        }
+    }
+
+    /**
+     * MySQL before 8.0.22 rejects SHOW REPLICA STATUS as a syntax error. the sql state is only checked
+     * without a vendor code, 42000 also covers other errors like a missing privilege
+     */
+    static boolean isSyntaxError(SQLException e) {
+        if (e.getErrorCode() != 0) {
+            return e.getErrorCode() == ER_PARSE_ERROR;
+        }
+        return SYNTAX_ERROR_STATE.equals(e.getSQLState());
+    }
+
+    private static long queryStatusLag(Statement statement, String sql, String column) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            if (!rs.next()) {
+                // not a replica, e.g. the master is configured as a replica in test environment
+                return 0;
+            }
+            long seconds = rs.getLong(column);
+            if (rs.wasNull()) {
+                return -1;
+            }
+            // second resolution, 0 means less than one second
+            return TimeUnit.SECONDS.toMillis(seconds + 1);
+        }
+    }
+}
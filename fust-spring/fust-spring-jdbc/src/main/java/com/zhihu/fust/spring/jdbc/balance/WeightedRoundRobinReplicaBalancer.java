@@ -0,0 +1,97 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * smooth weighted round-robin by {@link Replica#getWeight()}
+ * the schedule is computed once per replica list, selecting is a single atomic increment
+ */
+public class WeightedRoundRobinReplicaBalancer implements ReplicaBalancer {
+    /**
+     * co-prime large weights are scaled down to this schedule length, e.g. {1009, 1013}
+     */
+    static final int MAX_SCHEDULE_LENGTH = 1024;
+
+    private static final class Schedule {
+        private final List<Replica> replicas;
+        private final int[] indexes;
+
+        Schedule(List<Replica> replicas, int[] indexes) {
+            this.replicas = replicas;
+            this.indexes = indexes;
+        }
+    }
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private volatile Schedule schedule;
+
+    @Override
+    public int select(List<Replica> replicas) {
+        Schedule current = schedule;
+        if (current == null || current.replicas != replicas) {
+            current = new Schedule(replicas, buildSchedule(replicas));
+            schedule = current;
+        }
+        int[] indexes = current.indexes;
+        return indexes[(counter.getAndIncrement() & Integer.MAX_VALUE) % indexes.length];
+    }
+
+    /**
+     * nginx smooth weighted round-robin, e.g. weights {5, 1, 1} -> a a b a c a a
+     */
+    static int[] buildSchedule(List<Replica> replicas) {
+        int size = replicas.size();
+        int[] weights = new int[size];
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = replicas.get(i).getWeight();
+            total += weights[i];
+        }
+        if (total == 0) {
+            // all replicas are drained, treat them equally
+            for (int i = 0; i < size; i++) {
+                weights[i] = 1;
+            }
+            total = size;
+        }
+        if (total > MAX_SCHEDULE_LENGTH) {
+            // keep the ratio approximately, a replica with weight keeps at least 1
+            long sum = total;
+            total = 0;
+            for (int i = 0; i < size; i++) {
+                if (weights[i] > 0) {
+                    weights[i] = (int) Math.max(1, weights[i] * (long) MAX_SCHEDULE_LENGTH / sum);
+                    total += weights[i];
+                }
+            }
+        }
+        // keep the schedule short, e.g. {100, 50} -> {2, 1}
+        int divisor = 0;
+        for (int weight : weights) {
+            divisor = gcd(divisor, weight);
+        }
+        total /= divisor;
+        for (int i = 0; i < size; i++) {
+            weights[i] /= divisor;
+        }
+        int[] current = new int[size];
+        int[] indexes = new int[total];
+        for (int n = 0; n < total; n++) {
+            int best = -1;
+            for (int i = 0; i < size; i++) {
+                current[i] += weights[i];
+                if (weights[i] > 0 && (best < 0 || current[i] > current[best])) {
+                    best = i;
+                }
+            }
+            current[best] -= total;
+            indexes[n] = best;
+        }
+        return indexes;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
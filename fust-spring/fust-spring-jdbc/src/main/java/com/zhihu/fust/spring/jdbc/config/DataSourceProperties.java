@@ -18,6 +18,11 @@ public class DataSourceProperties {
     private String username;
     private String password;
 
+    /**
+     * replica weight, used by weighted-round-robin balancer, 0 means no reads
+     */
+    private int weight = 1;
+
     public DataSourceProperties() {
         // default is master
         this.type = MASTER;
@@ -66,4 +71,12 @@ public class DataSourceProperties {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
 }
@@ -2,6 +2,7 @@ package com.zhihu.fust.spring.jdbc.config;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.zhihu.fust.spring.jdbc.balance.ReplicaHealth;
 import org.springframework.util.CollectionUtils;
 
 import java.util.List;
@@ -36,6 +37,55 @@ public class DatabaseProperties {
      */
     private boolean masterOnly;
 
+    /**
+     * do not wait for the first connection on startup, connections are created in background
+     */
+    private boolean asyncInit;
+
+    /**
+     * performance profile: oltp-default(default), batch-write, large-read, see {@link PerformanceProfile}
+     */
+    private String profile;
+
+    /**
+     * replica balancer: random(default), weighted-round-robin, p2c, ewma
+     */
+    private String replicaBalancer;
+
+    /**
+     * consecutive acquire failures to eject a replica, 0 disables ejection
+     */
+    private int replicaFailureThreshold = ReplicaHealth.DEFAULT_FAILURE_THRESHOLD;
+
+    /**
+     * backoff window before probing an ejected replica, doubled after each failed probe
+     */
+    private long replicaEjectMs = ReplicaHealth.DEFAULT_EJECT_MS;
+
+    private long replicaMaxEjectMs = ReplicaHealth.DEFAULT_MAX_EJECT_MS;
+
+    /**
+     * route reads to master when all replicas are ejected
+     */
+    private boolean replicaFallbackToMaster = true;
+
+    /**
+     * read-your-writes window, reads after a write on the same thread go to master within this window
+     * unless the replicas have caught up, 0 disables it
+     */
+    private long readYourWritesMs;
+
+    /**
+     * replication lag sample interval, 0 disables sampling and reads use master for the whole window
+     */
+    private long replicaLagSampleMs = 1_000;
+
+    /**
+     * custom replication lag query returning the lag in millis, e.g. from a heartbeat table,
+     * SHOW REPLICA STATUS is used by default
+     */
+    private String replicaLagQuery;
+
     public String getName() {
         return name;
     }
@@ -52,6 +102,22 @@ public class DatabaseProperties {
         return masterOnly;
     }
 
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public boolean isAsyncInit() {
+        return asyncInit;
+    }
+
+    public void setAsyncInit(boolean asyncInit) {
+        this.asyncInit = asyncInit;
+    }
+
     public List<DataSourceProperties> getDataSourcePropertiesList() {
         return dataSourcePropertiesList;
     }
@@ -104,4 +170,68 @@ public class DatabaseProperties {
         this.connectionTimeoutMs = connectionTimeoutMs;
     }
 
+    public String getReplicaBalancer() {
+        return replicaBalancer;
+    }
+
+    public void setReplicaBalancer(String replicaBalancer) {
+        this.replicaBalancer = replicaBalancer;
+    }
+
+    public int getReplicaFailureThreshold() {
+        return replicaFailureThreshold;
+    }
+
+    public void setReplicaFailureThreshold(int replicaFailureThreshold) {
+        this.replicaFailureThreshold = replicaFailureThreshold;
+    }
+
+    public long getReplicaEjectMs() {
+        return replicaEjectMs;
+    }
+
+    public void setReplicaEjectMs(long replicaEjectMs) {
+        this.replicaEjectMs = replicaEjectMs;
+    }
+
+    public long getReplicaMaxEjectMs() {
+        return replicaMaxEjectMs;
+    }
+
+    public void setReplicaMaxEjectMs(long replicaMaxEjectMs) {
+        this.replicaMaxEjectMs = replicaMaxEjectMs;
+    }
+
+    public boolean isReplicaFallbackToMaster() {
+        return replicaFallbackToMaster;
+    }
+
+    public void setReplicaFallbackToMaster(boolean replicaFallbackToMaster) {
+        this.replicaFallbackToMaster = replicaFallbackToMaster;
+    }
+
+    public long getReadYourWritesMs() {
+        return readYourWritesMs;
+    }
+
+    public void setReadYourWritesMs(long readYourWritesMs) {
+        this.readYourWritesMs = readYourWritesMs;
+    }
+
+    public long getReplicaLagSampleMs() {
+        return replicaLagSampleMs;
+    }
+
+    public void setReplicaLagSampleMs(long replicaLagSampleMs) {
+        this.replicaLagSampleMs = replicaLagSampleMs;
+    }
+
+    public String getReplicaLagQuery() {
+        return replicaLagQuery;
+    }
+
+    public void setReplicaLagQuery(String replicaLagQuery) {
+        this.replicaLagQuery = replicaLagQuery;
+    }
+
 }
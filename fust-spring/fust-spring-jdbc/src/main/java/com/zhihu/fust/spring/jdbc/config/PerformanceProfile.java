@@ -0,0 +1,94 @@
+package com.zhihu.fust.spring.jdbc.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zhihu.fust.commons.lang.StringUtils;
+
+/**
+ * named groups of Connector/J properties tuned for a workload, selected by {@link DatabaseProperties#getProfile()}
+ * <ul>
+ *     <li>oltp-default: client side statement cache only, the properties used before profiles, unchanged</li>
+ *     <li>oltp-tuned: oltp-default, session state kept locally to skip round-trips</li>
+ *     <li>batch-write: oltp-tuned, rewrite jdbc batches to multi-row statements, cache long batch sql</li>
+ *     <li>large-read: oltp-tuned, server side prepared statements with cursor fetch to stream large results</li>
+ * </ul>
+ */
+public enum PerformanceProfile {
+    OLTP_DEFAULT("oltp-default", oltp()),
+    OLTP_TUNED("oltp-tuned", oltpTuned()),
+    BATCH_WRITE("batch-write", batchWrite()),
+    LARGE_READ("large-read", largeRead());
+
+    private final String profileName;
+    private final Map<String, String> properties;
+
+    PerformanceProfile(String profileName, Map<String, String> properties) {
+        this.profileName = profileName;
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * @param name profile name, oltp-default if empty
+     */
+    public static PerformanceProfile of(String name) {
+        if (StringUtils.isEmpty(name)) {
+            return OLTP_DEFAULT;
+        }
+        for (PerformanceProfile profile : values()) {
+            if (profile.profileName.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("unknown performance profile|" + name);
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public void applyTo(HikariConfig config) {
+        properties.forEach(config::addDataSourceProperty);
+    }
+
+    private static Map<String, String> oltp() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("cachePrepStmts", "true");
+        map.put("prepStmtCacheSize", "250");
+        map.put("prepStmtCacheSqlLimit", "2048");
+        return map;
+    }
+
+    private static Map<String, String> oltpTuned() {
+        Map<String, String> map = oltp();
+        // autoCommit, readOnly and isolation are answered locally instead of querying the server
+        map.put("useLocalSessionState", "true");
+        map.put("elideSetAutoCommits", "true");
+        map.put("cacheServerConfiguration", "true");
+        map.put("maintainTimeStats", "false");
+        return map;
+    }
+
+    private static Map<String, String> batchWrite() {
+        Map<String, String> map = oltpTuned();
+        map.put("rewriteBatchedStatements", "true");
+        // generated batch insert/update sql is often longer than 2048
+        map.put("prepStmtCacheSqlLimit", "65536");
+        return map;
+    }
+
+    private static Map<String, String> largeRead() {
+        Map<String, String> map = oltpTuned();
+        map.put("useServerPrepStmts", "true");
+        map.put("cacheResultSetMetadata", "true");
+        map.put("useCursorFetch", "true");
+        map.put("defaultFetchSize", "1000");
+        return map;
+    }
+}
@@ -0,0 +1,193 @@
+package com.zhihu.fust.spring.jdbc.pool;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+import com.zhihu.fust.telemetry.api.MeterClient;
+
+/**
+ * hikari pool metrics exported through {@link MeterClient}, one instance per pool
+ * <p>
+ * the acquire path only adds to striped counters, the pool state and the aggregated timings are reported every second.
+ * <p>
+ * metrics, tags db, role, ds:
+ * <ul>
+ *     <li>db.pool.active / idle / pending / total / max: gauge of connections and threads waiting for one</li>
+ *     <li>db.pool.saturation: gauge, (active + pending) / max, above 1 means requests are queued</li>
+ *     <li>db.pool.pending.ratio: gauge, pending / max</li>
+ *     <li>db.pool.acquire.count: connections acquired in the interval</li>
+ *     <li>db.pool.acquire.time.avg / max: gauge in ms of the wait for a connection in the interval</li>
+ *     <li>db.pool.usage.time.avg: gauge in ms of connection usage in the interval</li>
+ *     <li>db.pool.create.time: histogram in ms of creating a physical connection</li>
+ *     <li>db.pool.timeout.count: acquire timed out</li>
+ * </ul>
+ */
+public final class PoolMetrics implements MetricsTrackerFactory {
+    private static final Logger log = LoggerFactory.getLogger(PoolMetrics.class);
+
+    private static final long REPORT_INTERVAL_MS = 1_000;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final String ACTIVE = "db.pool.active";
+    private static final String IDLE = "db.pool.idle";
+    private static final String PENDING = "db.pool.pending";
+    private static final String TOTAL = "db.pool.total";
+    private static final String MAX = "db.pool.max";
+    private static final String SATURATION = "db.pool.saturation";
+    private static final String PENDING_RATIO = "db.pool.pending.ratio";
+    private static final String ACQUIRE_COUNT = "db.pool.acquire.count";
+    private static final String ACQUIRE_TIME_AVG = "db.pool.acquire.time.avg";
+    private static final String ACQUIRE_TIME_MAX = "db.pool.acquire.time.max";
+    private static final String USAGE_TIME_AVG = "db.pool.usage.time.avg";
+    private static final String CREATE_TIME = "db.pool.create.time";
+    private static final String TIMEOUT_COUNT = "db.pool.timeout.count";
+    private static final MeterClient METER_CLIENT = MeterClient.getMeterClient();
+
+    private static final Set<PoolMetrics> POOLS = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(NamingPatternThreadFactory.of("db-pool-metrics-%d", true));
+
+    static {
+        SCHEDULER.scheduleWithFixedDelay(PoolMetrics::reportAll,
+                                         REPORT_INTERVAL_MS, REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private final String[] tags;
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator acquireMaxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+
+    private volatile PoolStats poolStats;
+    private volatile double saturation;
+    private volatile double pendingRatio;
+
+    public PoolMetrics(String db, String role, String ds) {
+        this.tags = new String[]{"db:" + db, "role:" + role, "ds:" + ds};
+    }
+
+    /**
+     * @return metrics of the hikari data source, null if it is not tracked by this class
+     */
+    public static PoolMetrics of(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            MetricsTrackerFactory factory = ((HikariDataSource) dataSource).getMetricsTrackerFactory();
+            if (factory instanceof PoolMetrics) {
+                return (PoolMetrics) factory;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        POOLS.add(this);
+        return new Tracker();
+    }
+
+    /**
+     * (active + pending) / max of the last report, above 1 means threads are waiting for a connection
+     */
+    public double getSaturation() {
+        return saturation;
+    }
+
+    /**
+     * pending / max of the last report
+     */
+    public double getPendingRatio() {
+        return pendingRatio;
+    }
+
+    private static void reportAll() {
+        for (PoolMetrics metrics : POOLS) {
+            try {
+                metrics.report();
+            } catch (RuntimeException e) {
+                log.warn("report pool metrics error, tags|{}", metrics.tags, e);
+            }
+        }
+    }
+
+    void report() {
+        PoolStats stats = poolStats;
+        if (stats == null) {
+            return;
+        }
+        int active = stats.getActiveConnections();
+        int pending = stats.getPendingThreads();
+        int max = stats.getMaxConnections();
+        saturation = max <= 0 ? 0 : (double) (active + pending) / max;
+        pendingRatio = max <= 0 ? 0 : (double) pending / max;
+
+        METER_CLIENT.recordGaugeValue(ACTIVE, (long) active, tags);
+        METER_CLIENT.recordGaugeValue(IDLE, (long) stats.getIdleConnections(), tags);
+        METER_CLIENT.recordGaugeValue(PENDING, (long) pending, tags);
+        METER_CLIENT.recordGaugeValue(TOTAL, (long) stats.getTotalConnections(), tags);
+        METER_CLIENT.recordGaugeValue(MAX, (long) max, tags);
+        METER_CLIENT.recordGaugeValue(SATURATION, saturation, tags);
+        METER_CLIENT.recordGaugeValue(PENDING_RATIO, pendingRatio, tags);
+
+        long acquired = acquireCount.sumThenReset();
+        long waitNanos = acquireNanos.sumThenReset();
+        long maxWaitNanos = acquireMaxNanos.getThenReset();
+        if (acquired > 0) {
+            METER_CLIENT.count(ACQUIRE_COUNT, acquired, tags);
+            METER_CLIENT.recordGaugeValue(ACQUIRE_TIME_AVG, waitNanos / NANOS_PER_MILLI / acquired, tags);
+            METER_CLIENT.recordGaugeValue(ACQUIRE_TIME_MAX, maxWaitNanos / NANOS_PER_MILLI, tags);
+        }
+        long used = usageCount.sumThenReset();
+        long usedMillis = usageMillis.sumThenReset();
+        if (used > 0) {
+            METER_CLIENT.recordGaugeValue(USAGE_TIME_AVG, (double) usedMillis / used, tags);
+        }
+    }
+
+    private final class Tracker implements IMetricsTracker {
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            METER_CLIENT.recordHistogramValue(CREATE_TIME, connectionCreatedMillis, tags);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageCount.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            METER_CLIENT.increment(TIMEOUT_COUNT, tags);
+        }
+
+        @Override
+        public void close() {
+            POOLS.remove(PoolMetrics.this);
+            poolStats = null;
+        }
+    }
+}
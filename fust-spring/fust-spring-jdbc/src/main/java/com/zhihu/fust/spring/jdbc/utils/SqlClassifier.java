@@ -0,0 +1,211 @@
+package com.zhihu.fust.spring.jdbc.utils;
+
+/**
+ * classify a sql statement as read or write without copying the sql text
+ * <p>
+ * keywords are matched case-insensitively in place, leading comments and whitespace are skipped,
+ * quoted literals and identifiers never match a keyword.
+ * <ul>
+ *     <li>read: SELECT, WITH ... SELECT, SHOW, DESC, DESCRIBE, EXPLAIN</li>
+ *     <li>write: SELECT ... FOR UPDATE / FOR SHARE / LOCK IN SHARE MODE, INSERT, UPDATE, DELETE,
+ *     REPLACE, TRUNCATE, CALL, DDL and any other unknown statement</li>
+ * </ul>
+ */
+final class SqlClassifier {
+
+    private static final String SELECT = "select";
+    private static final String WITH = "with";
+    private static final String[] READ_ONLY = {"show", "desc", "describe", "explain"};
+    private static final String[] CTE_WRITE = {"insert", "update", "delete", "replace"};
+
+    private SqlClassifier() {
+    }
+
+    /**
+     * @param sql sql text
+     * @return true if the statement must be executed by master
+     */
+    static boolean isWrite(String sql) {
+        int len = sql.length();
+        int i = skipIgnorable(sql, 0);
+        // (select ...) union (select ...)
+        while (i < len && sql.charAt(i) == '(') {
+            i = skipIgnorable(sql, i + 1);
+        }
+        if (isKeyword(sql, i, SELECT)) {
+            return hasLockingClause(sql, i + SELECT.length());
+        }
+        if (isKeyword(sql, i, WITH)) {
+            return isWriteCte(sql, i + WITH.length());
+        }
+        for (String keyword : READ_ONLY) {
+            if (isKeyword(sql, i, keyword)) {
+                return false;
+            }
+        }
+        // unknown statement, always use master
+        return true;
+    }
+
+    /**
+     * find the main statement of `WITH cte AS (...) main`, it is the first dml keyword outside parentheses
+     */
+    private static boolean isWriteCte(String sql, int from) {
+        int len = sql.length();
+        int depth = 0;
+        int i = from;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                depth--;
+                i++;
+            } else if (isIdentifierStart(c)) {
+                int end = wordEnd(sql, i);
+                if (depth == 0) {
+                    if (isWord(sql, i, end, SELECT)) {
+                        return hasLockingClause(sql, end);
+                    }
+                    for (String keyword : CTE_WRITE) {
+                        if (isWord(sql, i, end, keyword)) {
+                            return true;
+                        }
+                    }
+                }
+                i = end;
+            } else {
+                i = skipNonWord(sql, i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FOR UPDATE / FOR SHARE / LOCK IN SHARE MODE
+     */
+    private static boolean hasLockingClause(String sql, int from) {
+        int len = sql.length();
+        int i = from;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (!isIdentifierStart(c)) {
+                i = skipNonWord(sql, i);
+                continue;
+            }
+            int end = wordEnd(sql, i);
+            if (isWord(sql, i, end, "for")) {
+                int next = skipIgnorable(sql, end);
+                if (isKeyword(sql, next, "update") || isKeyword(sql, next, "share")) {
+                    return true;
+                }
+            } else if (isWord(sql, i, end, "lock")) {
+                int next = skipIgnorable(sql, end);
+                if (isKeyword(sql, next, "in")) {
+                    next = skipIgnorable(sql, next + 2);
+                    if (isKeyword(sql, next, "share")) {
+                        return true;
+                    }
+                }
+            }
+            i = end;
+        }
+        return false;
+    }
+
+    /**
+     * skip one non-word token: quoted literal, comment or a single char
+     */
+    private static int skipNonWord(String sql, int i) {
+        char c = sql.charAt(i);
+        if (c == '\'' || c == '"' || c == '`') {
+            return skipQuoted(sql, i, c);
+        }
+        int next = skipComment(sql, i);
+        return next > i ? next : i + 1;
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int len = sql.length();
+        int i = start + 1;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                // doubled quote is an escaped quote
+                if (i + 1 < len && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * @return index after the comment, or i if there is no comment at i
+     */
+    private static int skipComment(String sql, int i) {
+        int len = sql.length();
+        char c = sql.charAt(i);
+        if (c == '#' || (c == '-' && i + 2 < len && sql.charAt(i + 1) == '-'
+                         && Character.isWhitespace(sql.charAt(i + 2)))) {
+            int end = sql.indexOf('\n', i);
+            return end < 0 ? len : end + 1;
+        }
+        if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+            int end = sql.indexOf("*/", i + 2);
+            return end < 0 ? len : end + 2;
+        }
+        return i;
+    }
+
+    private static int skipIgnorable(String sql, int from) {
+        int len = sql.length();
+        int i = from;
+        while (i < len) {
+            if (Character.isWhitespace(sql.charAt(i))) {
+                i++;
+                continue;
+            }
+            int next = skipComment(sql, i);
+            if (next == i) {
+                break;
+            }
+            i = next;
+        }
+        return i;
+    }
+
+    private static boolean isKeyword(String sql, int i, String keyword) {
+        int end = i + keyword.length();
+        return sql.regionMatches(true, i, keyword, 0, keyword.length())
+               && (end == sql.length() || !isIdentifierPart(sql.charAt(end)));
+    }
+
+    private static boolean isWord(String sql, int start, int end, String keyword) {
+        return end - start == keyword.length() && sql.regionMatches(true, start, keyword, 0, keyword.length());
+    }
+
+    private static int wordEnd(String sql, int start) {
+        int len = sql.length();
+        int i = start + 1;
+        while (i < len && isIdentifierPart(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
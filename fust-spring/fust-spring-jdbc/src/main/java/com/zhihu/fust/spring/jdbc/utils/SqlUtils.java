@@ -1,20 +1,65 @@
 package com.zhihu.fust.spring.jdbc.utils;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.zhihu.fust.spring.jdbc.JdbcConnectionHint;
 
 public class SqlUtils {
-    private static final String UPDATE = "update";
-    private static final String INSERT = "insert";
-    private static final String TRUNCATE = "truncate";
-    private static final String DELETE = "delete";
-    private static final String FOR_UPDATE = "for update";
-
-    private static boolean isUpdateSql(String sql) {
-        sql = sql.toLowerCase();
-        return sql.startsWith(UPDATE) || sql.contains(FOR_UPDATE)
-               || sql.contains(INSERT) || sql.contains(DELETE) || sql.contains(TRUNCATE);
+    /**
+     * max statements in routing cache, an entry is evicted for each new one when it is full
+     */
+    private static final int MAX_CACHED_STATEMENTS = 2048;
+    /**
+     * sql longer than this will not be cached to keep the cache memory bounded
+     */
+    private static final int MAX_CACHED_SQL_LENGTH = 16 * 1024;
+
+    /**
+     * sql -> is update sql
+     * the bound sql is a new string per execution, a hit still hashes and compares the whole sql,
+     * it saves the comment and keyword scan of {@link SqlClassifier}, not the pass over the sql
+     */
+    private static final Map<String, Boolean> ROUTING_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @return whether the sql writes, classified by {@link SqlClassifier} and cached per statement
+     */
+    public static boolean isUpdateSql(String sql) {
+        if (sql == null) {
+            return true;
+        }
+        Boolean cached = ROUTING_CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        boolean update = SqlClassifier.isWrite(sql);
+        if (sql.length() <= MAX_CACHED_SQL_LENGTH) {
+            if (ROUTING_CACHE.size() >= MAX_CACHED_STATEMENTS) {
+                evictOne();
+            }
+            ROUTING_CACHE.put(sql, update);
+        }
+        return update;
+    }
+
+    /**
+     * evict an arbitrary entry, the hot statements are put back on their next miss
+     * instead of all statements missing at once
+     */
+    private static void evictOne() {
+        Iterator<String> iterator = ROUTING_CACHE.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    static int getCachedCount() {
+        return ROUTING_CACHE.size();
     }
 
     /**
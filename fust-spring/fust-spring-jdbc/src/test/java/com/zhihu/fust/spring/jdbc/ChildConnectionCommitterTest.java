@@ -0,0 +1,56 @@
+package com.zhihu.fust.spring.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChildConnectionCommitterTest {
+
+    @Test
+    void testSequentialStopsAtFirstFailure() throws SQLException {
+        Connection ok = mock(Connection.class);
+        Connection bad = mock(Connection.class);
+        Connection skipped = mock(Connection.class);
+        doThrow(new SQLException("bad")).when(bad).commit();
+
+        List<SQLException> errors = ChildConnectionCommitter.sequential(Arrays.asList(ok, bad, skipped), true);
+
+        assertEquals(1, errors.size());
+        verify(ok).commit();
+        verify(skipped, never()).commit();
+    }
+
+    @Test
+    void testParallelCollectsAllFailures() throws SQLException {
+        Connection ok = mock(Connection.class);
+        Connection bad = mock(Connection.class);
+        Connection broken = mock(Connection.class);
+        Connection last = mock(Connection.class);
+        doThrow(new SQLException("bad")).when(bad).commit();
+        doThrow(new IllegalStateException("broken")).when(broken).commit();
+
+        List<SQLException> errors = ChildConnectionCommitter.parallel(Arrays.asList(bad, ok, broken, last), true);
+
+        assertEquals(2, errors.size());
+        verify(ok).commit();
+        verify(last).commit();
+    }
+
+    @Test
+    void testParallelRollback() throws SQLException {
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+
+        assertTrue(ChildConnectionCommitter.parallel(Arrays.asList(first, second), false).isEmpty());
+
+        verify(first).rollback();
+        verify(second).rollback();
+        verify(first, never()).commit();
+    }
+}
@@ -0,0 +1,70 @@
+package com.zhihu.fust.spring.jdbc;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionStateTest {
+
+    @Test
+    void testNothingAppliedWhenClean() throws SQLException {
+        ConnectionState state = new ConnectionState();
+        Connection connection = mock(Connection.class);
+        state.applyTo(connection);
+        assertFalse(state.isDirty());
+        verifyNoInteractions(connection);
+    }
+
+    @Test
+    void testApplyDirtySettingsInOrder() throws SQLException {
+        ConnectionState state = new ConnectionState();
+        state.setAutoCommit(false);
+        state.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        state.setReadOnly(true);
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        state.applyTo(connection);
+
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).setReadOnly(true);
+        inOrder.verify(connection).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        inOrder.verify(connection).setAutoCommit(false);
+    }
+
+    @Test
+    void testSkipMatchedAutoCommit() throws SQLException {
+        ConnectionState state = new ConnectionState();
+        state.setAutoCommit(true);
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        state.applyTo(connection);
+
+        verify(connection, never()).setAutoCommit(anyBoolean());
+        verify(connection, never()).setReadOnly(anyBoolean());
+        verify(connection, never()).setTransactionIsolation(anyInt());
+    }
+
+    @Test
+    void testWrapperAppliesStateOnBind() throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        Connection connection = mock(Connection.class);
+        when(strategy.getConnection(anyString())).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        JdbcConnectionWrapper wrapper = new JdbcConnectionWrapper(strategy, false);
+        wrapper.setAutoCommit(false);
+        assertFalse(wrapper.getAutoCommit());
+        verify(connection, never()).setAutoCommit(anyBoolean());
+
+        wrapper.prepareStatement("SELECT 1");
+        verify(connection).setAutoCommit(false);
+        wrapper.close();
+    }
+}
@@ -0,0 +1,211 @@
+package com.zhihu.fust.spring.jdbc;
+
+import com.zhihu.fust.spring.jdbc.balance.Replica;
+import com.zhihu.fust.spring.jdbc.balance.ReplicaHealth;
+import com.zhihu.fust.spring.jdbc.config.DataSourceProperties;
+import com.zhihu.fust.spring.jdbc.config.DatabaseProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DataSourceAdapterTest {
+
+    private static DataSourceProperties ds(String name, String type, int weight) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setName(name);
+        properties.setType(type);
+        properties.setUrl("jdbc:unknown://" + name);
+        properties.setWeight(weight);
+        return properties;
+    }
+
+    private static DatabaseProperties db(DataSourceProperties... dataSources) {
+        DatabaseProperties properties = new DatabaseProperties();
+        properties.setName("db");
+        properties.setDataSourcePropertiesList(Arrays.asList(dataSources));
+        return properties;
+    }
+
+    private static List<String> names(List<Replica> replicas) {
+        return replicas.stream().map(Replica::getName).collect(Collectors.toList());
+    }
+
+    private static DataSourceAdapter adapter() {
+        DatabaseProperties properties = db(ds("m", "master", 1), ds("r1", "replica", 1), ds("r2", "replica", 1));
+        return new DataSourceAdapter(properties, Arrays.asList(mock(DataSource.class), mock(DataSource.class),
+                                                               mock(DataSource.class)));
+    }
+
+    @Test
+    void testReloadRemovesReplica() {
+        DataSourceAdapter adapter = adapter();
+        Replica r1 = adapter.getReplicas().get(0);
+
+        adapter.reload(db(ds("m", "master", 1), ds("r1", "replica", 1)));
+
+        assertEquals(Arrays.asList("r1"), names(adapter.getReplicas()));
+        assertSame(r1, adapter.getReplicas().get(0));
+        assertEquals(Arrays.asList("r1"), names(adapter.getAvailableReplicas()));
+    }
+
+    @Test
+    void testReloadWeightKeepsDataSource() {
+        DataSourceAdapter adapter = adapter();
+        DataSource r2 = adapter.getReplicas().get(1).getDataSource();
+
+        adapter.reload(db(ds("m", "master", 1), ds("r1", "replica", 1), ds("r2", "replica", 3)));
+
+        Replica reloaded = adapter.getReplicas().get(1);
+        assertSame(r2, reloaded.getDataSource());
+        assertEquals(3, reloaded.getWeight());
+    }
+
+    @Test
+    void testReloadWeightKeepsStats() {
+        DataSourceAdapter adapter = adapter();
+        Replica r2 = adapter.getReplicas().get(1);
+        r2.getStats().recordAcquire(1_000, true);
+        r2.setReplicatedUntilMillis(42);
+
+        adapter.reload(db(ds("m", "master", 1), ds("r1", "replica", 1), ds("r2", "replica", 3)));
+
+        Replica reloaded = adapter.getReplicas().get(1);
+        assertSame(r2.getStats(), reloaded.getStats());
+        assertSame(r2.getHealth(), reloaded.getHealth());
+        assertEquals(42, reloaded.getReplicatedUntilMillis());
+    }
+
+    @Test
+    void testReloadKeepsEjectedReplica() {
+        DataSourceAdapter adapter = adapter();
+        Replica r1 = adapter.getReplicas().get(0);
+        for (int i = 0; i < ReplicaHealth.DEFAULT_FAILURE_THRESHOLD; i++) {
+            r1.getHealth().recordFailure(System.nanoTime());
+        }
+        assertTrue(r1.getHealth().isEjected());
+
+        adapter.reload(db(ds("m", "master", 1), ds("r1", "replica", 1), ds("r2", "replica", 1)));
+
+        assertEquals(Arrays.asList("r1", "r2"), names(adapter.getReplicas()));
+        assertEquals(Arrays.asList("r2"), names(adapter.getAvailableReplicas()));
+    }
+
+    @Test
+    void testReloadAppliesRouting() {
+        DataSourceAdapter adapter = adapter();
+        assertFalse(adapter.isReadYourWrites());
+        assertFalse(adapter.isMasterOnly());
+
+        DatabaseProperties properties = db(ds("m", "master", 1), ds("r1", "replica", 1), ds("r2", "replica", 1));
+        properties.setReadYourWritesMs(1_000);
+        properties.setReplicaLagSampleMs(0);
+        properties.setMasterOnly(true);
+        adapter.reload(properties);
+
+        assertTrue(adapter.isReadYourWrites());
+        assertTrue(adapter.isMasterOnly());
+    }
+
+    @Test
+    void testReloadUnknownBalancer() {
+        DataSourceAdapter adapter = adapter();
+        List<Replica> replicas = adapter.getReplicas();
+
+        DatabaseProperties properties = db(ds("m", "master", 1), ds("r1", "replica", 1));
+        properties.setReplicaBalancer("unknown");
+        assertThrows(IllegalArgumentException.class, () -> adapter.reload(properties));
+        assertSame(replicas, adapter.getReplicas());
+    }
+
+    @Test
+    void testFailedReloadKeepsReplicas() {
+        DataSourceAdapter adapter = adapter();
+        List<Replica> replicas = adapter.getReplicas();
+
+        assertThrows(RuntimeException.class,
+                     () -> adapter.reload(db(ds("m", "master", 1), ds("r3", "replica", 1))));
+        assertSame(replicas, adapter.getReplicas());
+    }
+
+    @Test
+    void testReloadNotSupportedWithoutProperties() {
+        DataSourceAdapter adapter = new DataSourceAdapter("db", mock(DataSource.class));
+        assertThrows(IllegalStateException.class, () -> adapter.reload(db(ds("m", "master", 1))));
+    }
+
+    @Test
+    void testMasterOnlyHasNoReplica() throws Exception {
+        DataSource master = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(master.getConnection()).thenReturn(connection);
+        DataSourceAdapter adapter = new DataSourceAdapter("db", master);
+
+        assertTrue(adapter.getReplicas().isEmpty());
+        assertTrue(adapter.getAvailableReplicas().isEmpty());
+        assertSame(connection, adapter.getSlaveConnection());
+    }
+
+    @Test
+    void testReloadAfterClose() {
+        DataSourceAdapter adapter = adapter();
+        adapter.close();
+        adapter.close();
+
+        assertThrows(IllegalStateException.class, () -> adapter.reload(db(ds("m", "master", 1))));
+        assertEquals(Arrays.asList("r1", "r2"), names(adapter.getReplicas()));
+    }
+
+    @Test
+    void testReloadDuringProbe() throws Exception {
+        DataSource master = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        CountDownLatch probing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"))
+                                     .thenAnswer(invocation -> {
+                                         probing.countDown();
+                                         release.await();
+                                         return connection;
+                                     });
+        DatabaseProperties properties = db(ds("m", "master", 1), ds("r1", "replica", 1));
+        properties.setReplicaFailureThreshold(1);
+        properties.setReplicaEjectMs(10);
+        DataSourceAdapter adapter = new DataSourceAdapter(properties, Arrays.asList(master, replica));
+        try {
+            adapter.getSlaveConnection();
+            assertTrue(adapter.getAvailableReplicas().isEmpty());
+            assertTrue(probing.await(5, TimeUnit.SECONDS));
+
+            // the new checker starts with the replica ejected, the probe of the old one reinstates it
+            DatabaseProperties reloaded = db(ds("m", "master", 1), ds("r1", "replica", 1));
+            reloaded.setReplicaFailureThreshold(1);
+            reloaded.setReplicaEjectMs(10);
+            adapter.reload(reloaded);
+            assertTrue(adapter.getAvailableReplicas().isEmpty());
+            release.countDown();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (adapter.getAvailableReplicas().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("r1"), names(adapter.getAvailableReplicas()));
+        } finally {
+            release.countDown();
+            adapter.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.zhihu.fust.spring.jdbc;
+
+import com.zhihu.fust.spring.jdbc.config.DataSourceProperties;
+import com.zhihu.fust.spring.jdbc.config.DatabaseProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourceBootstrapTest {
+
+    private static DataSourceProperties ds(String name, String type) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setName(name);
+        properties.setType(type);
+        properties.setUrl("jdbc:unknown://" + name);
+        return properties;
+    }
+
+    private static DatabaseProperties db(String name, DataSourceProperties... dataSources) {
+        DatabaseProperties properties = new DatabaseProperties();
+        properties.setName(name);
+        properties.setDataSourcePropertiesList(Arrays.asList(dataSources));
+        return properties;
+    }
+
+    @Test
+    void testMultiMasterRejectedBeforeInit() {
+        DatabaseProperties db = db("a", ds("m1", "master"), ds("m2", "master"));
+        assertThrows(IllegalStateException.class,
+                     () -> DataSourceBootstrap.createAdapters(Collections.singletonList(db)));
+    }
+
+    @Test
+    void testFailuresReportedTogether() {
+        DatabaseProperties first = db("a", ds("a-master", "master"), ds("a-replica", "replica"));
+        DatabaseProperties second = db("b", ds("b-master", "master"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                                               () -> DataSourceBootstrap.createAdapters(Arrays.asList(first, second)));
+        assertTrue(e.getMessage().contains("a/a-master"));
+        assertTrue(e.getMessage().contains("a/a-replica"));
+        assertTrue(e.getMessage().contains("b/b-master"));
+        assertEquals(3, e.getSuppressed().length);
+    }
+}
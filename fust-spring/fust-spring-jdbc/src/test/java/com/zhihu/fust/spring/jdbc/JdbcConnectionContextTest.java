@@ -0,0 +1,146 @@
+package com.zhihu.fust.spring.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JdbcConnectionContextTest {
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 2_000;
+
+    @BeforeEach
+    @AfterEach
+    void reset() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.unbindResourceIfPossible(JdbcConnectionContext.RESOURCE_KEY);
+    }
+
+    private static ConnectionStrategy strategy(Connection connection) throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        when(strategy.getConnection(anyString())).thenReturn(connection);
+        return strategy;
+    }
+
+    @Test
+    void testChildrenCommittedAndClosedByParent() throws SQLException {
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+        when(first.getAutoCommit()).thenReturn(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        runTransaction(mock(ConnectionStrategy.class), strategy(first), strategy(second));
+
+        verify(first).setAutoCommit(false);
+        verify(first).commit();
+        verify(first).close();
+        verify(second).commit();
+        verify(second).close();
+        assertNull(TransactionSynchronizationManager.getResource(JdbcConnectionContext.RESOURCE_KEY));
+    }
+
+    @Test
+    void testNestedTransactionShadowsOuterContext() throws SQLException {
+        Connection outerConnection = mock(Connection.class);
+        Connection innerConnection = mock(Connection.class);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        JdbcConnectionWrapper outer = new JdbcConnectionWrapper(mock(ConnectionStrategy.class), false);
+        // REQUIRES_NEW
+        JdbcConnectionWrapper inner = new JdbcConnectionWrapper(mock(ConnectionStrategy.class), false);
+        JdbcConnectionWrapper innerChild = new JdbcConnectionWrapper(strategy(innerConnection), true);
+        innerChild.prepareStatement("UPDATE t SET a = 1");
+        inner.commit();
+        inner.close();
+        verify(innerConnection).commit();
+        verify(innerConnection).close();
+
+        JdbcConnectionWrapper outerChild = new JdbcConnectionWrapper(strategy(outerConnection), true);
+        outerChild.prepareStatement("UPDATE t SET a = 2");
+        outer.rollback();
+        outer.close();
+        verify(outerConnection).rollback();
+        verify(outerConnection).close();
+        verify(innerConnection, never()).rollback();
+        assertNull(TransactionSynchronizationManager.getResource(JdbcConnectionContext.RESOURCE_KEY));
+    }
+
+    @Test
+    void testChildOutsideTransactionIsStandalone() throws SQLException {
+        Connection connection = mock(Connection.class);
+        JdbcConnectionWrapper parent = new JdbcConnectionWrapper(mock(ConnectionStrategy.class), false);
+        JdbcConnectionWrapper child = new JdbcConnectionWrapper(strategy(connection), true);
+        child.prepareStatement("SELECT 1");
+        child.close();
+        verify(connection).close();
+        parent.close();
+    }
+
+    @Test
+    void testConcurrentTransactions() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            List<Connection[]> connections = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Connection[] pair = {mock(Connection.class), mock(Connection.class)};
+                connections.add(pair);
+                futures.add(executor.submit(() -> {
+                    TransactionSynchronizationManager.setActualTransactionActive(true);
+                    try {
+                        ConnectionStrategy parent = mock(ConnectionStrategy.class);
+                        ConnectionStrategy first = strategy(pair[0]);
+                        ConnectionStrategy second = strategy(pair[1]);
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            runTransaction(parent, first, second);
+                            assertNull(TransactionSynchronizationManager.getResource(JdbcConnectionContext.RESOURCE_KEY));
+                        }
+                    } finally {
+                        TransactionSynchronizationManager.setActualTransactionActive(false);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            // a context shared by two transactions would commit a connection of another thread
+            for (Connection[] pair : connections) {
+                for (Connection connection : pair) {
+                    verify(connection, times(ITERATIONS)).commit();
+                    verify(connection, times(ITERATIONS)).close();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void runTransaction(ConnectionStrategy parentStrategy,
+                                       ConnectionStrategy firstStrategy,
+                                       ConnectionStrategy secondStrategy) throws SQLException {
+        JdbcConnectionWrapper parent = new JdbcConnectionWrapper(parentStrategy, false);
+        parent.setAutoCommit(false);
+        JdbcConnectionWrapper first = new JdbcConnectionWrapper(firstStrategy, true);
+        JdbcConnectionWrapper second = new JdbcConnectionWrapper(secondStrategy, true);
+        first.prepareStatement("UPDATE a SET x = 1");
+        second.prepareStatement("UPDATE b SET x = 1");
+        // closed by parent
+        first.close();
+        second.close();
+        parent.commit();
+        parent.close();
+    }
+}
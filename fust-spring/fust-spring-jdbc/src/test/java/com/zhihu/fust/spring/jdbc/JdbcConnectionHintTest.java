@@ -1,5 +1,8 @@
 package com.zhihu.fust.spring.jdbc;
 
+import com.zhihu.fust.telemetry.api.ServiceEntry;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +13,7 @@ class JdbcConnectionHintTest {
     @BeforeEach
     void setUp() {
         JdbcConnectionHint.clear();
+        JdbcConnectionHint.clearWrites();
     }
 
     @Test
@@ -63,4 +67,62 @@ class JdbcConnectionHintTest {
         assertFalse(JdbcConnectionHint.isMaster());
         assertNull(JdbcConnectionHint.getDatabaseName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testWriteMark() {
+        assertEquals(0, JdbcConnectionHint.getLastWriteMillis("testDb"));
+        long before = System.currentTimeMillis();
+        JdbcWrites writes = JdbcConnectionHint.beginWrite("testDb", 1000);
+        // pending until the write connection commits or closes
+        assertEquals(Long.MAX_VALUE, JdbcConnectionHint.getLastWriteMillis("testDb"));
+        writes.complete("testDb", System.currentTimeMillis());
+        long lastWrite = JdbcConnectionHint.getLastWriteMillis("testDb");
+        assertTrue(lastWrite >= before && lastWrite <= System.currentTimeMillis());
+        assertEquals(0, JdbcConnectionHint.getLastWriteMillis("otherDb"));
+    }
+
+    @Test
+    void testPendingUntilAllConnectionsComplete() {
+        JdbcWrites writes = JdbcConnectionHint.beginWrite("testDb", 1000);
+        JdbcConnectionHint.beginWrite("testDb", 1000);
+        writes.complete("testDb", System.currentTimeMillis());
+        assertEquals(Long.MAX_VALUE, JdbcConnectionHint.getLastWriteMillis("testDb"));
+        writes.complete("testDb", System.currentTimeMillis());
+        assertTrue(JdbcConnectionHint.getLastWriteMillis("testDb") < Long.MAX_VALUE);
+    }
+
+    @Test
+    void testHasWritesInWindow() {
+        JdbcWrites writes = JdbcConnectionHint.beginWrite("testDb", 1000);
+        assertTrue(JdbcConnectionHint.hasWrites());
+        long now = System.currentTimeMillis();
+        writes.complete("testDb", now - 999);
+        assertTrue(JdbcConnectionHint.hasWrites());
+        assertFalse(writes.hasWrites(now + 2));
+    }
+
+    @Test
+    void testWriteMarkSurvivesClear() {
+        JdbcConnectionHint.markWrite("testDb", 1000);
+        JdbcConnectionHint.clear();
+        assertTrue(JdbcConnectionHint.getLastWriteMillis("testDb") > 0);
+        JdbcConnectionHint.clearWrites();
+        assertEquals(0, JdbcConnectionHint.getLastWriteMillis("testDb"));
+    }
+
+    @Test
+    void testWriteMarkOfRequest() {
+        ServiceEntry entry = ServiceEntry.create("test");
+        try (Scope ignored = Context.current().with(ServiceEntry.SERVICE_ENTRY_KEY, entry).makeCurrent()) {
+            assertFalse(JdbcConnectionHint.hasWrites());
+            JdbcConnectionHint.markWrite("testDb", 1000);
+            assertTrue(JdbcConnectionHint.hasWrites());
+            assertTrue(JdbcConnectionHint.getLastWriteMillis("testDb") > 0);
+        }
+        // the next request on the same thread does not see the write
+        assertFalse(JdbcConnectionHint.hasWrites());
+        assertEquals(0, JdbcConnectionHint.getLastWriteMillis("testDb"));
+        JdbcWrites writes = entry.getAttribute(JdbcWrites.ATTRIBUTE);
+        assertTrue(writes.getLastWriteMillis("testDb") > 0);
+    }
+}
@@ -6,8 +6,12 @@ import org.junit.jupiter.api.Test;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class JdbcConnectionStrategyTest {
 
@@ -40,8 +44,41 @@ class JdbcConnectionStrategyTest {
         JdbcConnectionHint.clear();
     }
 
+    @Test
+    void testCloseClosesAdapters() {
+        connectionStrategy.close();
+        verify(mockAdapter).close();
+    }
+
     @Test
     void testGetDatabaseNameWithEmptyHint() {
         assertEquals("defaultDb", connectionStrategy.getDatabaseName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOnlyWritesAreMarked() {
+        DataSourceAdapter adapter = mock(DataSourceAdapter.class);
+        when(adapter.getName()).thenReturn("rywDb");
+        when(adapter.getReadYourWritesMs()).thenReturn(1000L);
+        JdbcConnectionStrategy strategy = new JdbcConnectionStrategy("rywDb", Collections.singletonList(adapter));
+        try {
+            // a read on master by the hint does not open the window
+            JdbcConnectionHint.setMaster(true);
+            assertFalse(strategy.onPrepareStatement("SELECT * FROM t"));
+            assertTrue(strategy.onPrepareStatement("UPDATE t SET a = 1"));
+            assertEquals(1000L, strategy.getReadYourWritesMs());
+        } finally {
+            JdbcConnectionHint.clear();
+        }
+    }
+
+    @Test
+    void testUnknownDatabaseIsNotMarked() {
+        JdbcConnectionHint.setDatabaseName("unknownDb");
+        try {
+            assertFalse(connectionStrategy.onPrepareStatement("UPDATE t SET a = 1"));
+        } finally {
+            JdbcConnectionHint.clear();
+        }
+    }
+}
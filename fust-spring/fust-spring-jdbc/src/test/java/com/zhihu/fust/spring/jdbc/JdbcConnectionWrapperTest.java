@@ -5,7 +5,9 @@ import org.junit.jupiter.api.Test;
 
 import java.sql.*;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 class JdbcConnectionWrapperTest {
@@ -60,4 +62,35 @@ class JdbcConnectionWrapperTest {
         verify(mockConnection, times(1)).getMetaData();
     }
 
-}
\ No newline at end of file
+    @Test
+    void testWritePendingUntilCommitOrClose() throws SQLException {
+        String update = "UPDATE t SET a = 1";
+        when(mockStrategy.onPrepareStatement(update)).thenReturn(true);
+        when(mockStrategy.getDatabaseName()).thenReturn("rywDb");
+        when(mockStrategy.getReadYourWritesMs()).thenReturn(1000L);
+        JdbcConnectionHint.clearWrites();
+        try {
+            directWrapper.prepareStatement(update);
+            assertEquals(Long.MAX_VALUE, JdbcConnectionHint.getLastWriteMillis("rywDb"));
+
+            // closing another connection without writes keeps the write pending
+            JdbcConnectionWrapper reader = new JdbcConnectionWrapper(mockStrategy, true);
+            reader.prepareStatement("SELECT * FROM t");
+            reader.close();
+            assertEquals(Long.MAX_VALUE, JdbcConnectionHint.getLastWriteMillis("rywDb"));
+
+            directWrapper.commit();
+            long committed = JdbcConnectionHint.getLastWriteMillis("rywDb");
+            assertTrue(committed > 0 && committed < Long.MAX_VALUE);
+            assertTrue(JdbcConnectionHint.hasWrites());
+
+            // the next transaction on the connection is pending again
+            directWrapper.prepareStatement(update);
+            assertEquals(Long.MAX_VALUE, JdbcConnectionHint.getLastWriteMillis("rywDb"));
+            directWrapper.close();
+            assertTrue(JdbcConnectionHint.getLastWriteMillis("rywDb") < Long.MAX_VALUE);
+        } finally {
+            JdbcConnectionHint.clearWrites();
+        }
+    }
+}
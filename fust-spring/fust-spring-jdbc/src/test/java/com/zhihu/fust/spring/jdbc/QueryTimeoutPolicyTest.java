@@ -0,0 +1,157 @@
+package com.zhihu.fust.spring.jdbc;
+
+import com.zhihu.fust.telemetry.api.RequestDeadline;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class QueryTimeoutPolicyTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testClamp() throws SQLException {
+        QueryTimeoutPolicy policy = new QueryTimeoutPolicy(2, 10);
+        assertEquals(2, policy.getTimeoutSeconds("db", 1));
+        assertEquals(3, policy.getTimeoutSeconds("db", 2 * SECOND + 1));
+        assertEquals(10, policy.getTimeoutSeconds("db", 60 * SECOND));
+        assertEquals(Integer.MAX_VALUE, new QueryTimeoutPolicy(1, 0).getTimeoutSeconds("db", Long.MAX_VALUE));
+    }
+
+    @Test
+    void testExpired() {
+        QueryTimeoutPolicy policy = new QueryTimeoutPolicy(1, 0);
+        assertThrows(SQLTimeoutException.class, () -> policy.getTimeoutSeconds("db", 0));
+        assertThrows(SQLTimeoutException.class, () -> policy.getTimeoutSeconds("db", -SECOND));
+    }
+
+    @Test
+    void testNoDeadline() throws SQLException {
+        assertEquals(0, new QueryTimeoutPolicy(1, 0).getTimeoutSeconds("db"));
+        assertEquals(30, new QueryTimeoutPolicy(1, 30).getTimeoutSeconds("db"));
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new QueryTimeoutPolicy(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new QueryTimeoutPolicy(5, 2));
+        assertThrows(IllegalArgumentException.class, () -> new QueryTimeoutPolicy(1, -1));
+    }
+
+    @Test
+    void testWrapperSetsQueryTimeout() throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(strategy.getConnection(anyString())).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        JdbcConnectionWrapper wrapper = new JdbcConnectionWrapper(strategy, true, false,
+                                                                  new QueryTimeoutPolicy(1, 0));
+        Context context = Context.current().with(RequestDeadline.REQUEST_DEADLINE_KEY,
+                                                 RequestDeadline.after(3, TimeUnit.SECONDS));
+        try (Scope ignored = context.makeCurrent()) {
+            wrapper.prepareStatement("SELECT 1");
+        }
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    void testTimeoutAppliedAtExecute() throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(strategy.getConnection(anyString())).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        JdbcConnectionWrapper wrapper = new JdbcConnectionWrapper(strategy, true, false,
+                                                                  new QueryTimeoutPolicy(1, 0));
+        Context context = Context.current().with(RequestDeadline.REQUEST_DEADLINE_KEY,
+                                                 RequestDeadline.after(3, TimeUnit.SECONDS));
+        try (Scope ignored = context.makeCurrent()) {
+            PreparedStatement prepared = wrapper.prepareStatement("SELECT 1");
+            // e.g. the statement timeout of mybatis, can not extend the deadline
+            prepared.setQueryTimeout(30);
+            prepared.executeQuery();
+            assertEquals(3, prepared.getQueryTimeout());
+            // a shorter one is kept
+            prepared.setQueryTimeout(1);
+            prepared.setLong(1, 2L);
+            prepared.executeQuery();
+        }
+        verify(statement, never()).setQueryTimeout(30);
+        verify(statement).setQueryTimeout(1);
+        verify(statement).setLong(1, 2L);
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void testExecuteAfterDeadline() throws Exception {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(strategy.getConnection(anyString())).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        JdbcConnectionWrapper wrapper = new JdbcConnectionWrapper(strategy, true, false,
+                                                                  new QueryTimeoutPolicy(1, 0));
+        Context context = Context.current().with(RequestDeadline.REQUEST_DEADLINE_KEY,
+                                                 RequestDeadline.after(20, TimeUnit.MILLISECONDS));
+        PreparedStatement prepared;
+        try (Scope ignored = context.makeCurrent()) {
+            prepared = wrapper.prepareStatement("SELECT 1");
+        }
+        Thread.sleep(30);
+        assertThrows(SQLTimeoutException.class, prepared::execute);
+        verify(statement, never()).execute();
+    }
+
+    @Test
+    void testWrapperRejectsExpiredRequest() throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        JdbcConnectionWrapper wrapper = new JdbcConnectionWrapper(strategy, true, false,
+                                                                  new QueryTimeoutPolicy(1, 0));
+        Context context = Context.current().with(RequestDeadline.REQUEST_DEADLINE_KEY,
+                                                 RequestDeadline.at(System.nanoTime() - 1));
+        try (Scope ignored = context.makeCurrent()) {
+            assertThrows(SQLTimeoutException.class, () -> wrapper.prepareStatement("SELECT 1"));
+        }
+        verify(strategy, never()).getConnection(anyString());
+    }
+
+    @Test
+    void testWrapperWithoutDeadline() throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(strategy.getConnection(anyString())).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        new JdbcConnectionWrapper(strategy, true, false, new QueryTimeoutPolicy(1, 0)).prepareStatement("SELECT 1");
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void testStatementsOnlyByPrepare() throws SQLException {
+        ConnectionStrategy strategy = mock(ConnectionStrategy.class);
+        JdbcConnectionWrapper wrapper = new JdbcConnectionWrapper(strategy, true, false,
+                                                                  new QueryTimeoutPolicy(1, 0));
+        // no statement skips the deadline
+        assertThrows(SQLFeatureNotSupportedException.class, wrapper::createStatement);
+        assertThrows(SQLFeatureNotSupportedException.class, () -> wrapper.createStatement(0, 0));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> wrapper.prepareCall("CALL p()"));
+        verify(strategy, never()).getConnection(anyString());
+    }
+}
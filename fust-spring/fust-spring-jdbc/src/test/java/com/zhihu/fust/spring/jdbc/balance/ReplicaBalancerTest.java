@@ -0,0 +1,163 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ReplicaBalancerTest {
+
+    private static List<Replica> replicas(int... weights) {
+        Replica[] replicas = new Replica[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            replicas[i] = new Replica("r" + i, mock(DataSource.class), weights[i]);
+        }
+        return Arrays.asList(replicas);
+    }
+
+    @Test
+    void testSmoothWeightedSchedule() {
+        int[] schedule = WeightedRoundRobinReplicaBalancer.buildSchedule(replicas(5, 1, 1));
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0}, schedule);
+    }
+
+    @Test
+    void testScheduleReducedByGcd() {
+        int[] schedule = WeightedRoundRobinReplicaBalancer.buildSchedule(replicas(100, 50));
+        assertArrayEquals(new int[]{0, 1, 0}, schedule);
+    }
+
+    @Test
+    void testZeroWeightReplicaIsSkipped() {
+        int[] schedule = WeightedRoundRobinReplicaBalancer.buildSchedule(replicas(2, 0));
+        assertArrayEquals(new int[]{0}, schedule);
+    }
+
+    @Test
+    void testScheduleLengthCapped() {
+        int[] schedule = WeightedRoundRobinReplicaBalancer.buildSchedule(replicas(1009, 1013, 1));
+        assertTrue(schedule.length <= WeightedRoundRobinReplicaBalancer.MAX_SCHEDULE_LENGTH);
+        int[] counts = new int[3];
+        for (int index : schedule) {
+            counts[index]++;
+        }
+        assertEquals(1, counts[2]);
+        assertTrue(Math.abs(counts[0] - counts[1]) <= 2);
+    }
+
+    @Test
+    void testAllZeroWeightFallbackToEqual() {
+        int[] schedule = WeightedRoundRobinReplicaBalancer.buildSchedule(replicas(0, 0));
+        assertEquals(2, schedule.length);
+    }
+
+    @Test
+    void testWeightedRoundRobinSelect() {
+        List<Replica> replicas = replicas(3, 1);
+        ReplicaBalancer balancer = new WeightedRoundRobinReplicaBalancer();
+        int[] counts = new int[2];
+        for (int i = 0; i < 400; i++) {
+            counts[balancer.select(replicas)]++;
+        }
+        assertEquals(300, counts[0]);
+        assertEquals(100, counts[1]);
+    }
+
+    @Test
+    void testLatencyAwarePrefersFastReplica() {
+        List<Replica> replicas = replicas(1, 1);
+        replicas.get(0).getStats().recordAcquire(1_000_000_000L, false);
+        replicas.get(1).getStats().recordAcquire(100_000L, true);
+        ReplicaBalancer balancer = new LatencyAwareReplicaBalancer();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, balancer.select(replicas));
+        }
+    }
+
+    @Test
+    void testLatencyAwareRecoversSlowReplica() {
+        List<Replica> replicas = replicas(1, 1);
+        long now = System.nanoTime();
+        // one slow sample long ago, the replica was not picked since then
+        replicas.get(0).getStats().recordAcquire(1_000_000_000L, false, now - TimeUnit.MINUTES.toNanos(5));
+        replicas.get(1).getStats().recordAcquire(100_000L, true, now);
+        ReplicaBalancer balancer = new LatencyAwareReplicaBalancer();
+        int[] counts = new int[2];
+        for (int i = 0; i < 100; i++) {
+            counts[balancer.select(replicas)]++;
+        }
+        assertTrue(counts[0] > 0);
+    }
+
+    @Test
+    void testStats() {
+        ReplicaStats stats = new ReplicaStats();
+        assertEquals(0, stats.getAcquireLatencyEwma());
+        long now = System.nanoTime();
+        stats.recordAcquire(100, true, now);
+        stats.recordAcquire(200, false, now);
+        assertEquals(2, stats.getAcquireCount());
+        assertEquals(1, stats.getFailureCount());
+        assertEquals(300, stats.getAcquireNanos());
+        assertEquals(120, stats.getAcquireLatencyEwma(now), 0.001);
+    }
+
+    @Test
+    void testStatsDecay() {
+        ReplicaStats stats = new ReplicaStats();
+        long now = System.nanoTime();
+        stats.recordAcquire(1000, true, now);
+        assertEquals(500, stats.getAcquireLatencyEwma(now + ReplicaStats.DECAY_HALF_LIFE_NANOS), 0.001);
+        assertEquals(250, stats.getAcquireLatencyEwma(now + 2 * ReplicaStats.DECAY_HALF_LIFE_NANOS), 0.001);
+        // the decayed average is blended with the next sample
+        stats.recordAcquire(1000, true, now + ReplicaStats.DECAY_HALF_LIFE_NANOS);
+        assertEquals(600, stats.getAcquireLatencyEwma(now + ReplicaStats.DECAY_HALF_LIFE_NANOS), 0.001);
+    }
+
+    @Test
+    void testConcurrentSamples() throws InterruptedException {
+        ReplicaStats stats = new ReplicaStats();
+        long now = System.nanoTime();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            long sampleNanos = now - t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1000; i++) {
+                    stats.recordAcquire(1000, true, sampleNanos);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // the same latency at about the same time, the average neither decays against a stale time nor loses it
+        assertEquals(1000, stats.getAcquireLatencyEwma(now), 0.001);
+        assertEquals(8000, stats.getAcquireCount());
+    }
+
+    @Test
+    void testCreateByName() {
+        assertInstanceOf(RandomReplicaBalancer.class, ReplicaBalancers.create(null));
+        assertInstanceOf(WeightedRoundRobinReplicaBalancer.class,
+                ReplicaBalancers.create(ReplicaBalancers.WEIGHTED_ROUND_ROBIN));
+        assertInstanceOf(PowerOfTwoChoicesReplicaBalancer.class,
+                ReplicaBalancers.create(ReplicaBalancers.POWER_OF_TWO_CHOICES));
+        assertInstanceOf(LatencyAwareReplicaBalancer.class, ReplicaBalancers.create(ReplicaBalancers.LATENCY_AWARE));
+        assertThrows(IllegalArgumentException.class, () -> ReplicaBalancers.create("unknown"));
+    }
+}
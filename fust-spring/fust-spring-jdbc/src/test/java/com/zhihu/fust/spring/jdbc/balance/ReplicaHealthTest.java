@@ -0,0 +1,91 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import org.junit.jupiter.api.Test;
+
+import com.zhihu.fust.spring.jdbc.DataSourceAdapter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaHealthTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void testEjectAfterConsecutiveFailures() {
+        ReplicaHealth health = new ReplicaHealth(3, 100, 400);
+        assertFalse(health.recordFailure(0));
+        assertFalse(health.recordFailure(0));
+        health.recordSuccess();
+        assertFalse(health.recordFailure(0));
+        assertFalse(health.recordFailure(0));
+        assertTrue(health.recordFailure(0));
+        assertTrue(health.isEjected());
+        assertFalse(health.recordFailure(0));
+    }
+
+    @Test
+    void testProbeBackoff() {
+        ReplicaHealth health = new ReplicaHealth(1, 100, 300);
+        assertTrue(health.recordFailure(0));
+        assertFalse(health.tryStartProbe(99 * MS));
+        assertTrue(health.tryStartProbe(100 * MS));
+        assertFalse(health.tryStartProbe(100 * MS));
+
+        // failed probe doubles the window
+        assertFalse(health.completeProbe(false, 100 * MS));
+        assertFalse(health.tryStartProbe(299 * MS));
+        assertTrue(health.tryStartProbe(300 * MS));
+
+        // capped by max window
+        assertFalse(health.completeProbe(false, 300 * MS));
+        assertFalse(health.tryStartProbe(599 * MS));
+        assertTrue(health.tryStartProbe(600 * MS));
+
+        assertTrue(health.completeProbe(true, 600 * MS));
+        assertFalse(health.isEjected());
+        assertEquals(0, health.getConsecutiveFailures());
+    }
+
+    @Test
+    void testDisabled() {
+        ReplicaHealth health = new ReplicaHealth(0, 100, 100);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(health.recordFailure(0));
+        }
+        assertFalse(health.isEjected());
+    }
+
+    @Test
+    void testFallbackToOtherReplicaAndMaster() throws SQLException {
+        DataSource master = mock(DataSource.class);
+        DataSource bad = mock(DataSource.class);
+        DataSource good = mock(DataSource.class);
+        Connection masterConnection = mock(Connection.class);
+        Connection goodConnection = mock(Connection.class);
+        when(master.getConnection()).thenReturn(masterConnection);
+        when(bad.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+        when(good.getConnection()).thenReturn(goodConnection);
+
+        DataSourceAdapter adapter = new DataSourceAdapter("db", master, Arrays.asList(bad, good), false);
+        for (int i = 0; i < 10; i++) {
+            assertSame(goodConnection, adapter.getSlaveConnection());
+        }
+        assertEquals(1, adapter.getAvailableReplicas().size());
+        assertSame(good, adapter.getAvailableReplicas().get(0).getDataSource());
+        verify(bad, atMost(ReplicaHealth.DEFAULT_FAILURE_THRESHOLD)).getConnection();
+
+        when(good.getConnection()).thenThrow(new SQLTransientConnectionException("timeout"));
+        for (int i = 0; i < 10; i++) {
+            assertSame(masterConnection, adapter.getSlaveConnection());
+        }
+        assertTrue(adapter.getAvailableReplicas().isEmpty());
+    }
+}
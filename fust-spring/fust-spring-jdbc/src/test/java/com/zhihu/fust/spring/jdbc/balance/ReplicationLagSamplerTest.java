@@ -0,0 +1,22 @@
+package com.zhihu.fust.spring.jdbc.balance;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicationLagSamplerTest {
+
+    @Test
+    void testOnlySyntaxErrorFallsBack() {
+        assertTrue(ReplicationLagSampler.isSyntaxError(new SQLException("syntax", "42000", 1064)));
+        assertTrue(ReplicationLagSampler.isSyntaxError(new SQLException("syntax", "42000")));
+        // access denied shares the sql state
+        assertFalse(ReplicationLagSampler.isSyntaxError(new SQLException("denied", "42000", 1227)));
+        assertFalse(ReplicationLagSampler.isSyntaxError(new SQLTimeoutException("timeout", "HY000", 3024)));
+        assertFalse(ReplicationLagSampler.isSyntaxError(new SQLException("connection lost", "08S01")));
+    }
+}
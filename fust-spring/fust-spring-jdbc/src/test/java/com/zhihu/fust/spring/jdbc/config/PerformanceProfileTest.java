@@ -0,0 +1,39 @@
+package com.zhihu.fust.spring.jdbc.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerformanceProfileTest {
+
+    @Test
+    void testOf() {
+        assertSame(PerformanceProfile.OLTP_DEFAULT, PerformanceProfile.of(null));
+        assertSame(PerformanceProfile.OLTP_DEFAULT, PerformanceProfile.of(""));
+        assertSame(PerformanceProfile.OLTP_TUNED, PerformanceProfile.of("oltp-tuned"));
+        assertSame(PerformanceProfile.BATCH_WRITE, PerformanceProfile.of("batch-write"));
+        assertSame(PerformanceProfile.LARGE_READ, PerformanceProfile.of("LARGE-READ"));
+        assertThrows(IllegalArgumentException.class, () -> PerformanceProfile.of("fast"));
+    }
+
+    @Test
+    void testApplyTo() {
+        HikariConfig config = new HikariConfig();
+        PerformanceProfile.BATCH_WRITE.applyTo(config);
+        assertEquals("true", config.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+        assertEquals("65536", config.getDataSourceProperties().getProperty("prepStmtCacheSqlLimit"));
+        assertEquals("true", config.getDataSourceProperties().getProperty("cachePrepStmts"));
+        assertNull(config.getDataSourceProperties().getProperty("useCursorFetch"));
+    }
+
+    @Test
+    void testDefaultKeepsLegacyProperties() {
+        HikariConfig config = new HikariConfig();
+        PerformanceProfile.OLTP_DEFAULT.applyTo(config);
+        assertEquals(3, config.getDataSourceProperties().size());
+        assertEquals("true", config.getDataSourceProperties().getProperty("cachePrepStmts"));
+        assertEquals("250", config.getDataSourceProperties().getProperty("prepStmtCacheSize"));
+        assertEquals("2048", config.getDataSourceProperties().getProperty("prepStmtCacheSqlLimit"));
+    }
+}
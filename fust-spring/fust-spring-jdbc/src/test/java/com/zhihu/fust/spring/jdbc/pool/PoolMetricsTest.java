@@ -0,0 +1,54 @@
+package com.zhihu.fust.spring.jdbc.pool;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PoolMetricsTest {
+
+    private static PoolStats stats(int active, int idle, int pending, int max) {
+        return new PoolStats(0) {
+            @Override
+            protected void update() {
+                activeConnections = active;
+                idleConnections = idle;
+                pendingThreads = pending;
+                totalConnections = active + idle;
+                maxConnections = max;
+            }
+        };
+    }
+
+    @Test
+    void testSaturation() {
+        PoolMetrics metrics = new PoolMetrics("db", "replica", "r1");
+        IMetricsTracker tracker = metrics.create("pool", stats(8, 0, 4, 10));
+        tracker.recordConnectionAcquiredNanos(2_000_000);
+        tracker.recordConnectionUsageMillis(5);
+
+        metrics.report();
+        assertEquals(1.2, metrics.getSaturation(), 1e-9);
+        assertEquals(0.4, metrics.getPendingRatio(), 1e-9);
+        tracker.close();
+    }
+
+    @Test
+    void testNotReportedAfterClose() {
+        PoolMetrics metrics = new PoolMetrics("db", "master", "m");
+        IMetricsTracker tracker = metrics.create("pool", stats(1, 1, 0, 10));
+        tracker.close();
+
+        metrics.report();
+        assertEquals(0, metrics.getSaturation());
+    }
+
+    @Test
+    void testOfUntrackedDataSource() {
+        assertNull(PoolMetrics.of(mock(DataSource.class)));
+    }
+}
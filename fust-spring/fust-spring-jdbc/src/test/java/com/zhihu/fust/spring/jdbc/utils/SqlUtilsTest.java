@@ -0,0 +1,78 @@
+package com.zhihu.fust.spring.jdbc.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlUtilsTest {
+
+    @Test
+    void testReadSql() {
+        assertFalse(SqlUtils.isUpdateSql("SELECT * FROM user WHERE id = ?"));
+        assertFalse(SqlUtils.isUpdateSql("  \n\tselect id from user"));
+        assertFalse(SqlUtils.isUpdateSql("/* trace */ -- comment\n # other\nSELECT 1"));
+        assertFalse(SqlUtils.isUpdateSql("(SELECT id FROM a) UNION (SELECT id FROM b)"));
+        assertFalse(SqlUtils.isUpdateSql("SHOW TABLES"));
+        assertFalse(SqlUtils.isUpdateSql("desc user"));
+        assertFalse(SqlUtils.isUpdateSql("EXPLAIN SELECT * FROM user"));
+    }
+
+    @Test
+    void testKeywordInsideReadSql() {
+        assertFalse(SqlUtils.isUpdateSql("SELECT inserted_at, deleted FROM update_log"));
+        assertFalse(SqlUtils.isUpdateSql("SELECT * FROM t WHERE name = 'for update'"));
+        assertFalse(SqlUtils.isUpdateSql("SELECT `for` FROM t WHERE `lock` = 1"));
+        assertFalse(SqlUtils.isUpdateSql("SELECT * FROM t /* for update */"));
+        assertFalse(SqlUtils.isUpdateSql("SELECT * FROM t WHERE a = 'it''s for update'"));
+    }
+
+    @Test
+    void testLockingRead() {
+        assertTrue(SqlUtils.isUpdateSql("SELECT * FROM user WHERE id = ? FOR UPDATE"));
+        assertTrue(SqlUtils.isUpdateSql("select * from user where id = ? for\n  update nowait"));
+        assertTrue(SqlUtils.isUpdateSql("SELECT * FROM user FOR SHARE"));
+        assertTrue(SqlUtils.isUpdateSql("SELECT * FROM user LOCK IN SHARE MODE"));
+    }
+
+    @Test
+    void testCte() {
+        assertFalse(SqlUtils.isUpdateSql("WITH c AS (SELECT id FROM a) SELECT * FROM c"));
+        assertFalse(SqlUtils.isUpdateSql("with recursive c(n) as (select 1 union all select n + 1 from c) select n from c"));
+        assertTrue(SqlUtils.isUpdateSql("WITH c AS (SELECT id FROM a) SELECT * FROM c FOR UPDATE"));
+        assertTrue(SqlUtils.isUpdateSql("WITH c AS (SELECT id FROM a) DELETE FROM b WHERE id IN (SELECT id FROM c)"));
+        assertTrue(SqlUtils.isUpdateSql("WITH c AS (SELECT id FROM a) UPDATE b SET x = 1"));
+    }
+
+    @Test
+    void testWriteSql() {
+        assertTrue(SqlUtils.isUpdateSql("INSERT INTO user(name) VALUES (?)"));
+        assertTrue(SqlUtils.isUpdateSql("  update user set name = ? where id = ?"));
+        assertTrue(SqlUtils.isUpdateSql("/* hint */ DELETE FROM user WHERE id = ?"));
+        assertTrue(SqlUtils.isUpdateSql("REPLACE INTO user(id, name) VALUES (?, ?)"));
+        assertTrue(SqlUtils.isUpdateSql("TRUNCATE TABLE user"));
+        assertTrue(SqlUtils.isUpdateSql("CALL refresh_user(?)"));
+        assertTrue(SqlUtils.isUpdateSql("ALTER TABLE user ADD COLUMN age INT"));
+        assertTrue(SqlUtils.isUpdateSql(null));
+    }
+
+    @Test
+    void testCachedResult() {
+        String sql = "SELECT * FROM user WHERE id = ? FOR UPDATE";
+        assertTrue(SqlUtils.isUpdateSql(sql));
+        assertTrue(SqlUtils.isUpdateSql(new String(sql.toCharArray())));
+        assertFalse(SqlUtils.isUpdateSql("SELECT * FROM user WHERE id = ?"));
+    }
+
+    @Test
+    void testCacheBounded() {
+        for (int i = 0; i < 5000; i++) {
+            assertFalse(SqlUtils.isUpdateSql("SELECT * FROM user WHERE id = " + i));
+        }
+        assertEquals(2048, SqlUtils.getCachedCount());
+        // the last statement is still cached, the cache is not cleared at once
+        assertFalse(SqlUtils.isUpdateSql("SELECT * FROM user WHERE id = 4999"));
+        assertEquals(2048, SqlUtils.getCachedCount());
+    }
+}
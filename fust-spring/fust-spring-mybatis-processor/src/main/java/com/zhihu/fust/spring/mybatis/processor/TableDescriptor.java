@@ -0,0 +1,251 @@
+package com.zhihu.fust.spring.mybatis.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * table metadata of a model read at compile time, the same rules as TableMeta and TableMetaUtil at runtime
+ */
+final class TableDescriptor {
+    static final String TABLE = "jakarta.persistence.Table";
+    static final String ID = "jakarta.persistence.Id";
+    static final String COLUMN = "jakarta.persistence.Column";
+    static final String MANUAL_ID = "com.zhihu.fust.spring.mybatis.annotations.ManualId";
+    static final String DB_AUTO_COLUMN = "com.zhihu.fust.spring.mybatis.annotations.DbAutoColumn";
+    static final String VERSION = "com.zhihu.fust.spring.mybatis.annotations.Version";
+    private static final List<String> VERSION_TYPES = List.of("int", "long", "java.lang.Integer", "java.lang.Long");
+
+    private final String tableName;
+    private final String keyProperty;
+    private final String keyColumn;
+    /**
+     * non static fields, in declaration order
+     */
+    private final List<ColumnField> fields;
+    private final ColumnField version;
+
+    private TableDescriptor(String tableName, String keyProperty, String keyColumn, List<ColumnField> fields,
+                            ColumnField version) {
+        this.tableName = tableName;
+        this.keyProperty = keyProperty;
+        this.keyColumn = keyColumn;
+        this.fields = fields;
+        this.version = version;
+    }
+
+    /**
+     * @return the descriptor, null if the model is not supported, the reason is added to problems
+     */
+    static TableDescriptor of(TypeElement type, List<String> problems) {
+        String tableName = getString(type, TABLE, "name");
+        if (tableName.isEmpty()) {
+            problems.add("missing table name");
+            return null;
+        }
+
+        VariableElement keyField = findKeyField(type);
+        if (keyField == null && type.getSuperclass().getKind() == TypeKind.DECLARED) {
+            keyField = findKeyField((TypeElement) ((DeclaredType) type.getSuperclass()).asElement());
+        }
+        if (keyField == null) {
+            problems.add("missing primary key");
+            return null;
+        }
+
+        List<ColumnField> fields = new ArrayList<>();
+        ColumnField version = null;
+        for (VariableElement field : getFields(type)) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            ColumnField columnField = new ColumnField(field);
+            fields.add(columnField);
+            if (columnField.version) {
+                if (version != null) {
+                    problems.add("only one @Version field is allowed");
+                    return null;
+                }
+                version = columnField;
+            }
+        }
+        if (version != null && !VERSION_TYPES.contains(version.type.toString())) {
+            problems.add("@Version field must be int or long");
+            return null;
+        }
+        return new TableDescriptor(tableName, keyField.getSimpleName().toString(), getColumnName(keyField),
+                                   Collections.unmodifiableList(fields), version);
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    String getKeyProperty() {
+        return keyProperty;
+    }
+
+    String getKeyColumn() {
+        return keyColumn;
+    }
+
+    List<ColumnField> getFields() {
+        return fields;
+    }
+
+    /**
+     * same as PrecompiledTables.getFingerprint of the model class at runtime
+     */
+    String getFingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        fingerprint.append(tableName).append('|').append(keyProperty).append(':').append(keyColumn).append('|');
+        for (int i = 0; i < fields.size(); i++) {
+            ColumnField field = fields.get(i);
+            if (i > 0) {
+                fingerprint.append(',');
+            }
+            fingerprint.append(field.property).append(':').append(field.column).append(':');
+            if (field.key) {
+                fingerprint.append('K');
+            }
+            if (field.autoColumn) {
+                fingerprint.append('A');
+            }
+            if (field.version) {
+                fingerprint.append('V');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @return optimistic lock version field, null if absent
+     */
+    ColumnField getVersion() {
+        return version;
+    }
+
+    private static VariableElement findKeyField(TypeElement type) {
+        for (VariableElement field : getFields(type)) {
+            if (hasAnnotation(field, ID) || hasAnnotation(field, MANUAL_ID)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static List<VariableElement> getFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.FIELD) {
+                fields.add((VariableElement) element);
+            }
+        }
+        return fields;
+    }
+
+    static String getColumnName(VariableElement field) {
+        String name = getString(field, COLUMN, "name");
+        return name.isEmpty() ? toLowerUnderscore(field.getSimpleName().toString()) : name;
+    }
+
+    /**
+     * same as guava LOWER_CAMEL.to(LOWER_UNDERSCORE, name): an upper case letter after the first char starts a word
+     */
+    static String toLowerUnderscore(String name) {
+        StringBuilder builder = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean upper = c >= 'A' && c <= 'Z';
+            if (upper && i > 0) {
+                builder.append('_');
+            }
+            builder.append(upper ? (char) (c + ('a' - 'A')) : c);
+        }
+        return builder.toString();
+    }
+
+    static boolean hasAnnotation(Element element, String annotation) {
+        return getAnnotation(element, annotation) != null;
+    }
+
+    private static AnnotationMirror getAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the explicit string value of the annotation, empty if absent
+     */
+    private static String getString(Element element, String annotation, String attribute) {
+        AnnotationMirror mirror = getAnnotation(element, annotation);
+        if (mirror == null) {
+            return "";
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return "";
+    }
+
+    static final class ColumnField {
+        private final String property;
+        private final String column;
+        private final boolean key;
+        private final boolean autoColumn;
+        private final boolean version;
+        private final TypeMirror type;
+
+        private ColumnField(VariableElement field) {
+            this.property = field.getSimpleName().toString();
+            this.column = getColumnName(field);
+            this.key = hasAnnotation(field, ID) || hasAnnotation(field, MANUAL_ID);
+            this.autoColumn = hasAnnotation(field, DB_AUTO_COLUMN);
+            this.version = hasAnnotation(field, VERSION);
+            this.type = field.asType();
+        }
+
+        String getProperty() {
+            return property;
+        }
+
+        String getColumn() {
+            return column;
+        }
+
+        /**
+         * same as the result map: the column name is converted again
+         */
+        String getResultColumn() {
+            return toLowerUnderscore(column);
+        }
+
+        /**
+         * set by update: not the key, not filled by the database, not the version
+         */
+        boolean isForUpdate() {
+            return !key && !autoColumn && !version;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.zhihu.fust.spring.mybatis.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.zhihu.fust.spring.mybatis.processor.TableDescriptor.ColumnField;
+
+/**
+ * generates {@code <Model>_FustTable} for the models annotated with @Table, so the static TemplateDao statements
+ * (find, remove, update) and the result columns are not built from reflection and scripts at startup.
+ * the other statements depend on the null properties of the parameter, they are still built at runtime
+ * <p>
+ * gradle: annotationProcessor 'com.zhihu.fust:fust-spring-mybatis-processor'
+ */
+@SupportedAnnotationTypes(TableDescriptor.TABLE)
+public class TemplateDaoProcessor extends AbstractProcessor {
+    /**
+     * same as PrecompiledTable.CLASS_SUFFIX
+     */
+    static final String CLASS_SUFFIX = "_FustTable";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement table = processingEnv.getElementUtils().getTypeElement(TableDescriptor.TABLE);
+        if (table == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(table)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                generate((TypeElement) element);
+            }
+        }
+        // @Table is not claimed, other processors may handle it
+        return false;
+    }
+
+    private void generate(TypeElement type) {
+        List<String> problems = new ArrayList<>();
+        TableDescriptor descriptor = TableDescriptor.of(type, problems);
+        if (descriptor == null) {
+            // the statements are built by reflection, which reports the problem at startup
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                                                     "skip precompiled table|" + String.join(",", problems), type);
+            return;
+        }
+
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                                    .replace('$', '_') + CLASS_SUFFIX;
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(className, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(render(packageName, simpleName, type.getQualifiedName().toString(), descriptor));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                                     "write precompiled table error|" + e.getMessage(), type);
+        }
+    }
+
+    static String render(String packageName, String simpleName, String modelName, TableDescriptor descriptor) {
+        List<String> properties = new ArrayList<>();
+        List<String> resultColumns = new ArrayList<>();
+        for (ColumnField field : descriptor.getFields()) {
+            properties.add(field.getProperty());
+            resultColumns.add(field.getResultColumn());
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledStatement;\n")
+              .append("import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTable;\n\n")
+              .append("/**\n * generated from ").append(modelName).append(", do not edit\n */\n")
+              .append("@javax.annotation.processing.Generated(\"").append(TemplateDaoProcessor.class.getName())
+              .append("\")\n")
+              .append("public final class ").append(simpleName).append(" implements PrecompiledTable {\n")
+              .append("    private static final String FINGERPRINT = ").append(literal(descriptor.getFingerprint()))
+              .append(";\n")
+              .append("    private static final String[] PROPERTIES = ").append(array(properties)).append(";\n")
+              .append("    private static final String[] RESULT_COLUMNS = ").append(array(resultColumns)).append(";\n")
+              .append("    private static final PrecompiledStatement FIND = ").append(statement(find(descriptor)))
+              .append(";\n")
+              .append("    private static final PrecompiledStatement REMOVE = ").append(statement(remove(descriptor)))
+              .append(";\n")
+              .append("    private static final PrecompiledStatement UPDATE = ").append(statement(update(descriptor)))
+              .append(";\n\n")
+              .append("    @Override\n")
+              .append("    public String getFingerprint() {\n")
+              .append("        return FINGERPRINT;\n")
+              .append("    }\n\n")
+              .append("    @Override\n")
+              .append("    public String[] getProperties() {\n")
+              .append("        return PROPERTIES.clone();\n")
+              .append("    }\n\n")
+              .append("    @Override\n")
+              .append("    public String[] getResultColumns() {\n")
+              .append("        return RESULT_COLUMNS.clone();\n")
+              .append("    }\n\n")
+              .append("    @Override\n")
+              .append("    public PrecompiledStatement getStatement(String method) {\n")
+              .append("        switch (method) {\n")
+              .append("            case \"find\":\n")
+              .append("                return FIND;\n")
+              .append("            case \"remove\":\n")
+              .append("                return REMOVE;\n")
+              .append("            case \"update\":\n")
+              .append("                return UPDATE;\n")
+              .append("            default:\n")
+              .append("                return null;\n")
+              .append("        }\n")
+              .append("    }\n")
+              .append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * SELECT * FROM t WHERE `id`=#{id}
+     */
+    static List<String> find(TableDescriptor descriptor) {
+        return List.of("SELECT * FROM " + descriptor.getTableName() + " WHERE `" + descriptor.getKeyColumn() + "`=?",
+                       descriptor.getKeyProperty());
+    }
+
+    /**
+     * DELETE FROM t WHERE `id` = #{et.id}
+     */
+    static List<String> remove(TableDescriptor descriptor) {
+        return List.of("DELETE FROM " + descriptor.getTableName() + " WHERE `" + descriptor.getKeyColumn() + "` = ?",
+                       "et." + descriptor.getKeyProperty());
+    }
+
+    /**
+     * UPDATE t SET `a` = #{et.a},`version` = `version` + 1 WHERE `id` = #{et.id} AND `version` = #{et.version}
+     */
+    static List<String> update(TableDescriptor descriptor) {
+        List<String> parameters = new ArrayList<>();
+        StringBuilder values = new StringBuilder();
+        for (ColumnField field : descriptor.getFields()) {
+            if (field.isForUpdate()) {
+                appendItem(values, "`" + field.getColumn() + "` = ?");
+                parameters.add("et." + field.getProperty());
+            }
+        }
+        String condition = "`" + descriptor.getKeyColumn() + "` = ?";
+        parameters.add("et." + descriptor.getKeyProperty());
+        ColumnField version = descriptor.getVersion();
+        if (version != null) {
+            appendItem(values, "`" + version.getColumn() + "` = `" + version.getColumn() + "` + 1");
+            condition += " AND `" + version.getColumn() + "` = ?";
+            parameters.add("et." + version.getProperty());
+        }
+
+        List<String> statement = new ArrayList<>();
+        statement.add("UPDATE " + descriptor.getTableName() + " SET " + values + " WHERE " + condition);
+        statement.addAll(parameters);
+        return statement;
+    }
+
+    private static void appendItem(StringBuilder builder, String item) {
+        if (builder.length() > 0) {
+            builder.append(',');
+        }
+        builder.append(item);
+    }
+
+    /**
+     * @param statement sql followed by the parameters
+     */
+    private static String statement(List<String> statement) {
+        StringBuilder builder = new StringBuilder("new PrecompiledStatement(");
+        for (int i = 0; i < statement.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(literal(statement.get(i)));
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String array(List<String> values) {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(literal(values.get(i)));
+        }
+        return builder.append('}').toString();
+    }
+
+    private static String literal(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,150 @@
+package com.zhihu.fust.spring.mybatis.processor;
+
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledStatement;
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTable;
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTables;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateDaoProcessorTest {
+
+    @TempDir
+    Path output;
+
+    private static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                                        JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private PrecompiledTable compile(String generatedName, JavaFileObject... sources)
+            throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-d", output.toString(),
+                                             "-classpath", System.getProperty("java.class.path"));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+                                                             Arrays.asList(sources));
+        task.setProcessors(Collections.singletonList(new TemplateDaoProcessor()));
+        assertTrue(task.call(), diagnostics.getDiagnostics().toString());
+
+        if (!Files.exists(output.resolve(generatedName.replace('.', '/') + ".class"))) {
+            return null;
+        }
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toUri().toURL()},
+                                                        getClass().getClassLoader());
+        Class<?> tableClass = classLoader.loadClass(generatedName);
+        return (PrecompiledTable) tableClass.getDeclaredConstructor().newInstance();
+    }
+
+    @Test
+    void testGenerate() throws Exception {
+        PrecompiledTable table = compile("demo.Item_FustTable", source("demo.Item", String.join("\n",
+                "package demo;",
+                "import jakarta.persistence.*;",
+                "import com.zhihu.fust.spring.mybatis.annotations.*;",
+                "@Table(name = \"item\", schema = \"shop\")",
+                "public class Item {",
+                "    private static final long serialVersionUID = 1L;",
+                "    @Id",
+                "    private Long id;",
+                "    private String itemName;",
+                "    @Column(name = \"item_price\")",
+                "    private Integer price;",
+                "    @DbAutoColumn",
+                "    private java.time.LocalDateTime createdAt;",
+                "    @Version",
+                "    private Long version;",
+                "}")));
+
+        assertArrayEquals(new String[]{"id", "itemName", "price", "createdAt", "version"}, table.getProperties());
+        assertArrayEquals(new String[]{"id", "item_name", "item_price", "created_at", "version"},
+                          table.getResultColumns());
+
+        PrecompiledStatement find = table.getStatement("find");
+        assertEquals("SELECT * FROM item WHERE `id`=?", find.getSql());
+        assertEquals(Collections.singletonList("id"), find.getParameters());
+
+        PrecompiledStatement remove = table.getStatement("remove");
+        assertEquals("DELETE FROM item WHERE `id` = ?", remove.getSql());
+        assertEquals(Collections.singletonList("et.id"), remove.getParameters());
+
+        PrecompiledStatement update = table.getStatement("update");
+        assertEquals("UPDATE item SET `item_name` = ?,`item_price` = ?,`version` = `version` + 1 "
+                     + "WHERE `id` = ? AND `version` = ?", update.getSql());
+        assertEquals(Arrays.asList("et.itemName", "et.price", "et.id", "et.version"), update.getParameters());
+
+        assertNull(table.getStatement("patch"));
+
+        assertEquals("item|id:id|id:id:K,itemName:item_name:,price:item_price:,createdAt:created_at:A,"
+                     + "version:version:V", table.getFingerprint());
+        // the same fingerprint as the model at runtime
+        assertEquals(PrecompiledTables.getFingerprint(table.getClass().getClassLoader().loadClass("demo.Item")),
+                     table.getFingerprint());
+    }
+
+    @Test
+    void testNestedClassAndSuperKey() throws Exception {
+        PrecompiledTable table = compile("demo.Outer_Child_FustTable",
+                                         source("demo.Base", String.join("\n",
+                                                 "package demo;",
+                                                 "public class Base {",
+                                                 "    @com.zhihu.fust.spring.mybatis.annotations.ManualId",
+                                                 "    private String code;",
+                                                 "}")),
+                                         source("demo.Outer", String.join("\n",
+                                                 "package demo;",
+                                                 "public class Outer {",
+                                                 "    @jakarta.persistence.Table(name = \"child\")",
+                                                 "    public static class Child extends Base {",
+                                                 "        private String name;",
+                                                 "    }",
+                                                 "}")));
+
+        assertArrayEquals(new String[]{"name"}, table.getProperties());
+        assertEquals("SELECT * FROM child WHERE `code`=?", table.getStatement("find").getSql());
+        assertEquals("UPDATE child SET `name` = ? WHERE `code` = ?", table.getStatement("update").getSql());
+        assertEquals(PrecompiledTables.getFingerprint(table.getClass().getClassLoader().loadClass("demo.Outer$Child")),
+                     table.getFingerprint());
+    }
+
+    @Test
+    void testSkipWithoutKey() throws Exception {
+        PrecompiledTable table = compile("demo.NoKey_FustTable", source("demo.NoKey", String.join("\n",
+                "package demo;",
+                "@jakarta.persistence.Table(name = \"no_key\")",
+                "public class NoKey {",
+                "    private String name;",
+                "}")));
+
+        assertNull(table);
+    }
+
+    @Test
+    void testToLowerUnderscore() {
+        assertEquals("item_name", TableDescriptor.toLowerUnderscore("itemName"));
+        assertEquals("name", TableDescriptor.toLowerUnderscore("Name"));
+        assertEquals("a_b_c", TableDescriptor.toLowerUnderscore("aBC"));
+        assertEquals("item_price", TableDescriptor.toLowerUnderscore("item_price"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.zhihu.fust.spring.mybatis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zhihu.fust.spring.jdbc.config.PerformanceProfile;
+import com.zhihu.fust.spring.mybatis.util.DaoFactory;
+
+/**
+ * insert throughput of one multi-row statement, chunked batchCreate and a plain jdbc batch
+ * <p>
+ * an in-memory h2 is used by default, it shows the mybatis side cost (sql building, parameter mappings).
+ * for the network and server side cost point it to a mysql, the batch-write profile is applied, e.g.
+ * {@code -Dbench.jdbc.url=jdbc:mysql://127.0.0.1:3306/bench -Dbench.jdbc.user=root}
+ * <p>
+ * run: ./gradlew :fust-spring:fust-spring-mybatis:jmh -Pjmh.includes=BatchCreateBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchCreateBenchmark {
+    private static final String INSERT_SQL = "INSERT INTO bench_item (`name`, `value`) VALUES (?, ?)";
+
+    @Param({"1000", "50000"})
+    private int rows;
+
+    @Param({"500"})
+    private int chunkSize;
+
+    private HikariDataSource dataSource;
+    private BenchItemDao dao;
+    private List<BenchItem> models;
+
+    @Table(name = "bench_item")
+    public static class BenchItem {
+        @Id
+        private Long id;
+        private String name;
+        private Long value;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getValue() {
+            return value;
+        }
+
+        public void setValue(Long value) {
+            this.value = value;
+        }
+    }
+
+    public interface BenchItemDao extends TemplateDao<BenchItem> {
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(System.getProperty("bench.jdbc.user", "sa"));
+        config.setPassword(System.getProperty("bench.jdbc.password", ""));
+        config.setMaximumPoolSize(2);
+        if (url.startsWith("jdbc:mysql:")) {
+            PerformanceProfile.BATCH_WRITE.applyTo(config);
+        }
+        dataSource = new HikariDataSource(config);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_item");
+            statement.execute("CREATE TABLE bench_item (`id` BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                              + "`name` VARCHAR(64) NOT NULL, `value` BIGINT NOT NULL)");
+        }
+        dao = new DaoFactory(dataSource).getMapper(BenchItemDao.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE bench_item");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newModels() {
+        models = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            BenchItem item = new BenchItem();
+            item.setName("name-" + i);
+            item.setValue((long) i);
+            models.add(item);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean singleStatement() {
+        return dao.batchCreate(models);
+    }
+
+    @Benchmark
+    public boolean chunked() {
+        return dao.batchCreate(models, chunkSize);
+    }
+
+    @Benchmark
+    public long jdbcBatch() throws SQLException {
+        long lastId = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < models.size(); from += chunkSize) {
+                int to = Math.min(models.size(), from + chunkSize);
+                for (BenchItem item : models.subList(from, to)) {
+                    statement.setString(1, item.getName());
+                    statement.setLong(2, item.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    int index = from;
+                    while (keys.next()) {
+                        lastId = keys.getLong(1);
+                        models.get(index++).setId(lastId);
+                    }
+                }
+            }
+        }
+        return lastId;
+    }
+}
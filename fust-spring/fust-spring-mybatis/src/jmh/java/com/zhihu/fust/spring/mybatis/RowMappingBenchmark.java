@@ -0,0 +1,167 @@
+package com.zhihu.fust.spring.mybatis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zhihu.fust.spring.mybatis.annotations.DirectMapping;
+import com.zhihu.fust.spring.mybatis.util.DaoFactory;
+
+/**
+ * decode cost of a wide row: the mybatis result set handler, the {@link DirectMapping} row mapper
+ * and a hand written jdbc loop, all read the same rows of an in-memory h2 through scanBatch
+ * <p>
+ * run: ./gradlew :fust-spring:fust-spring-mybatis:jmh -Pjmh.includes=RowMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+    private static final String SELECT_SQL = "SELECT * FROM bench_row ORDER BY `id` LIMIT ?";
+
+    @Param({"100", "1000"})
+    private int rows;
+
+    private HikariDataSource dataSource;
+    private MybatisRowDao mybatisDao;
+    private DirectRowDao directDao;
+
+    @Table(name = "bench_row")
+    public static class MybatisRow {
+        @Id
+        private Long id;
+        private Long authorId;
+        private String title;
+        private String content;
+        private Integer status;
+        private int score;
+        private Long amount;
+        private Double ratio;
+        private Boolean deleted;
+        private String tags;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+    }
+
+    public interface MybatisRowDao extends TemplateDao<MybatisRow> {
+    }
+
+    @DirectMapping
+    @Table(name = "bench_row")
+    public static class DirectRow {
+        @Id
+        private Long id;
+        private Long authorId;
+        private String title;
+        private String content;
+        private Integer status;
+        private int score;
+        private Long amount;
+        private Double ratio;
+        private Boolean deleted;
+        private String tags;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+    }
+
+    public interface DirectRowDao extends TemplateDao<DirectRow> {
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bench_row;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(2);
+        dataSource = new HikariDataSource(config);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_row");
+            statement.execute("CREATE TABLE bench_row (`id` BIGINT PRIMARY KEY, `author_id` BIGINT, "
+                              + "`title` VARCHAR(128), `content` VARCHAR(1024), `status` INT, `score` INT, "
+                              + "`amount` BIGINT, `ratio` DOUBLE, `deleted` BOOLEAN, `tags` VARCHAR(128), "
+                              + "`created_at` TIMESTAMP, `updated_at` TIMESTAMP)");
+            statement.execute("INSERT INTO bench_row SELECT X, X % 97, CONCAT('title-', X), "
+                              + "REPEAT('content ', 16), X % 3, X % 100, X * 100, X / 7.0, X % 10 = 0, "
+                              + "CASE WHEN X % 2 = 0 THEN 'a,b,c' END, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP "
+                              + "FROM SYSTEM_RANGE(1, 1000)");
+        }
+        DaoFactory daoFactory = new DaoFactory(dataSource);
+        mybatisDao = daoFactory.getMapper(MybatisRowDao.class);
+        directDao = daoFactory.getMapper(DirectRowDao.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<MybatisRow> mybatisMapping() {
+        return mybatisDao.scanBatch(null, rows);
+    }
+
+    @Benchmark
+    public List<DirectRow> directMapping() {
+        return directDao.scanBatch(null, rows);
+    }
+
+    @Benchmark
+    public List<DirectRow> jdbc() throws SQLException {
+        List<DirectRow> models = new ArrayList<>(rows);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setInt(1, rows);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    DirectRow row = new DirectRow();
+                    row.id = rs.getLong(1);
+                    row.authorId = rs.getLong(2);
+                    row.title = rs.getString(3);
+                    row.content = rs.getString(4);
+                    row.status = rs.getInt(5);
+                    row.score = rs.getInt(6);
+                    row.amount = rs.getLong(7);
+                    row.ratio = rs.getDouble(8);
+                    row.deleted = rs.getBoolean(9);
+                    row.tags = rs.getString(10);
+                    Timestamp createdAt = rs.getTimestamp(11);
+                    row.createdAt = createdAt == null ? null : createdAt.toLocalDateTime();
+                    Timestamp updatedAt = rs.getTimestamp(12);
+                    row.updatedAt = updatedAt == null ? null : updatedAt.toLocalDateTime();
+                    models.add(row);
+                }
+            }
+        }
+        return models;
+    }
+}
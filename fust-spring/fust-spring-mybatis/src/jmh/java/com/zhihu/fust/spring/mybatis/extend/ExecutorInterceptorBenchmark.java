@@ -0,0 +1,129 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.TemplateDao;
+import com.zhihu.fust.spring.mybatis.operations.SqlOperation;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+
+/**
+ * per call cost of {@link DefaultExecutorInterceptor}, the executor does nothing.
+ * legacy* repeats the former lookup: a global synchronized map read and the statement id parsing on every call
+ * <p>
+ * run: ./gradlew :fust-spring:fust-spring-mybatis:jmh -Pjmh.includes=ExecutorInterceptorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorInterceptorBenchmark {
+    private static final Map<String, TableMeta> LEGACY_CACHE = new HashMap<>();
+
+    private DefaultExecutorInterceptor interceptor;
+    private Executor executor;
+    private Method updateMethod;
+    private MappedStatement ms;
+    private BenchItem item;
+
+    @Table(name = "bench_item", schema = "bench")
+    public static class BenchItem {
+        @Id
+        private Long id;
+        private String name;
+    }
+
+    public interface BenchItemDao extends TemplateDao<BenchItem> {
+    }
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        interceptor = new DefaultExecutorInterceptor(name -> {
+        });
+        executor = (Executor) Proxy.newProxyInstance(
+                Executor.class.getClassLoader(), new Class<?>[]{Executor.class},
+                (proxy, method, args) -> method.getReturnType() == int.class ? 1 : null);
+        updateMethod = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+
+        String mapperName = BenchItemDao.class.getName();
+        TableMetaUtil.getModelClassByMapper(BenchItemDao.class);
+        LEGACY_CACHE.put(mapperName, TableMetaUtil.getTableMetaByModelClass(BenchItem.class));
+        ms = new MappedStatement.Builder(new Configuration(), mapperName + "." + SqlOperation.PATCH.getMethod(),
+                                         parameter -> null, SqlCommandType.UPDATE)
+                .resource(mapperName)
+                .build();
+        item = new BenchItem();
+    }
+
+    @Benchmark
+    public Object intercept() throws Throwable {
+        return interceptor.intercept(new Invocation(executor, updateMethod, new Object[]{ms, item}));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object interceptContended() throws Throwable {
+        return intercept();
+    }
+
+    @Benchmark
+    public Object legacyLookup() {
+        return legacyMeta(ms);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object legacyLookupContended() {
+        return legacyMeta(ms);
+    }
+
+    @Benchmark
+    public Object statementMetaLookup() {
+        return interceptor.getStatementMeta(ms);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object statementMetaLookupContended() {
+        return interceptor.getStatementMeta(ms);
+    }
+
+    private static Object legacyMeta(MappedStatement ms) {
+        TableMeta tableMeta = legacyGetMeta(ms.getResource());
+        String msId = ms.getId();
+        String method = msId.substring(msId.lastIndexOf('.') + 1);
+        boolean isPatchMethod = method.equalsIgnoreCase(SqlOperation.BATCH_PATCH.name())
+                                || method.equalsIgnoreCase(SqlOperation.PATCH.name());
+        return isPatchMethod && tableMeta != null && tableMeta.isSupportPatch() ? tableMeta.getSchemaName() : null;
+    }
+
+    private static synchronized TableMeta legacyGetMeta(String name) {
+        return LEGACY_CACHE.get(name);
+    }
+}
@@ -68,4 +68,18 @@ public final class Constants {
             v -> String.format(BATCH_EQ_TEST_FMT, v.getLeft(), v.getRight(), v.getRight(), v.getLeft());
 
     public static final String ENTITIES = "list";
+
+    /**
+     * `version` = `version` + 1
+     */
+    public static final String VERSION_INCREASE_FMT = "`%s` = `%s` + 1";
+
+    /**
+     * keyset 分页，上一批最后一条的主键
+     */
+    public static final String AFTER = "after";
+
+    public static final String LIMIT = "limit";
+
+    public static final String IDS = "ids";
 }
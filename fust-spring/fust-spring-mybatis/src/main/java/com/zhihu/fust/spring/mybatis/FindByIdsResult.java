@@ -0,0 +1,37 @@
+package com.zhihu.fust.spring.mybatis;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * result of {@link TemplateDao#findByIds}
+ *
+ * @param <T> model
+ */
+public final class FindByIdsResult<T> {
+    private final List<T> models;
+    private final List<Object> missingIds;
+
+    public FindByIdsResult(List<T> models, List<Object> missingIds) {
+        this.models = Collections.unmodifiableList(models);
+        this.missingIds = Collections.unmodifiableList(missingIds);
+    }
+
+    /**
+     * @return found models in the order of the input ids, duplicated ids are returned once
+     */
+    public List<T> getModels() {
+        return models;
+    }
+
+    /**
+     * @return ids not found, in the order of the input ids
+     */
+    public List<Object> getMissingIds() {
+        return missingIds;
+    }
+
+    public boolean isComplete() {
+        return missingIds.isEmpty();
+    }
+}
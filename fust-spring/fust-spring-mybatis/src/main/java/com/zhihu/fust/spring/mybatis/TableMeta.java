@@ -6,9 +6,12 @@ import static java.util.stream.Collectors.joining;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import jakarta.persistence.Column;
@@ -18,6 +21,7 @@ import com.zhihu.fust.commons.lang.StringUtils;
 import com.zhihu.fust.commons.lang.tuple.Pair;
 import com.zhihu.fust.spring.mybatis.annotations.ManualId;
 import com.zhihu.fust.spring.mybatis.annotations.DbAutoColumn;
+import com.zhihu.fust.spring.mybatis.annotations.Version;
 
 public class TableMeta {
 
@@ -73,6 +77,21 @@ public class TableMeta {
 
     private final String valuesForBatchPatch;
 
+    /**
+     * fields of columnsForCreate, in the same order
+     */
+    private final List<Field> fieldsForCreate;
+
+    /**
+     * fields of valuesForUpdate and valuesForPatch, in the same order
+     */
+    private final List<Field> fieldsForUpdate;
+
+    /**
+     * optimistic lock version field, null if absent
+     */
+    private final Field versionField;
+
     private boolean supportPatch;
 
     private static final Predicate<Field> IS_KEY = field -> field.isAnnotationPresent(Id.class)
@@ -82,6 +101,7 @@ public class TableMeta {
     private static final Predicate<Field> NOT_SKIP_COLUMN = field -> !field.isAnnotationPresent(
             DbAutoColumn.class);
     private static final Predicate<Field> IS_MANUAL_ID = field -> field.isAnnotationPresent(ManualId.class);
+    private static final Predicate<Field> IS_VERSION = field -> field.isAnnotationPresent(Version.class);
     private final boolean useManualId;
 
     public TableMeta(Field[] declaredFields) {
@@ -89,6 +109,9 @@ public class TableMeta {
 
         Predicate<Field> forCreate = NOT_STATIC.and(NOT_SKIP_COLUMN).and(IS_KEY.negate()).or(
                 IS_KEY.and(IS_MANUAL_ID));
+        this.fieldsForCreate = Collections.unmodifiableList(Stream.of(declaredFields)
+                                                                  .filter(forCreate)
+                                                                  .collect(Collectors.toList()));
         this.columnsForCreate = Stream.of(declaredFields)
                                       .filter(forCreate)
                                       .map(GEN_IF_TEST_COLUMN)
@@ -112,7 +135,20 @@ public class TableMeta {
                                           .map(GEN_BATCH_VALUE_FMT)
                                           .collect(joining(","));
 
-        Predicate<Field> forUpdate = NOT_STATIC.and(NOT_SKIP_COLUMN).and(IS_KEY.negate());
+        List<Field> versionFields = Stream.of(declaredFields).filter(NOT_STATIC.and(IS_VERSION)).collect(Collectors.toList());
+        if (versionFields.size() > 1) {
+            throw new IllegalStateException("only one @Version field is allowed|" + versionFields);
+        }
+        this.versionField = versionFields.isEmpty() ? null : versionFields.get(0);
+        if (versionField != null && !isVersionType(versionField.getType())) {
+            throw new IllegalStateException("@Version field must be int or long|" + versionField);
+        }
+
+        // the version column is increased by the generated sql, not set from the model
+        Predicate<Field> forUpdate = NOT_STATIC.and(NOT_SKIP_COLUMN).and(IS_KEY.negate()).and(IS_VERSION.negate());
+        this.fieldsForUpdate = Collections.unmodifiableList(Stream.of(declaredFields)
+                                                                  .filter(forUpdate)
+                                                                  .collect(Collectors.toList()));
         this.valuesForUpdate = Stream.of(declaredFields)
                                      .filter(forUpdate)
                                      .map(f -> Pair.of(getColumnName(f), f.getName()))
@@ -139,6 +175,10 @@ public class TableMeta {
         return supportPatch;
     }
 
+    private static boolean isVersionType(Class<?> type) {
+        return type == int.class || type == Integer.class || type == long.class || type == Long.class;
+    }
+
     public static String getColumnName(Field field) {
         if (field.isAnnotationPresent(Column.class)) {
             Column column = field.getAnnotation(Column.class);
@@ -213,6 +253,36 @@ public class TableMeta {
         return valuesForBatchPatch;
     }
 
+    public List<Field> getFieldsForCreate() {
+        return fieldsForCreate;
+    }
+
+    public List<Field> getFieldsForUpdate() {
+        return fieldsForUpdate;
+    }
+
+    public boolean isVersioned() {
+        return versionField != null;
+    }
+
+    public Field getVersionField() {
+        return versionField;
+    }
+
+    /**
+     * @return version column name, null if no @Version field
+     */
+    public String getVersionColumn() {
+        return versionField == null ? null : getColumnName(versionField);
+    }
+
+    /**
+     * @return version property name, null if no @Version field
+     */
+    public String getVersionProperty() {
+        return versionField == null ? null : versionField.getName();
+    }
+
     public boolean validate() {
         return StringUtils.isNotEmpty(tableName) && StringUtils.isNotEmpty(keyProperty);
     }
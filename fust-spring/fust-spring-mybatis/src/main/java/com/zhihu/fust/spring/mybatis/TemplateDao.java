@@ -1,15 +1,64 @@
 package com.zhihu.fust.spring.mybatis;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.annotations.Param;
 
+import com.zhihu.fust.spring.mybatis.util.ChunkedInsert;
+import com.zhihu.fust.spring.mybatis.util.KeysetScanner;
+import com.zhihu.fust.spring.mybatis.util.MultiGet;
+
 public interface TemplateDao<T> {
     boolean create(T model);
 
+    /**
+     * 创建记录，主键或唯一键冲突时忽略（insert ignore），忽略 null 字段
+     * 注意：insert ignore 同时会把部分数据错误降级为 warning
+     *
+     * @return 插入成功返回 true，冲突被忽略返回 false
+     */
+    boolean createIgnore(T model);
+
+    /**
+     * 插入记录，主键或唯一键冲突时更新（insert ... on duplicate key update），一次往返且没有先查后写的竞争
+     * null 字段既不插入也不更新，与 {@link #patch} 相同；自增主键回填到 model，更新时回填已有记录的主键
+     */
+    boolean upsert(T model);
+
     T find(Serializable id);
 
+    /**
+     * 按主键列表查询，单条 in 查询，结果无序，通常使用 {@link #findByIds(Collection)}
+     */
+    List<T> findByIdList(@Param(Constants.IDS) List<?> ids);
+
+    /**
+     * 按主键批量查询，按 {@link MultiGet#DEFAULT_CHUNK_SIZE} 分批 in 查询
+     *
+     * @param ids 主键列表，忽略 null 和重复的主键
+     * @return 按 ids 顺序返回查到的 model，以及未查到的主键
+     */
+    default FindByIdsResult<T> findByIds(Collection<?> ids) {
+        return findByIds(ids, MultiGet.DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * 按主键批量查询
+     * 每批补齐到 2 的幂（不超过 chunkSize）个参数，复用少量 sql 形状，便于 prepared statement 缓存
+     * parallel 为 true 时多批并行查询，分散到多个从库连接；在事务中或指定主库时退化为顺序查询
+     *
+     * @param ids       主键列表，忽略 null 和重复的主键
+     * @param chunkSize 每批 in 查询的最大主键数
+     * @param parallel  多批并行查询
+     * @return 按 ids 顺序返回查到的 model，以及未查到的主键
+     */
+    default FindByIdsResult<T> findByIds(Collection<?> ids, int chunkSize, boolean parallel) {
+        return MultiGet.find(this::findByIdList, ids, chunkSize, parallel);
+    }
+
     boolean update(@Param(Constants.ENTITY) T model);
 
     boolean remove(Serializable id);
@@ -19,11 +68,49 @@ public interface TemplateDao<T> {
      * 如果数据中存在 null 值，不会进行过滤，需要让数据都有默认值且默认值需要与数据库保存一致，会产生下面的问题：
      * 无法支持：model 默认值为 null 但是默认值不为 null 但传入 null 导致数据不准确，
      * 比如 mysql ZERO 日期默认值(传入 null 会使用当前时间做为默认值，而不是 schema 中指定的默认值）
+     * 数据量很大时使用 {@link #batchCreate(List, int)} 分批，避免单条 sql 超过 max_allowed_packet
+     *
      * @param models
      * @return
      */
     boolean batchCreate(@Param(Constants.ENTITIES) List<T> models);
 
+    /**
+     * 按 chunkSize 条分批插入，每批一条 {@link #batchCreate(List)}，除最后一批外 sql 相同，可以复用 prepared statement
+     * 自增主键按顺序回填到 models；分批后整体不再是原子的，需要时在事务中调用
+     *
+     * @param models    待插入的 model
+     * @param chunkSize 每条 insert 的最大行数，通常为 {@link ChunkedInsert#DEFAULT_CHUNK_SIZE}
+     * @return 全部批次插入成功
+     */
+    default boolean batchCreate(List<T> models, int chunkSize) {
+        return ChunkedInsert.insert(this::batchCreate, models, chunkSize);
+    }
+
+    /**
+     * 批量插入或更新，按 {@link ChunkedInsert#DEFAULT_CHUNK_SIZE} 条分批
+     */
+    default boolean batchUpsert(List<T> models) {
+        return batchUpsert(models, ChunkedInsert.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 按 chunkSize 条分批插入或更新，每批一条 insert ... on duplicate key update，除最后一批外 sql 相同
+     * 插入时 null 字段写入 null，更新时 null 字段保持原值；主键不回填
+     *
+     * @param models    待插入或更新的 model
+     * @param chunkSize 每条 sql 的最大行数
+     * @return 全部批次执行成功
+     */
+    default boolean batchUpsert(List<T> models, int chunkSize) {
+        return ChunkedInsert.insert(this::batchUpsertRows, models, chunkSize);
+    }
+
+    /**
+     * 单条 insert ... on duplicate key update 写入全部 models，通常使用 {@link #batchUpsert(List)}
+     */
+    boolean batchUpsertRows(@Param(Constants.ENTITIES) List<T> models);
+
     /**
      * 部分更新 model 信息
      * 忽略 null 字段的更新，部分更新对应主键 id
@@ -77,4 +164,32 @@ public interface TemplateDao<T> {
      */
     boolean batchPatch(@Param(Constants.ENTITIES) List<T> models);
 
+    /**
+     * 按主键升序读取一批，主键大于 after，用于 {@link #scan(Serializable, int)}
+     *
+     * @param after 上一批最后一条的主键，null 表示从头开始
+     * @param limit 最多读取的条数
+     */
+    List<T> scanBatch(@Param(Constants.AFTER) Serializable after, @Param(Constants.LIMIT) int limit);
+
+    /**
+     * 按主键顺序流式读取全表，用于导出、对账等大批量读取
+     * 使用主键 keyset 分页，每批 batchSize 条，消费完一批才读取下一批，内存中最多保留一批数据
+     * 每批是独立的查询，不在事务中时，批与批之间的数据变化可能被读到
+     *
+     * @param batchSize 每批读取的条数
+     */
+    default Stream<T> scan(int batchSize) {
+        return scan(null, batchSize);
+    }
+
+    /**
+     * 从主键 after 之后开始流式读取，可用于中断后继续读取
+     *
+     * @param after     起始主键（不包含），null 表示从头开始
+     * @param batchSize 每批读取的条数
+     */
+    default Stream<T> scan(Serializable after, int batchSize) {
+        return KeysetScanner.stream(this::scanBatch, after, batchSize);
+    }
 }
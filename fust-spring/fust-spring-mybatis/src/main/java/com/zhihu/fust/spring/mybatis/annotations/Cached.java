@@ -0,0 +1,33 @@
+package com.zhihu.fust.spring.mybatis.annotations;
+
+import static java.lang.annotation.ElementType.TYPE;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * caches the model of TemplateDao.find by primary key in process, bounded by size and ttl
+ * update, patch, batchPatch, remove, upsert and batchUpsert invalidate the cached models,
+ * other instances are notified through {@link com.zhihu.fust.spring.mybatis.cache.EntityCacheBroadcaster}
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = { TYPE })
+public @interface Cached {
+
+    /**
+     * max cached models of the table
+     */
+    long maximumSize() default 10000;
+
+    /**
+     * seconds after put, also bounds the stale time when an invalidation of other instances is lost
+     */
+    long expireAfterWriteSeconds() default 60;
+
+    /**
+     * millis after an invalidation of a key in which the found model is not put, a replica may not have
+     * the write yet. 0 to put right after the invalidation, e.g. all reads go to master
+     */
+    long staleReadWindowMs() default 1000;
+}
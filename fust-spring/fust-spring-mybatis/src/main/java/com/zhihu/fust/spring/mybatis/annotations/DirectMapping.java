@@ -0,0 +1,20 @@
+package com.zhihu.fust.spring.mybatis.annotations;
+
+import static java.lang.annotation.ElementType.TYPE;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * rows of find, findByIdList and scanBatch are decoded by a row mapper of the model instead of the mybatis
+ * result set handler, column indexes are resolved once per result set shape and fields are written through
+ * MethodHandles. type handlers are the ones of the result map, {@link ColumnTypeHandler} keeps working
+ * <p>
+ * the model falls back to the mybatis mapping if it has no no-arg constructor, a field can not be written,
+ * or it inherits fields from a super class, which are out of the result map and auto-mapped by mybatis
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = { TYPE })
+public @interface DirectMapping {
+}
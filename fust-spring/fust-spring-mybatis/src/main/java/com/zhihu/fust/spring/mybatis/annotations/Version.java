@@ -0,0 +1,17 @@
+package com.zhihu.fust.spring.mybatis.annotations;
+
+import static java.lang.annotation.ElementType.FIELD;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * optimistic lock version column, integer or long
+ * update, patch and batchPatch only match the row with the same version and increase it by 1,
+ * false is returned when the version does not match
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = { FIELD })
+public @interface Version {
+}
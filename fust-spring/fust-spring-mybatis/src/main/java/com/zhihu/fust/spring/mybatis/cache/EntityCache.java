@@ -0,0 +1,190 @@
+package com.zhihu.fust.spring.mybatis.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zhihu.fust.spring.mybatis.annotations.Cached;
+
+/**
+ * models of one @Cached table by primary key, W-TinyLFU eviction by caffeine
+ * <ul>
+ *     <li>keys are compared as strings, e.g. 1 and 1L are the same</li>
+ *     <li>models are copied on put and get</li>
+ *     <li>each invalidation increases the generation of the key stripe, a model read before is not put,
+ *     neither in {@link Cached#staleReadWindowMs()} after, a replica may not have the write yet</li>
+ * </ul>
+ */
+public final class EntityCache {
+    private static final int STRIPES = 64;
+    /**
+     * invalidateAll of the whole cache, shared by all stripes
+     */
+    private static final int ALL = STRIPES;
+
+    private final String name;
+    private final Cache<String, Object> cache;
+    private final EntityCopier copier;
+    private final long staleReadWindowMs;
+    /**
+     * invalidation count and last invalidation millis of each key stripe, the last one of invalidateAll
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES + 1);
+    private final AtomicLongArray invalidatedMillis = new AtomicLongArray(STRIPES + 1);
+
+    EntityCache(String name, Class<?> modelClass, Cached cached) {
+        this.name = name;
+        this.copier = new EntityCopier(modelClass);
+        this.staleReadWindowMs = cached.staleReadWindowMs();
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(cached.maximumSize())
+                             .expireAfterWrite(Duration.ofSeconds(cached.expireAfterWriteSeconds()))
+                             .build();
+    }
+
+    /**
+     * @return schema.table
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return copy of the cached model, null if absent
+     */
+    public Object get(Object id) {
+        Object model = cache.getIfPresent(toKey(id));
+        return model == null ? null : copier.copy(model);
+    }
+
+    public void put(Object id, Object model) {
+        cache.put(toKey(id), copier.copy(model));
+    }
+
+    /**
+     * @return generation of the key, read it before loading the model to put
+     */
+    public long getGeneration(Object id) {
+        return generations.get(stripe(toKey(id))) + generations.get(ALL);
+    }
+
+    /**
+     * put the model loaded after {@link #getGeneration(Object)}, unless the key was invalidated since
+     * or in the stale read window
+     *
+     * @return true if put
+     */
+    public boolean put(Object id, Object model, long generation) {
+        String key = toKey(id);
+        int stripe = stripe(key);
+        boolean[] put = new boolean[1];
+        // invalidations increase the generation before removing the key, the check runs under the lock of the key
+        cache.asMap().compute(key, (k, old) -> {
+            if (generations.get(stripe) + generations.get(ALL) != generation || isStaleRead(stripe)) {
+                return old;
+            }
+            put[0] = true;
+            return copier.copy(model);
+        });
+        return put[0];
+    }
+
+    /**
+     * invalidate the model in this instance and other instances
+     */
+    public void invalidate(Object id) {
+        invalidate(Collections.singletonList(id));
+    }
+
+    /**
+     * invalidate all models in this instance and other instances
+     */
+    public void invalidateAll() {
+        invalidate((Collection<?>) null);
+    }
+
+    /**
+     * invalidate the models in this instance and other instances, one broadcast for all keys
+     *
+     * @param ids primary keys, null means all models
+     */
+    public void invalidate(Collection<?> ids) {
+        invalidateLocal(ids);
+        broadcast(ids);
+    }
+
+    /**
+     * invalidate the models in this instance only, e.g. before the commit of a transaction
+     *
+     * @param ids primary keys, null means all models
+     */
+    public void invalidateLocal(Collection<?> ids) {
+        if (ids == null) {
+            invalidateKey(null);
+            return;
+        }
+        for (Object id : ids) {
+            invalidateKey(toKey(id));
+        }
+    }
+
+    /**
+     * notify other instances of the invalidated models, once per write
+     *
+     * @param ids primary keys, null means all models
+     */
+    public void broadcast(Collection<?> ids) {
+        if (ids == null) {
+            EntityCaches.getBroadcaster().publish(name, null);
+            return;
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            keys.add(toKey(id));
+        }
+        EntityCaches.getBroadcaster().publish(name, keys);
+    }
+
+    /**
+     * @param key primary key, null means all models
+     */
+    void invalidateKey(String key) {
+        int stripe = key == null ? ALL : stripe(key);
+        generations.incrementAndGet(stripe);
+        invalidatedMillis.set(stripe, System.currentTimeMillis());
+        if (key == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(key);
+        }
+    }
+
+    private boolean isStaleRead(int stripe) {
+        if (staleReadWindowMs <= 0) {
+            return false;
+        }
+        long lastMillis = Math.max(invalidatedMillis.get(stripe), invalidatedMillis.get(ALL));
+        return System.currentTimeMillis() - lastMillis < staleReadWindowMs;
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    private static String toKey(Object id) {
+        return String.valueOf(id);
+    }
+}
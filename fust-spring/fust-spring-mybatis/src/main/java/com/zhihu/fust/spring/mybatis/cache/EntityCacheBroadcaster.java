@@ -0,0 +1,18 @@
+package com.zhihu.fust.spring.mybatis.cache;
+
+import java.util.Collection;
+
+/**
+ * notifies other instances of the invalidated models, the receiver calls
+ * {@link EntityCaches#invalidateLocal(String, String)} for each key
+ * <p>
+ * called on the thread of the write, after the commit in a transaction, the implementation should not block it
+ */
+public interface EntityCacheBroadcaster {
+
+    /**
+     * @param cacheName name of the cache, schema.table
+     * @param keys      primary keys of one write, null means all models of the cache
+     */
+    void publish(String cacheName, Collection<String> keys);
+}
@@ -0,0 +1,73 @@
+package com.zhihu.fust.spring.mybatis.cache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.annotations.Cached;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+
+/**
+ * entity caches of the @Cached models, created on first use
+ */
+public final class EntityCaches {
+    private static final EntityCacheBroadcaster NOOP = (cacheName, keys) -> {
+    };
+
+    private static final ClassValue<Optional<EntityCache>> CACHES = new ClassValue<Optional<EntityCache>>() {
+        @Override
+        protected Optional<EntityCache> computeValue(Class<?> modelClass) {
+            return Optional.ofNullable(createCache(modelClass));
+        }
+    };
+    private static final Map<String, EntityCache> CACHES_BY_NAME = new ConcurrentHashMap<>();
+
+    private static volatile EntityCacheBroadcaster broadcaster = NOOP;
+
+    private EntityCaches() {
+    }
+
+    /**
+     * @return cache of the model class, null if the model is not @Cached
+     */
+    public static EntityCache get(Class<?> modelClass) {
+        return CACHES.get(modelClass).orElse(null);
+    }
+
+    /**
+     * @param broadcaster notifies other instances, null disables it
+     */
+    public static void setBroadcaster(EntityCacheBroadcaster broadcaster) {
+        EntityCaches.broadcaster = broadcaster == null ? NOOP : broadcaster;
+    }
+
+    static EntityCacheBroadcaster getBroadcaster() {
+        return broadcaster;
+    }
+
+    /**
+     * invalidate without broadcast, called when an invalidation of other instances is received
+     *
+     * @param cacheName name of the cache, schema.table
+     * @param key       primary key, null means all models of the cache
+     */
+    public static void invalidateLocal(String cacheName, String key) {
+        EntityCache cache = CACHES_BY_NAME.get(cacheName);
+        if (cache != null) {
+            cache.invalidateKey(key);
+        }
+    }
+
+    private static EntityCache createCache(Class<?> modelClass) {
+        Cached cached = modelClass.getAnnotation(Cached.class);
+        if (cached == null) {
+            return null;
+        }
+        TableMeta tableMeta = TableMetaUtil.getTableMetaByModelClass(modelClass);
+        String name = tableMeta.getSchemaName() + "." + tableMeta.getTableName();
+        EntityCache cache = new EntityCache(name, modelClass, cached);
+        CACHES_BY_NAME.putIfAbsent(name, cache);
+        return cache;
+    }
+}
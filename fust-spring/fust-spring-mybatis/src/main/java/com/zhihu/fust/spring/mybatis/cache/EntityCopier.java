@@ -0,0 +1,60 @@
+package com.zhihu.fust.spring.mybatis.cache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * shallow copy of a model through MethodHandles,
+ * the cached model is never returned so callers can not modify it
+ */
+final class EntityCopier {
+    private final MethodHandle constructor;
+    private final MethodHandle[] getters;
+    private final MethodHandle[] setters;
+
+    EntityCopier(Class<?> modelClass) {
+        List<MethodHandle> getterList = new ArrayList<>();
+        List<MethodHandle> setterList = new ArrayList<>();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(modelClass, MethodHandles.lookup());
+            constructor = lookup.findConstructor(modelClass, MethodType.methodType(void.class))
+                                .asType(MethodType.methodType(Object.class));
+            for (Class<?> clazz = modelClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                MethodHandles.Lookup classLookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+                for (Field field : clazz.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                        continue;
+                    }
+                    getterList.add(classLookup.unreflectGetter(field)
+                                              .asType(MethodType.methodType(Object.class, Object.class)));
+                    setterList.add(classLookup.unreflectSetter(field)
+                                              .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                }
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("cached model requires a no-arg constructor|" + modelClass.getName(), e);
+        }
+        getters = getterList.toArray(new MethodHandle[0]);
+        setters = setterList.toArray(new MethodHandle[0]);
+    }
+
+    Object copy(Object model) {
+        try {
+            Object copy = constructor.invoke();
+            for (int i = 0; i < getters.length; i++) {
+                setters[i].invoke(copy, getters[i].invoke(model));
+            }
+            return copy;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("copy model failed|" + model.getClass().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.zhihu.fust.spring.mybatis.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+
+/**
+ * broadcasts invalidations through redis pub/sub, requires spring-data-redis
+ * <p>
+ * one message per write: instanceId|cacheName, then one key per line, no key means all models.
+ * the messages of this instance are skipped, keys must not contain line breaks.
+ * <p>
+ * messages are sent by one background thread, the write does not wait for redis. when the queue is full
+ * the message is dropped, same as a lost one: pub/sub is at most once, a lost message is bounded by
+ * {@link com.zhihu.fust.spring.mybatis.annotations.Cached#expireAfterWriteSeconds()}
+ */
+public class RedisEntityCacheBroadcaster implements EntityCacheBroadcaster, MessageListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RedisEntityCacheBroadcaster.class);
+    private static final String SEPARATOR = "|";
+    private static final String KEY_SEPARATOR = "\n";
+    private static final int QUEUE_SIZE = 4096;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final ThreadPoolExecutor executor;
+
+    public RedisEntityCacheBroadcaster(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+                                               NamingPatternThreadFactory.of("entity-cache-broadcast-%d", true));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * receive the invalidations of other instances
+     */
+    public void subscribe(RedisMessageListenerContainer container) {
+        container.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @Override
+    public void publish(String cacheName, Collection<String> keys) {
+        StringBuilder message = new StringBuilder(instanceId).append(SEPARATOR).append(cacheName);
+        if (keys != null) {
+            for (String key : keys) {
+                message.append(KEY_SEPARATOR).append(key);
+            }
+        }
+        try {
+            executor.execute(() -> send(message.toString()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("publish entity cache invalidation rejected|{}", cacheName);
+        }
+    }
+
+    private void send(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (RuntimeException e) {
+            // the write is done, other instances expire the model by ttl
+            logger.warn("publish entity cache invalidation failed|{}", message, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split(KEY_SEPARATOR);
+        String[] parts = lines[0].split("\\|", 2);
+        if (parts.length < 2 || instanceId.equals(parts[0])) {
+            return;
+        }
+        if (lines.length == 1) {
+            EntityCaches.invalidateLocal(parts[1], null);
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            EntityCaches.invalidateLocal(parts[1], lines[i]);
+        }
+    }
+
+    /**
+     * send the queued messages and stop the thread
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.zhihu.fust.spring.mybatis.extend;
 
 import com.zhihu.fust.commons.lang.StringUtils;
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
 import com.zhihu.fust.spring.jdbc.DataSourceAdapter;
 import com.zhihu.fust.spring.jdbc.DefaultDataSourceWrapper;
 import com.zhihu.fust.spring.jdbc.JdbcConnectionFactory;
 import com.zhihu.fust.spring.jdbc.JdbcConnectionStrategy;
 import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
 import org.apache.ibatis.binding.MapperRegistry;
+import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
@@ -18,7 +20,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
 
+import javax.sql.DataSource;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class DefaultConfiguration extends Configuration {
 
@@ -26,6 +35,7 @@ public class DefaultConfiguration extends Configuration {
     private final MapperRegistry registry = new DefaultMapperRegistry(this);
     private final Map<String, SqlSessionTemplate> sessionTemplateMap = new HashMap<>();
     private final Map<String, Configuration> configurationMap = new HashMap<>();
+    private final Map<String, Long> mapperParseMillis = new ConcurrentHashMap<>();
     private final String defaultName;
 
     public DefaultConfiguration(Map<String, DataSourceAdapter> targetDataSources,
@@ -36,6 +46,17 @@ public class DefaultConfiguration extends Configuration {
     public DefaultConfiguration(Map<String, DataSourceAdapter> targetDataSources,
                                 DefaultExecutorInterceptorContext interceptorContext,
                                 List<Interceptor> interceptorList) {
+        this(targetDataSources, interceptorContext, interceptorList, false);
+    }
+
+    /**
+     * @param parallelSchemeInit build the configurations of the schemes in parallel, off by default.
+     *                           compare the cost of the "build scheme configurations" log with and without it
+     */
+    public DefaultConfiguration(Map<String, DataSourceAdapter> targetDataSources,
+                                DefaultExecutorInterceptorContext interceptorContext,
+                                List<Interceptor> interceptorList,
+                                boolean parallelSchemeInit) {
         Collection<DataSourceAdapter> values = targetDataSources.values();
         defaultName = values.stream()
                 .filter(DataSourceAdapter::isDefaultDb)
@@ -44,38 +65,122 @@ public class DefaultConfiguration extends Configuration {
                 .orElse("");
 
         // 生成多数据源的 SqlSessionTemplate
+        long start = System.nanoTime();
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
         targetDataSources.forEach((schemeName, adapter) -> {
             // put all adapters into the strategy, so we can get any adapter by schemeName
             JdbcConnectionStrategy strategy = new JdbcConnectionStrategy(schemeName, new ArrayList<>(values));
             JdbcConnectionFactory connectionFactory = new JdbcConnectionFactory(strategy);
             connectionFactory.setDirectMode(true);
-            DefaultDataSourceWrapper sourceWrapper = new DefaultDataSourceWrapper(connectionFactory);
-            SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
-            factory.setDataSource(sourceWrapper);
-            factory.setVfs(SpringBootVFS.class);
-            Configuration configuration = new Configuration();
-            factory.setConfiguration(configuration);
-
-            if (CollectionUtils.isEmpty(interceptorList)) {
-                Interceptor[] interceptors = {new DefaultExecutorInterceptor(interceptorContext)};
-                factory.setPlugins(interceptors);
-            } else {
-                Interceptor[] interceptors = new Interceptor[interceptorList.size() + 1];
-                interceptorList.toArray(interceptors);
-                interceptors[interceptorList.size()] = new DefaultExecutorInterceptor(interceptorContext);
-                factory.setPlugins(interceptors);
-            }
+            dataSources.put(schemeName, new DefaultDataSourceWrapper(connectionFactory));
+        });
 
-            try {
-                SqlSessionFactory sessionFactory = factory.getObject();
-                Objects.requireNonNull(sessionFactory, "session factory is null");
-                sessionTemplateMap.put(schemeName, new SqlSessionTemplate(sessionFactory));
-                configurationMap.put(schemeName, configuration);
-            } catch (Exception e) {
-                log.error("DefaultConfiguration error", e);
-                throw new IllegalArgumentException(e.getMessage());
-            }
+        boolean parallel = parallelSchemeInit && dataSources.size() > 1;
+        Map<String, SqlSessionFactory> sessionFactories = new LinkedHashMap<>();
+        if (parallel) {
+            sessionFactories.putAll(buildInParallel(dataSources, interceptorContext, interceptorList));
+        } else {
+            dataSources.forEach((schemeName, dataSource) -> sessionFactories.put(
+                    schemeName, buildSessionFactory(schemeName, dataSource, interceptorContext, interceptorList,
+                                                    true)));
+        }
+        sessionFactories.forEach((schemeName, sessionFactory) -> {
+            sessionTemplateMap.put(schemeName, new SqlSessionTemplate(sessionFactory));
+            configurationMap.put(schemeName, sessionFactory.getConfiguration());
         });
+        if (!dataSources.isEmpty()) {
+            log.info("build scheme configurations|count={}|parallel={}|cost={}ms", dataSources.size(), parallel,
+                     millis(start));
+        }
+    }
+
+    /**
+     * one thread per scheme at most. SqlSessionFactoryBean adds its VFS to the static list of MyBatis,
+     * which is not thread safe, so SpringBootVFS is added once here instead of by each factory
+     */
+    private Map<String, SqlSessionFactory> buildInParallel(Map<String, DataSource> dataSources,
+                                                           DefaultExecutorInterceptorContext interceptorContext,
+                                                           List<Interceptor> interceptorList) {
+        VFS.addImplClass(SpringBootVFS.class);
+        int threads = Math.min(dataSources.size(), Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(),
+                                                             NamingPatternThreadFactory.of("mybatis-scheme-init-%d",
+                                                                                           true));
+        Map<String, Future<SqlSessionFactory>> futures = new LinkedHashMap<>();
+        Map<String, SqlSessionFactory> sessionFactories = new LinkedHashMap<>();
+        try {
+            dataSources.forEach((schemeName, dataSource) -> futures.put(schemeName, executor.submit(
+                    () -> buildSessionFactory(schemeName, dataSource, interceptorContext, interceptorList, false))));
+            for (Map.Entry<String, Future<SqlSessionFactory>> entry : futures.entrySet()) {
+                sessionFactories.put(entry.getKey(), entry.getValue().get());
+            }
+            return sessionFactories;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("build scheme configurations interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("build scheme configurations error|" + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SqlSessionFactory buildSessionFactory(String schemeName, DataSource dataSource,
+                                                  DefaultExecutorInterceptorContext interceptorContext,
+                                                  List<Interceptor> interceptorList, boolean setVfs) {
+        long start = System.nanoTime();
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        if (setVfs) {
+            factory.setVfs(SpringBootVFS.class);
+        }
+        Configuration configuration = new Configuration();
+        factory.setConfiguration(configuration);
+
+        if (CollectionUtils.isEmpty(interceptorList)) {
+            Interceptor[] interceptors = {new DefaultExecutorInterceptor(interceptorContext)};
+            factory.setPlugins(interceptors);
+        } else {
+            Interceptor[] interceptors = new Interceptor[interceptorList.size() + 1];
+            interceptorList.toArray(interceptors);
+            interceptors[interceptorList.size()] = new DefaultExecutorInterceptor(interceptorContext);
+            factory.setPlugins(interceptors);
+        }
+
+        try {
+            SqlSessionFactory sessionFactory = factory.getObject();
+            Objects.requireNonNull(sessionFactory, "session factory is null");
+            log.info("build scheme configuration|{}|cost={}ms", schemeName, millis(start));
+            return sessionFactory;
+        } catch (Exception e) {
+            log.error("DefaultConfiguration error", e);
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * called by {@link DefaultMapperRegistry} after a mapper is parsed
+     */
+    void onMapperParsed(Class<?> mapperClass, String schemeName, long startNanos) {
+        long cost = millis(startNanos);
+        mapperParseMillis.put(mapperClass.getName(), cost);
+        log.debug("parse mapper|{}|scheme={}|cost={}ms", mapperClass.getName(), schemeName, cost);
+    }
+
+    /**
+     * @return parse time of the registered mappers in milliseconds, by mapper class name
+     */
+    public Map<String, Long> getMapperParseMillis() {
+        return Collections.unmodifiableMap(mapperParseMillis);
+    }
+
+    private static long millis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
     @Override
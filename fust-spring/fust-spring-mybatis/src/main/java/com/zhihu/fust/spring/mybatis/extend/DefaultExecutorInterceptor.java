@@ -1,9 +1,13 @@
 package com.zhihu.fust.spring.mybatis.extend;
 
+import java.sql.Statement;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.Interceptor;
@@ -14,10 +18,6 @@ import org.apache.ibatis.plugin.Signature;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
-import com.zhihu.fust.spring.mybatis.TableMeta;
-import com.zhihu.fust.spring.mybatis.operations.SqlOperation;
-import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
-
 @Intercepts({
         @Signature(
                 type = Executor.class,
@@ -59,6 +59,11 @@ public class DefaultExecutorInterceptor implements Interceptor {
     };
 
     private final DefaultExecutorInterceptorContext context;
+    private final Map<MappedStatement, StatementMeta> statementMetas = new ConcurrentHashMap<>();
+    /**
+     * true once a statement of a @DirectMapping model is met, until then result set handlers are not inspected
+     */
+    private volatile boolean directMapping;
 
     public DefaultExecutorInterceptor(DefaultExecutorInterceptorContext context) {
         if (context == null) {
@@ -67,17 +72,6 @@ public class DefaultExecutorInterceptor implements Interceptor {
         this.context = context;
     }
 
-    private void validatePatch(TableMeta tableMeta, MappedStatement mappedStatement) {
-        String msId = mappedStatement.getId();
-        String method = msId.substring(msId.lastIndexOf(".") + 1);
-        boolean isPatchMethod = method.equalsIgnoreCase(SqlOperation.BATCH_PATCH.name())
-                                || method.equalsIgnoreCase(SqlOperation.PATCH.name());
-        if (isPatchMethod && tableMeta != null && !tableMeta.isSupportPatch()) {
-            throw new IllegalArgumentException("patch method not support base type.table name:"
-                                               + tableMeta.getTableName());
-        }
-    }
-
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         Object target = invocation.getTarget();
@@ -85,17 +79,27 @@ public class DefaultExecutorInterceptor implements Interceptor {
         if (target instanceof Executor) {
             Object[] args = invocation.getArgs();
             MappedStatement ms = (MappedStatement) args[0];
-            TableMeta tableMeta = TableMetaUtil.getMetaByMapperName(ms.getResource());
+            StatementMeta meta = getStatementMeta(ms);
 
-            validatePatch(tableMeta, ms);
+            if (meta.getPatchError() != null) {
+                throw new IllegalArgumentException(meta.getPatchError());
+            }
 
-            if (tableMeta != null) {
-                String schema = tableMeta.getSchemaName();
-                context.setDatabaseName(schema);
+            if (meta.getSchemaName() != null) {
+                context.setDatabaseName(meta.getSchemaName());
             }
 
             try {
+                String executorMethod = invocation.getMethod().getName();
+                long cacheGeneration = EntityCacheSupport.getGeneration(meta, executorMethod, args[1]);
+                Object cached = EntityCacheSupport.lookup(meta, executorMethod, args[1]);
+                if (cached != null) {
+                    return cached;
+                }
+                OptimisticLockSupport.beforeUpdate(meta, args[1]);
                 result = invocation.proceed();
+                result = OptimisticLockSupport.afterUpdate(meta, args[1], result);
+                EntityCacheSupport.afterProceed(meta, executorMethod, args[1], result, cacheGeneration);
             } finally {
                 // clear db
                 context.setDatabaseName("");
@@ -104,12 +108,61 @@ public class DefaultExecutorInterceptor implements Interceptor {
         return result;
     }
 
+    StatementMeta getStatementMeta(MappedStatement ms) {
+        // mapped statements do not override equals/hashCode, the lookup is by identity
+        StatementMeta meta = statementMetas.get(ms);
+        if (meta == null) {
+            meta = statementMetas.computeIfAbsent(ms, this::createStatementMeta);
+        }
+        return meta;
+    }
+
+    private StatementMeta createStatementMeta(MappedStatement ms) {
+        StatementMeta meta = StatementMeta.of(ms);
+        if (meta.getRowMapper() != null) {
+            directMapping = true;
+        }
+        return meta;
+    }
+
+    /**
+     * @return row mapper of a @DirectMapping statement, null to keep the mybatis mapping
+     */
+    private RowMapper getRowMapper(Object resultSetHandler) {
+        MappedStatement ms = RowMapper.mappedStatementOf(resultSetHandler);
+        if (ms == null) {
+            return null;
+        }
+        RowMapper rowMapper = getStatementMeta(ms).getRowMapper();
+        return rowMapper != null && RowMapper.isPlainList(resultSetHandler) ? rowMapper : null;
+    }
+
     @Override
     public Object plugin(Object target) {
+        if (target instanceof ResultSetHandler) {
+            // result set handlers are created per query after the executor call of the statement,
+            // only the ones of a @DirectMapping statement are wrapped, with the row mapper resolved here
+            RowMapper rowMapper = directMapping ? getRowMapper(target) : null;
+            return rowMapper == null ? target : Plugin.wrap(target, new DirectMappingInterceptor(rowMapper));
+        }
         return Plugin.wrap(target, this);
     }
 
     @Override
     public void setProperties(Properties properties) {
     }
+
+    @Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = { Statement.class }))
+    private static final class DirectMappingInterceptor implements Interceptor {
+        private final RowMapper rowMapper;
+
+        private DirectMappingInterceptor(RowMapper rowMapper) {
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            return rowMapper.handleResultSets((Statement) invocation.getArgs()[0]);
+        }
+    }
 }
@@ -72,12 +72,17 @@ import org.apache.ibatis.type.UnknownTypeHandler;
 import com.zhihu.fust.spring.mybatis.TemplateDao;
 import com.zhihu.fust.spring.mybatis.operations.BatchCreateOp;
 import com.zhihu.fust.spring.mybatis.operations.BatchPatchOp;
+import com.zhihu.fust.spring.mybatis.operations.BatchUpsertOp;
+import com.zhihu.fust.spring.mybatis.operations.CreateIgnoreOp;
 import com.zhihu.fust.spring.mybatis.operations.CreateOp;
+import com.zhihu.fust.spring.mybatis.operations.FindByIdListOp;
 import com.zhihu.fust.spring.mybatis.operations.FindOp;
 import com.zhihu.fust.spring.mybatis.operations.Operation;
 import com.zhihu.fust.spring.mybatis.operations.PatchOp;
 import com.zhihu.fust.spring.mybatis.operations.RemoveOp;
+import com.zhihu.fust.spring.mybatis.operations.ScanBatchOp;
 import com.zhihu.fust.spring.mybatis.operations.UpdateOp;
+import com.zhihu.fust.spring.mybatis.operations.UpsertOp;
 import com.zhihu.fust.spring.mybatis.util.ClassUtils;
 
 /**
@@ -694,7 +699,12 @@ public class DefaultMapperAnnotationBuilder extends MapperAnnotationBuilder {
                 new RemoveOp(),
                 new BatchCreateOp(),
                 new PatchOp(),
-                new BatchPatchOp()
+                new BatchPatchOp(),
+                new ScanBatchOp(),
+                new FindByIdListOp(),
+                new UpsertOp(),
+                new BatchUpsertOp(),
+                new CreateIgnoreOp()
         ).collect(toList());
     }
 
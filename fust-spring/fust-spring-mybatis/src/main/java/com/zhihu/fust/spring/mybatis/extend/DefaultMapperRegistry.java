@@ -59,8 +59,10 @@ public class DefaultMapperRegistry extends MapperRegistry {
                 // mapper parser. If the type is already known, it won't try.
                 String schemeName = TableMetaUtil.getScheme(type);
                 Configuration cfg = config.getSchemeConfig(schemeName);
+                long start = System.nanoTime();
                 MapperAnnotationBuilder parser = new DefaultMapperAnnotationBuilder(cfg, type);
                 parser.parse();
+                config.onMapperParsed(type, schemeName, start);
                 loadCompleted = true;
             } finally {
                 if (!loadCompleted) {
@@ -5,14 +5,19 @@ import static com.google.common.base.CaseFormat.LOWER_UNDERSCORE;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 
 import com.zhihu.fust.commons.lang.StringUtils;
 import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTable;
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTables;
 
 public class DefaultResultMapRegister {
     public static void registerResultMap(Class<?> mapperClass, Class<?> entityClass,
@@ -23,12 +28,16 @@ public class DefaultResultMapRegister {
     public static void registerResultMap(Class<?> mapperClass, Class<?> entityClass,
                                          Configuration configuration, String resultId) {
         Field[] declaredFields = entityClass.getDeclaredFields();
+        Map<String, String> precompiledColumns = getPrecompiledColumns(entityClass);
         List<ResultMapping> resultMappings = new LinkedList<>();
         for (Field field : declaredFields) {
             if (!Modifier.isStatic(field.getModifiers())) { // 忽略静态属性
                 String propertyName = field.getName();
-                String rawColumnName = TableMeta.getColumnName(field);
-                String column = LOWER_CAMEL.to(LOWER_UNDERSCORE, rawColumnName);
+                String column = precompiledColumns.get(propertyName);
+                if (column == null) {
+                    String rawColumnName = TableMeta.getColumnName(field);
+                    column = LOWER_CAMEL.to(LOWER_UNDERSCORE, rawColumnName);
+                }
                 Class<?> type = field.getType();
                 ResultMapping mapping = new ResultMapping.Builder(configuration, propertyName, column,
                                                                   type).build();
@@ -50,4 +59,21 @@ public class DefaultResultMapRegister {
         }
 
     }
+
+    /**
+     * @return property to result column generated at compile time, empty if absent
+     */
+    private static Map<String, String> getPrecompiledColumns(Class<?> entityClass) {
+        PrecompiledTable table = PrecompiledTables.get(entityClass);
+        if (table == null) {
+            return Collections.emptyMap();
+        }
+        String[] properties = table.getProperties();
+        String[] columns = table.getResultColumns();
+        Map<String, String> precompiledColumns = new HashMap<>(properties.length * 4 / 3 + 1);
+        for (int i = 0; i < properties.length; i++) {
+            precompiledColumns.put(properties[i], columns[i]);
+        }
+        return precompiledColumns;
+    }
 }
@@ -0,0 +1,125 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zhihu.fust.spring.jdbc.JdbcConnectionHint;
+import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.cache.EntityCache;
+import com.zhihu.fust.spring.mybatis.operations.SqlOperation;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+
+/**
+ * entity cache of the @Cached models in front of find
+ * <ul>
+ *     <li>find reads through the cache, except in a transaction or with the master hint</li>
+ *     <li>the found model is put, except in a transaction, it may not be committed, or after a write of the
+ *     request, it may be read from a replica not having the write. the model is not put if the key was
+ *     invalidated since the find started</li>
+ *     <li>update, patch, batchPatch, remove, upsert and batchUpsert invalidate the models by key,
+ *     in a transaction again after completion, a model read by other threads before commit is dropped.
+ *     a model without key (upsert by unique key) invalidates the whole cache</li>
+ *     <li>other instances are notified once per write with all its keys, in a transaction after the commit only,
+ *     before it they can only read the old rows</li>
+ * </ul>
+ */
+final class EntityCacheSupport {
+    private static final String QUERY = "query";
+
+    private EntityCacheSupport() {
+    }
+
+    /**
+     * @return generation of the find key, read before the find, 0 if not a cached find
+     */
+    static long getGeneration(StatementMeta meta, String executorMethod, Object parameter) {
+        return isFind(meta, executorMethod, parameter) ? meta.getEntityCache().getGeneration(parameter) : 0;
+    }
+
+    /**
+     * @return the cached result of find, null if not cached
+     */
+    static Object lookup(StatementMeta meta, String executorMethod, Object parameter) {
+        if (!isFind(meta, executorMethod, parameter)
+            || TransactionSynchronizationManager.isActualTransactionActive()
+            || JdbcConnectionHint.isMaster()) {
+            return null;
+        }
+        Object model = meta.getEntityCache().get(parameter);
+        return model == null ? null : Collections.singletonList(model);
+    }
+
+    static void afterProceed(StatementMeta meta, String executorMethod, Object parameter, Object result,
+                             long generation) {
+        SqlOperation operation = meta.getCachedOperation();
+        if (operation == null) {
+            return;
+        }
+        EntityCache cache = meta.getEntityCache();
+        if (operation == SqlOperation.FIND) {
+            if (isFind(meta, executorMethod, parameter)
+                && result instanceof List && ((List<?>) result).size() == 1
+                && !TransactionSynchronizationManager.isActualTransactionActive()
+                && !JdbcConnectionHint.hasWrites()) {
+                cache.put(parameter, ((List<?>) result).get(0), generation);
+            }
+            return;
+        }
+
+        Collection<?> keys = getKeys(operation, parameter);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(keys);
+            return;
+        }
+        cache.invalidateLocal(keys);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.invalidateLocal(keys);
+                if (status == STATUS_COMMITTED) {
+                    cache.broadcast(keys);
+                }
+            }
+        });
+    }
+
+    private static boolean isFind(StatementMeta meta, String executorMethod, Object parameter) {
+        return meta.getCachedOperation() == SqlOperation.FIND && QUERY.equals(executorMethod) && parameter != null;
+    }
+
+    /**
+     * @return keys of the written rows, null if some key is unknown
+     */
+    private static Collection<?> getKeys(SqlOperation operation, Object parameter) {
+        if (operation == SqlOperation.REMOVE) {
+            return parameter == null ? Collections.emptyList() : Collections.singletonList(parameter);
+        }
+        List<?> models;
+        if (operation == SqlOperation.PATCH || operation == SqlOperation.UPSERT) {
+            models = Collections.singletonList(parameter);
+        } else if (parameter instanceof Map) {
+            Map<?, ?> params = (Map<?, ?>) parameter;
+            String name = operation == SqlOperation.UPDATE ? Constants.ENTITY : Constants.ENTITIES;
+            Object value = params.containsKey(name) ? params.get(name) : null;
+            models = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+        } else {
+            return null;
+        }
+
+        Object[] keys = new Object[models.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Object model = models.get(i);
+            keys[i] = model == null ? null : TableMetaUtil.getKeyValue(model);
+            if (keys[i] == null) {
+                return null;
+            }
+        }
+        return Arrays.asList(keys);
+    }
+}
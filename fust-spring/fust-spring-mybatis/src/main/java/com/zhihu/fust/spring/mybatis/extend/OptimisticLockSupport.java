@@ -0,0 +1,139 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.operations.SqlOperation;
+
+/**
+ * checks the updated rows of the versioned update, patch and batchPatch
+ * <ul>
+ *     <li>a model without version is rejected before the statement, {@code version = NULL} never matches</li>
+ *     <li>all rows matched: the version of the models is increased by 1, same as the row, so the model can be
+ *     updated again. in a transaction the version is restored if the transaction does not commit</li>
+ *     <li>some rows not matched (version conflict or row deleted): 0 is returned, the method returns false.
+ *     batchPatch is one statement, the matched rows are still updated, call it in a transaction to roll back</li>
+ *     <li>batchPatch with the same id twice is rejected before the statement, the row matches once only</li>
+ * </ul>
+ */
+final class OptimisticLockSupport {
+
+    private OptimisticLockSupport() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the version of a model is null, or batchPatch has the same id twice
+     */
+    static void beforeUpdate(StatementMeta meta, Object parameter) {
+        if (meta.getVersionedOperation() == null) {
+            return;
+        }
+        String property = meta.getTableMeta().getVersionProperty();
+        String keyProperty = meta.getTableMeta().getKeyProperty();
+        Set<Object> ids = meta.getVersionedOperation() == SqlOperation.BATCH_PATCH ? new HashSet<>() : null;
+        for (Object model : getModels(meta.getVersionedOperation(), parameter)) {
+            if (model == null) {
+                continue;
+            }
+            MetaObject metaObject = SystemMetaObject.forObject(model);
+            if (metaObject.getValue(property) == null) {
+                throw new IllegalArgumentException("version is null|" + model.getClass().getName() + "." + property);
+            }
+            if (ids != null && !ids.add(metaObject.getValue(keyProperty))) {
+                throw new IllegalArgumentException("duplicate id|" + metaObject.getValue(keyProperty));
+            }
+        }
+    }
+
+    static Object afterUpdate(StatementMeta meta, Object parameter, Object result) {
+        if (meta.getVersionedOperation() == null || !(result instanceof Integer)) {
+            return result;
+        }
+        List<?> models = getModels(meta.getVersionedOperation(), parameter);
+        if (models.isEmpty()) {
+            return result;
+        }
+        if ((Integer) result < models.size()) {
+            return 0;
+        }
+        String property = meta.getTableMeta().getVersionProperty();
+        Map<Object, Runnable> restores = getTransactionRestores();
+        for (Object model : models) {
+            if (model == null) {
+                continue;
+            }
+            MetaObject metaObject = SystemMetaObject.forObject(model);
+            Object version = metaObject.getValue(property);
+            if (restores != null && !restores.containsKey(model)) {
+                restores.put(model, () -> metaObject.setValue(property, version));
+            }
+            increaseVersion(metaObject, property, version);
+        }
+        return result;
+    }
+
+    private static List<?> getModels(SqlOperation operation, Object parameter) {
+        if (operation == SqlOperation.PATCH) {
+            return Collections.singletonList(parameter);
+        }
+        if (!(parameter instanceof Map)) {
+            return Collections.emptyList();
+        }
+        Map<?, ?> params = (Map<?, ?>) parameter;
+        if (operation == SqlOperation.UPDATE && params.containsKey(Constants.ENTITY)) {
+            return Collections.singletonList(params.get(Constants.ENTITY));
+        }
+        if (operation == SqlOperation.BATCH_PATCH && params.containsKey(Constants.ENTITIES)) {
+            return (List<?>) params.get(Constants.ENTITIES);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return model -> restore of the version before the first update in the transaction, run if it does not
+     * commit, null without transaction
+     */
+    private static Map<Object, Runnable> getTransactionRestores() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        // synchronizations of a suspended transaction are not listed, each transaction restores its own models
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof VersionRestore) {
+                return ((VersionRestore) synchronization).restores;
+            }
+        }
+        VersionRestore restore = new VersionRestore();
+        TransactionSynchronizationManager.registerSynchronization(restore);
+        return restore.restores;
+    }
+
+    private static void increaseVersion(MetaObject metaObject, String property, Object version) {
+        if (version instanceof Integer) {
+            metaObject.setValue(property, (Integer) version + 1);
+        } else if (version instanceof Long) {
+            metaObject.setValue(property, (Long) version + 1);
+        }
+    }
+
+    private static final class VersionRestore implements TransactionSynchronization {
+        private final Map<Object, Runnable> restores = new IdentityHashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                restores.values().forEach(Runnable::run);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.TypeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * decodes the rows of a TemplateDao select into the model of a {@link com.zhihu.fust.spring.mybatis.annotations.DirectMapping}
+ * result map, same result as the mybatis result set handler for a flat result map:
+ * <ul>
+ *     <li>the column of a property is matched case-insensitively against the column labels,
+ *     indexes are resolved once per result set shape, bounded by {@link #MAX_SHAPES}</li>
+ *     <li>values are read by the type handler of the result mapping, by index instead of by label</li>
+ *     <li>null values are not set unless callSettersOnNulls (never on primitives),
+ *     a row without values is null unless returnInstanceForEmptyRow</li>
+ *     <li>columns are not auto-mapped, a model with fields out of the result map (e.g. inherited from a super
+ *     class) is left to mybatis when auto-mapping applies</li>
+ * </ul>
+ */
+final class RowMapper {
+    private static final Logger logger = LoggerFactory.getLogger(RowMapper.class);
+
+    static final int MAX_SHAPES = 64;
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * private fields of the mybatis result set handler, null if they can not be read
+     */
+    private static final MethodHandle[] HANDLER_FIELDS = handlerFields("mappedStatement", "rowBounds",
+                                                                       "resultHandler");
+
+    private final Class<?> modelClass;
+    private final MethodHandle constructor;
+    private final String[] columns;
+    private final TypeHandler<?>[] typeHandlers;
+    private final MethodHandle[] setters;
+    private final boolean[] primitives;
+    private final boolean useColumnLabel;
+    private final boolean callSettersOnNulls;
+    private final boolean returnInstanceForEmptyRow;
+    private final Map<List<String>, int[]> shapes = new ConcurrentHashMap<>();
+
+    private RowMapper(Class<?> modelClass, MethodHandle constructor, String[] columns, TypeHandler<?>[] typeHandlers,
+                      MethodHandle[] setters, boolean[] primitives, Configuration configuration) {
+        this.modelClass = modelClass;
+        this.constructor = constructor;
+        this.columns = columns;
+        this.typeHandlers = typeHandlers;
+        this.setters = setters;
+        this.primitives = primitives;
+        this.useColumnLabel = configuration.isUseColumnLabel();
+        this.callSettersOnNulls = configuration.isCallSettersOnNulls();
+        this.returnInstanceForEmptyRow = configuration.isReturnInstanceForEmptyRow();
+    }
+
+    /**
+     * @return null if the result map can not be decoded directly, the mybatis mapping is kept
+     */
+    static RowMapper of(Configuration configuration, ResultMap resultMap) {
+        Class<?> modelClass = resultMap.getType();
+        if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null
+            || !resultMap.getConstructorResultMappings().isEmpty()
+            || configuration.getObjectFactory().getClass() != DefaultObjectFactory.class
+            || isAutoMapping(configuration, resultMap) && hasUnmappedFields(modelClass, resultMap)) {
+            return null;
+        }
+        List<ResultMapping> mappings = resultMap.getPropertyResultMappings();
+        int size = mappings.size();
+        String[] columns = new String[size];
+        TypeHandler<?>[] typeHandlers = new TypeHandler<?>[size];
+        MethodHandle[] setters = new MethodHandle[size];
+        boolean[] primitives = new boolean[size];
+        try {
+            MethodHandle constructor = MethodHandles.privateLookupIn(modelClass, MethodHandles.lookup())
+                                                    .findConstructor(modelClass, MethodType.methodType(void.class))
+                                                    .asType(MethodType.methodType(Object.class));
+            for (int i = 0; i < size; i++) {
+                ResultMapping mapping = mappings.get(i);
+                Field field = findField(modelClass, mapping.getProperty());
+                if (mapping.getColumn() == null || mapping.getTypeHandler() == null || field == null) {
+                    return null;
+                }
+                columns[i] = mapping.getColumn().toUpperCase(Locale.ENGLISH);
+                typeHandlers[i] = mapping.getTypeHandler();
+                setters[i] = setter(modelClass, field);
+                primitives[i] = field.getType().isPrimitive();
+            }
+            return new RowMapper(modelClass, constructor, columns, typeHandlers, setters, primitives, configuration);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            logger.warn("direct mapping disabled|{}|{}", modelClass.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return statement of a mybatis result set handler, null if it is not the default handler
+     */
+    static MappedStatement mappedStatementOf(Object resultSetHandler) {
+        if (HANDLER_FIELDS == null || resultSetHandler.getClass() != DefaultResultSetHandler.class) {
+            return null;
+        }
+        return (MappedStatement) readHandlerField(resultSetHandler, 0);
+    }
+
+    /**
+     * @param resultSetHandler a handler of {@link #mappedStatementOf(Object)}
+     * @return true if the handler returns a plain list, without result handler or row bounds
+     */
+    static boolean isPlainList(Object resultSetHandler) {
+        RowBounds rowBounds = (RowBounds) readHandlerField(resultSetHandler, 1);
+        return readHandlerField(resultSetHandler, 2) == null
+               && rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET
+               && rowBounds.getLimit() == RowBounds.NO_ROW_LIMIT;
+    }
+
+    private static Object readHandlerField(Object resultSetHandler, int index) {
+        try {
+            return HANDLER_FIELDS[index].invoke(resultSetHandler);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("read result set handler failed|" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * same result as {@link DefaultResultSetHandler#handleResultSets(Statement)} of a single flat result map
+     */
+    List<Object> handleResultSets(Statement statement) throws SQLException {
+        ResultSet rs = statement.getResultSet();
+        while (rs == null) {
+            // move forward to the first result set, in case the driver returns update counts first
+            if (statement.getMoreResults()) {
+                rs = statement.getResultSet();
+            } else if (statement.getUpdateCount() == -1) {
+                return new ArrayList<>();
+            }
+        }
+        try (ResultSet resultSet = rs) {
+            return map(resultSet);
+        }
+    }
+
+    List<Object> map(ResultSet rs) throws SQLException {
+        int[] indexes = getColumnIndexes(rs.getMetaData());
+        List<Object> rows = new ArrayList<>();
+        while (rs.next()) {
+            rows.add(mapRow(rs, indexes));
+        }
+        return rows;
+    }
+
+    private Object mapRow(ResultSet rs, int[] indexes) throws SQLException {
+        try {
+            Object row = (Object) constructor.invokeExact();
+            boolean foundValues = false;
+            for (int i = 0; i < indexes.length; i++) {
+                int index = indexes[i];
+                if (index == 0) {
+                    continue;
+                }
+                Object value = typeHandlers[i].getResult(rs, index);
+                if (value != null) {
+                    foundValues = true;
+                    setters[i].invokeExact(row, value);
+                } else if (callSettersOnNulls && !primitives[i]) {
+                    setters[i].invokeExact(row, value);
+                }
+            }
+            return foundValues || returnInstanceForEmptyRow ? row : null;
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("map row failed|" + modelClass.getName(), e);
+        }
+    }
+
+    /**
+     * @return 1-based column index of each property, 0 if the column is absent
+     */
+    private int[] getColumnIndexes(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            String label = useColumnLabel ? metaData.getColumnLabel(i + 1) : metaData.getColumnName(i + 1);
+            labels[i] = label.toUpperCase(Locale.ENGLISH);
+        }
+        List<String> shape = Arrays.asList(labels);
+        int[] indexes = shapes.get(shape);
+        if (indexes == null) {
+            indexes = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                indexes[i] = shape.indexOf(columns[i]) + 1;
+            }
+            if (shapes.size() < MAX_SHAPES) {
+                shapes.putIfAbsent(shape, indexes);
+            }
+        }
+        return indexes;
+    }
+
+    int getShapeCount() {
+        return shapes.size();
+    }
+
+    /**
+     * same as the result set handler: the result map setting first, then the configuration for a flat result map
+     */
+    private static boolean isAutoMapping(Configuration configuration, ResultMap resultMap) {
+        if (resultMap.getAutoMapping() != null) {
+            return resultMap.getAutoMapping();
+        }
+        return configuration.getAutoMappingBehavior() != AutoMappingBehavior.NONE;
+    }
+
+    /**
+     * @return true if a non static field of the model or its super classes is not in the result map,
+     * mybatis may auto-map a column to it
+     */
+    private static boolean hasUnmappedFields(Class<?> modelClass, ResultMap resultMap) {
+        for (Class<?> clazz = modelClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())
+                    && !resultMap.getMappedProperties().contains(field.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Field findField(Class<?> modelClass, String property) {
+        for (Class<?> clazz = modelClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.getName().equals(property) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * the setter method like mybatis if present, the field otherwise
+     */
+    private static MethodHandle setter(Class<?> modelClass, Field field) throws IllegalAccessException {
+        String property = field.getName();
+        String setterName = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Class<?> clazz = modelClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.getName().equals(setterName) && method.getParameterCount() == 1
+                    && method.getParameterTypes()[0] == field.getType() && !Modifier.isStatic(method.getModifiers())) {
+                    return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup())
+                                        .unreflect(method)
+                                        .asType(SETTER_TYPE);
+                }
+            }
+        }
+        if (Modifier.isFinal(field.getModifiers())) {
+            throw new IllegalAccessException("final field without setter|" + property);
+        }
+        return MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                            .unreflectSetter(field)
+                            .asType(SETTER_TYPE);
+    }
+
+    private static MethodHandle[] handlerFields(String... names) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(DefaultResultSetHandler.class,
+                                                                        MethodHandles.lookup());
+            MethodHandle[] getters = new MethodHandle[names.length];
+            for (int i = 0; i < names.length; i++) {
+                getters[i] = lookup.unreflectGetter(DefaultResultSetHandler.class.getDeclaredField(names[i]));
+            }
+            return getters;
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            logger.warn("direct mapping disabled, can not read DefaultResultSetHandler|{}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.annotations.DirectMapping;
+import com.zhihu.fust.spring.mybatis.cache.EntityCache;
+import com.zhihu.fust.spring.mybatis.cache.EntityCaches;
+import com.zhihu.fust.spring.mybatis.operations.SqlOperation;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+
+/**
+ * per MappedStatement metadata used by {@link DefaultExecutorInterceptor}, computed once per statement
+ * instead of parsing the statement id and looking up the table meta on every call
+ */
+final class StatementMeta {
+    private final TableMeta tableMeta;
+    private final String schemaName;
+    /**
+     * not null: patch statement of a model with primitive fields
+     */
+    private final String patchError;
+    /**
+     * update, patch or batchPatch of a model with @Version, null otherwise
+     */
+    private final SqlOperation versionedOperation;
+    /**
+     * find (read through) or a write invalidating the entity cache of a @Cached model, null otherwise
+     */
+    private final SqlOperation cachedOperation;
+    private final EntityCache entityCache;
+    /**
+     * find, findByIdList or scanBatch of a @DirectMapping model, null otherwise
+     */
+    private final RowMapper rowMapper;
+
+    private StatementMeta(TableMeta tableMeta, String patchError, SqlOperation versionedOperation,
+                          SqlOperation cachedOperation, EntityCache entityCache, RowMapper rowMapper) {
+        this.tableMeta = tableMeta;
+        this.schemaName = tableMeta == null ? null : tableMeta.getSchemaName();
+        this.patchError = patchError;
+        this.versionedOperation = versionedOperation;
+        this.cachedOperation = cachedOperation;
+        this.entityCache = entityCache;
+        this.rowMapper = rowMapper;
+    }
+
+    static StatementMeta of(MappedStatement mappedStatement) {
+        TableMeta tableMeta = TableMetaUtil.getMetaByMapperName(mappedStatement.getResource());
+        if (tableMeta == null) {
+            return new StatementMeta(null, null, null, null, null, null);
+        }
+        String msId = mappedStatement.getId();
+        String method = msId.substring(msId.lastIndexOf('.') + 1);
+
+        String patchError = null;
+        boolean isPatchMethod = method.equalsIgnoreCase(SqlOperation.BATCH_PATCH.name())
+                                || method.equalsIgnoreCase(SqlOperation.PATCH.name());
+        if (isPatchMethod && !tableMeta.isSupportPatch()) {
+            patchError = "patch method not support base type.table name:" + tableMeta.getTableName();
+        }
+
+        SqlOperation versionedOperation = null;
+        if (tableMeta.isVersioned()) {
+            for (SqlOperation operation : new SqlOperation[]{SqlOperation.UPDATE, SqlOperation.PATCH,
+                                                             SqlOperation.BATCH_PATCH}) {
+                if (operation.getMethod().equals(method)) {
+                    versionedOperation = operation;
+                }
+            }
+        }
+
+        SqlOperation cachedOperation = null;
+        Class<?> modelClass = TableMetaUtil.getModelClassByMapperName(mappedStatement.getResource());
+        EntityCache entityCache = modelClass == null ? null : EntityCaches.get(modelClass);
+        if (entityCache != null) {
+            for (SqlOperation operation : new SqlOperation[]{SqlOperation.FIND, SqlOperation.UPDATE,
+                                                             SqlOperation.PATCH, SqlOperation.BATCH_PATCH,
+                                                             SqlOperation.REMOVE, SqlOperation.UPSERT,
+                                                             SqlOperation.BATCH_UPSERT}) {
+                if (operation.getMethod().equals(method)) {
+                    cachedOperation = operation;
+                }
+            }
+        }
+        return new StatementMeta(tableMeta, patchError, versionedOperation, cachedOperation,
+                                 cachedOperation == null ? null : entityCache,
+                                 rowMapper(mappedStatement, modelClass, method));
+    }
+
+    private static RowMapper rowMapper(MappedStatement mappedStatement, Class<?> modelClass, String method) {
+        if (modelClass == null || !modelClass.isAnnotationPresent(DirectMapping.class)
+            || mappedStatement.getResultMaps().size() != 1 || mappedStatement.getResultSets() != null) {
+            return null;
+        }
+        ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+        for (SqlOperation operation : new SqlOperation[]{SqlOperation.FIND, SqlOperation.FIND_BY_ID_LIST,
+                                                         SqlOperation.SCAN_BATCH}) {
+            if (operation.getMethod().equals(method) && resultMap.getType() == modelClass) {
+                return RowMapper.of(mappedStatement.getConfiguration(), resultMap);
+            }
+        }
+        return null;
+    }
+
+    TableMeta getTableMeta() {
+        return tableMeta;
+    }
+
+    /**
+     * @return schema of the model, null if the statement is not of a TemplateDao mapper
+     */
+    String getSchemaName() {
+        return schemaName;
+    }
+
+    String getPatchError() {
+        return patchError;
+    }
+
+    SqlOperation getVersionedOperation() {
+        return versionedOperation;
+    }
+
+    SqlOperation getCachedOperation() {
+        return cachedOperation;
+    }
+
+    EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    RowMapper getRowMapper() {
+        return rowMapper;
+    }
+}
@@ -54,21 +54,36 @@ public abstract class AbstractOperation implements Operation {
                                                  String resultMap, Class<?> resultType,
                                                  KeyGenerator keyGenerator,
                                                  String keyProperty, String keyColumn) {
+        /* 缓存逻辑处理 */
+        boolean isSelect = false;
+        if (sqlCommandType == SqlCommandType.SELECT) {
+            isSelect = true;
+        }
+        return addMappedStatement(mapperClass, id, sqlSource, sqlCommandType, parameterClass, resultMap, resultType,
+                                  keyGenerator, keyProperty, keyColumn, !isSelect, isSelect);
+    }
+
+    /**
+     * @param flushCache 执行前清空一级缓存
+     * @param useCache   使用二级缓存
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    protected MappedStatement addMappedStatement(Class<?> mapperClass, String id, SqlSource sqlSource,
+                                                 SqlCommandType sqlCommandType, Class<?> parameterClass,
+                                                 String resultMap, Class<?> resultType,
+                                                 KeyGenerator keyGenerator,
+                                                 String keyProperty, String keyColumn,
+                                                 boolean flushCache, boolean useCache) {
         String statementName = mapperClass.getName() + "." + id;
         if (configuration.hasStatement(statementName, false)) {
             logger.error("{" + statementName + "} " +
                          "Has been loaded by XML or SqlProvider, ignoring the injection of the SQL.");
             return null;
         }
-        /* 缓存逻辑处理 */
-        boolean isSelect = false;
-        if (sqlCommandType == SqlCommandType.SELECT) {
-            isSelect = true;
-        }
         return builderAssistant.addMappedStatement(id, sqlSource, StatementType.PREPARED, sqlCommandType, null,
                                                    null, null,
-                                                   parameterClass, resultMap, resultType, null, !isSelect,
-                                                   isSelect, false, keyGenerator, keyProperty, keyColumn,
+                                                   parameterClass, resultMap, resultType, null, flushCache,
+                                                   useCache, false, keyGenerator, keyProperty, keyColumn,
                                                    configuration.getDatabaseId(), languageDriver, null);
     }
 }
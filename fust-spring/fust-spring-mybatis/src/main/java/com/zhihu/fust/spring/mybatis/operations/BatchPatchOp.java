@@ -5,6 +5,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.SqlSource;
 
+import com.zhihu.fust.spring.mybatis.Constants;
 import com.zhihu.fust.spring.mybatis.TableMeta;
 
 /**
@@ -12,12 +13,29 @@ import com.zhihu.fust.spring.mybatis.TableMeta;
  * @date 2021/4/23
  */
 public class BatchPatchOp extends AbstractOperation {
+    private static final String ID_IN_CONDITION = "id in "
+                                                  + "<foreach collection='list' item='et' separator=',' open='(' close=')'>"
+                                                  + "#{et.id}"
+                                                  + "</foreach>";
+    /**
+     * (id = 1 and version = 3) or (id = 2 and version = 5)
+     */
+    private static final String ID_VERSION_CONDITION_FMT = "<foreach collection='list' item='et' separator=' or ' open='(' close=')'>"
+                                                           + "(id = #{et.id} and `%s` = #{et.%s})"
+                                                           + "</foreach>";
+
     @Override
     public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
 
         String values = tableMeta.getValuesForBatchPatch();
+        String condition = ID_IN_CONDITION;
+        if (tableMeta.isVersioned()) {
+            String versionColumn = tableMeta.getVersionColumn();
+            values += String.format(Constants.VERSION_INCREASE_FMT, versionColumn, versionColumn) + ",";
+            condition = String.format(ID_VERSION_CONDITION_FMT, versionColumn, tableMeta.getVersionProperty());
+        }
 
-        String sql = SqlOperation.BATCH_PATCH.format(tableMeta.getTableName(), values);
+        String sql = SqlOperation.BATCH_PATCH.format(tableMeta.getTableName(), values, condition);
         SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
 
         return addMappedStatement(mapperClass, SqlOperation.BATCH_PATCH.getMethod(), sqlSource, SqlCommandType.UPDATE,
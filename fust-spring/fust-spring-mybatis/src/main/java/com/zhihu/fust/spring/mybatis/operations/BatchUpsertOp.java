@@ -0,0 +1,51 @@
+package com.zhihu.fust.spring.mybatis.operations;
+
+import static com.zhihu.fust.spring.mybatis.operations.SqlOperation.BATCH_UPSERT;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+
+import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.TableMeta;
+
+/**
+ * keys are not filled back: with updated rows the generated keys of a multi-row insert do not match the models
+ */
+public class BatchUpsertOp extends AbstractOperation {
+    private static final String UPDATE_FMT = "`%s` = IFNULL(VALUES(`%s`), `%s`)";
+
+    @Override
+    public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
+        List<Field> fields = tableMeta.getFieldsForUpdate();
+        String keyColumn = tableMeta.getKeyColumn();
+
+        String columns = "`" + keyColumn + "`" + fields.stream()
+                                                       .map(f -> ",`" + TableMeta.getColumnName(f) + "`")
+                                                       .collect(joining(""));
+        String values = "#{et." + tableMeta.getKeyProperty() + "}"
+                        + fields.stream().map(f -> ",#{et." + f.getName() + "}").collect(joining(""));
+        List<String> updateItems = fields.stream()
+                                         .map(TableMeta::getColumnName)
+                                         .map(c -> String.format(UPDATE_FMT, c, c, c))
+                                         .collect(toList());
+        if (tableMeta.isVersioned()) {
+            String versionColumn = tableMeta.getVersionColumn();
+            updateItems.add(String.format(Constants.VERSION_INCREASE_FMT, versionColumn, versionColumn));
+        }
+        String updates = updateItems.isEmpty()
+                         ? String.format("`%s` = `%s`", keyColumn, keyColumn)
+                         : String.join(",", updateItems);
+
+        String sql = BATCH_UPSERT.format(tableMeta.getTableName(), columns, values, updates);
+        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        return addMappedStatement(mapperClass, BATCH_UPSERT.getMethod(), sqlSource, SqlCommandType.INSERT,
+                                  modelClass, null, Boolean.class, new NoKeyGenerator(), null, null);
+    }
+}
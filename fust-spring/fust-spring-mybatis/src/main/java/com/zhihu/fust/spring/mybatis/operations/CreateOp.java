@@ -13,9 +13,6 @@ public class CreateOp extends AbstractOperation {
     @Override
     public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
 
-        String columns = tableMeta.getColumnsForCreate();
-        String values = tableMeta.getValuesForCreate();
-
         KeyGenerator keyGenerator;
         if (tableMeta.isUseManualId()) {
             keyGenerator = new NoKeyGenerator();
@@ -23,12 +20,9 @@ public class CreateOp extends AbstractOperation {
             keyGenerator = new Jdbc3KeyGenerator();
         }
 
-        String sql = SqlOperation.CREATE.format(tableMeta.getTableName(), columns, values);
-        // extend sql with if test
-
         String keyProperty = tableMeta.getKeyProperty();
         String keyColumn = tableMeta.getKeyColumn();
-        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        SqlSource sqlSource = NullMaskSqlSource.forCreate(configuration, tableMeta);
         return addMappedStatement(mapperClass, SqlOperation.CREATE.getMethod(), sqlSource, SqlCommandType.INSERT, modelClass,
                                   null, Boolean.class, keyGenerator, keyProperty, keyColumn);
     }
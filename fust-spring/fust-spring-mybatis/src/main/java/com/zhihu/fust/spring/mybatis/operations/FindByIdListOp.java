@@ -0,0 +1,17 @@
+package com.zhihu.fust.spring.mybatis.operations;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+
+public class FindByIdListOp extends AbstractOperation {
+    @Override
+    public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta table) {
+        String sql = SqlOperation.FIND_BY_ID_LIST.format(table.getTableName(), table.getKeyColumn());
+        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, Object.class);
+        String resultId = mapperClass.getName() + "." + modelClass.getSimpleName();
+        return this.addSelectMappedStatement(mapperClass, SqlOperation.FIND_BY_ID_LIST.getMethod(), sqlSource,
+                                             modelClass, resultId);
+    }
+}
@@ -0,0 +1,238 @@
+package com.zhihu.fust.spring.mybatis.operations;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+
+import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.util.BeanProperty;
+
+/**
+ * sql source of create, createIgnore, upsert and patch, replaces the {@code <if test='x != null'>} script
+ * <ul>
+ *     <li>properties are read once through {@link BeanProperty}, no OGNL evaluation or MetaObject per parameter</li>
+ *     <li>the sql and parameter mappings are built once per null mask (which properties are not null) and cached,
+ *     a model usually has only a few masks, the cache is bounded by {@link #MAX_SHAPES}</li>
+ *     <li>the values are passed as additional parameters, DefaultParameterHandler takes them from the BoundSql</li>
+ * </ul>
+ */
+final class NullMaskSqlSource implements SqlSource {
+    static final int MAX_SHAPES = 256;
+
+    private static final String PARAM_PREFIX = "__p";
+    private static final String KEY_PARAM = "__key";
+    private static final String VERSION_PARAM = "__version";
+
+    private enum Kind {
+        CREATE, CREATE_IGNORE, UPSERT, PATCH
+    }
+
+    private final Configuration configuration;
+    private final Kind kind;
+    private final String tableName;
+    private final String[] columns;
+    private final BeanProperty[] properties;
+    private final String keyColumn;
+    /**
+     * upsert: index of the key in properties, not updated on duplicate key
+     */
+    private final int keyIndex;
+    /**
+     * upsert: the key is generated by the database
+     */
+    private final boolean generatedKey;
+    /**
+     * patch: where condition
+     */
+    private final BeanProperty key;
+    /**
+     * patch and upsert: optimistic lock version column, increased by 1, null if absent
+     */
+    private final String versionColumn;
+    /**
+     * patch: version condition
+     */
+    private final BeanProperty version;
+    private final Map<BitSet, Shape> shapes = new ConcurrentHashMap<>();
+
+    private NullMaskSqlSource(Configuration configuration, Kind kind, TableMeta tableMeta,
+                              List<String> columns, List<BeanProperty> properties, int keyIndex, BeanProperty key) {
+        this.configuration = configuration;
+        this.kind = kind;
+        this.tableName = tableMeta.getTableName();
+        this.keyColumn = tableMeta.getKeyColumn();
+        this.columns = columns.toArray(new String[0]);
+        this.properties = properties.toArray(new BeanProperty[0]);
+        this.keyIndex = keyIndex;
+        this.generatedKey = kind == Kind.UPSERT && !tableMeta.isUseManualId();
+        this.key = key;
+        this.versionColumn = tableMeta.getVersionColumn();
+        this.version = kind == Kind.PATCH && tableMeta.isVersioned() ? BeanProperty.of(tableMeta.getVersionField()) : null;
+    }
+
+    private static NullMaskSqlSource of(Configuration configuration, Kind kind, TableMeta tableMeta,
+                                        List<Field> fields, BeanProperty key) {
+        List<String> columns = new ArrayList<>(fields.size());
+        List<BeanProperty> properties = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            columns.add(TableMeta.getColumnName(field));
+            properties.add(BeanProperty.of(field));
+        }
+        return new NullMaskSqlSource(configuration, kind, tableMeta, columns, properties, -1, key);
+    }
+
+    /**
+     * insert into t (`a`,`b`) values (?,?), null properties are skipped
+     */
+    static NullMaskSqlSource forCreate(Configuration configuration, TableMeta tableMeta) {
+        return of(configuration, Kind.CREATE, tableMeta, tableMeta.getFieldsForCreate(), null);
+    }
+
+    /**
+     * insert ignore into t (`a`,`b`) values (?,?), null properties are skipped
+     */
+    static NullMaskSqlSource forCreateIgnore(Configuration configuration, TableMeta tableMeta) {
+        return of(configuration, Kind.CREATE_IGNORE, tableMeta, tableMeta.getFieldsForCreate(), null);
+    }
+
+    /**
+     * insert into t (`id`,`a`) values (?,?) ON DUPLICATE KEY UPDATE `a` = VALUES(`a`),
+     * null properties are neither inserted nor updated.
+     * with a generated key, {@code `id` = LAST_INSERT_ID(`id`)} is added so the key of an updated row is returned
+     */
+    static NullMaskSqlSource forUpsert(Configuration configuration, Class<?> modelClass, TableMeta tableMeta) {
+        List<Field> fields = tableMeta.getFieldsForUpdate();
+        List<String> columns = new ArrayList<>(fields.size() + 1);
+        List<BeanProperty> properties = new ArrayList<>(fields.size() + 1);
+        // the key may be declared in a super class, it is not in the field lists
+        columns.add(tableMeta.getKeyColumn());
+        properties.add(BeanProperty.of(modelClass, tableMeta.getKeyProperty()));
+        for (Field field : fields) {
+            columns.add(TableMeta.getColumnName(field));
+            properties.add(BeanProperty.of(field));
+        }
+        return new NullMaskSqlSource(configuration, Kind.UPSERT, tableMeta, columns, properties, 0, null);
+    }
+
+    /**
+     * UPDATE t SET `a` = ?,`b` = ? WHERE `id` = ?, null properties are skipped
+     */
+    static NullMaskSqlSource forPatch(Configuration configuration, Class<?> modelClass, TableMeta tableMeta) {
+        return of(configuration, Kind.PATCH, tableMeta, tableMeta.getFieldsForUpdate(),
+                  BeanProperty.of(modelClass, tableMeta.getKeyProperty()));
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        Object[] values = new Object[properties.length];
+        BitSet mask = new BitSet(properties.length);
+        for (int i = 0; i < properties.length; i++) {
+            values[i] = properties[i].get(parameterObject);
+            if (values[i] != null) {
+                mask.set(i);
+            }
+        }
+        Shape shape = shapes.get(mask);
+        if (shape == null) {
+            shape = buildShape(mask);
+            if (shapes.size() < MAX_SHAPES) {
+                shapes.putIfAbsent(mask, shape);
+            }
+        }
+
+        BoundSql boundSql = new BoundSql(configuration, shape.sql, shape.parameterMappings, parameterObject);
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            boundSql.setAdditionalParameter(PARAM_PREFIX + i, values[i]);
+        }
+        if (key != null) {
+            boundSql.setAdditionalParameter(KEY_PARAM, key.get(parameterObject));
+        }
+        if (version != null) {
+            boundSql.setAdditionalParameter(VERSION_PARAM, version.get(parameterObject));
+        }
+        return boundSql;
+    }
+
+    int getShapeCount() {
+        return shapes.size();
+    }
+
+    private Shape buildShape(BitSet mask) {
+        List<ParameterMapping> mappings = new ArrayList<>(mask.cardinality() + 1);
+        StringBuilder names = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        StringBuilder updates = new StringBuilder();
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            String column = "`" + columns[i] + "`";
+            appendItem(names, column);
+            appendItem(values, kind == Kind.PATCH ? column + " = ?" : "?");
+            if (i != keyIndex) {
+                appendItem(updates, column + " = VALUES(" + column + ")");
+            }
+            mappings.add(new ParameterMapping.Builder(configuration, PARAM_PREFIX + i,
+                                                      properties[i].getType()).build());
+        }
+
+        String sql;
+        switch (kind) {
+            case PATCH:
+                if (versionColumn != null) {
+                    appendItem(values, String.format(Constants.VERSION_INCREASE_FMT, versionColumn, versionColumn));
+                }
+                sql = "UPDATE " + tableName + " SET " + values + " WHERE `" + keyColumn + "` = ?";
+                mappings.add(new ParameterMapping.Builder(configuration, KEY_PARAM, key.getType()).build());
+                if (version != null) {
+                    sql += " AND `" + versionColumn + "` = ?";
+                    mappings.add(new ParameterMapping.Builder(configuration, VERSION_PARAM, version.getType()).build());
+                }
+                break;
+            case UPSERT:
+                if (versionColumn != null) {
+                    appendItem(updates, String.format(Constants.VERSION_INCREASE_FMT, versionColumn, versionColumn));
+                }
+                if (generatedKey) {
+                    // the existing key is returned as the generated key when the row is updated
+                    appendItem(updates, "`" + keyColumn + "` = LAST_INSERT_ID(`" + keyColumn + "`)");
+                } else if (updates.length() == 0) {
+                    // nothing to update, keep the existing row
+                    appendItem(updates, "`" + keyColumn + "` = `" + keyColumn + "`");
+                }
+                sql = SqlOperation.UPSERT.format(tableName, names, values, updates);
+                break;
+            case CREATE_IGNORE:
+                sql = SqlOperation.CREATE_IGNORE.format(tableName, names, values);
+                break;
+            default:
+                sql = "insert into " + tableName + " (" + names + ") values (" + values + ")";
+                break;
+        }
+        return new Shape(sql, Collections.unmodifiableList(mappings));
+    }
+
+    private static void appendItem(StringBuilder builder, String item) {
+        if (builder.length() > 0) {
+            builder.append(',');
+        }
+        builder.append(item);
+    }
+
+    private static final class Shape {
+        private final String sql;
+        private final List<ParameterMapping> parameterMappings;
+
+        private Shape(String sql, List<ParameterMapping> parameterMappings) {
+            this.sql = sql;
+            this.parameterMappings = parameterMappings;
+        }
+    }
+}
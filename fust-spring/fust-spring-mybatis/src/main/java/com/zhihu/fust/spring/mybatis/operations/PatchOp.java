@@ -5,9 +5,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.SqlSource;
 
-import com.zhihu.fust.commons.lang.tuple.Pair;
 import com.zhihu.fust.spring.mybatis.TableMeta;
-import com.zhihu.fust.spring.mybatis.Constants;
 
 /**
  * @author pangzhanbo
@@ -17,11 +15,7 @@ public class PatchOp extends AbstractOperation {
     @Override
     public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
 
-        String values = tableMeta.getValuesForPatch();
-        String condition = Constants.GEN_EQ_SQL_PAIR.apply(Pair.of(tableMeta.getKeyColumn(), tableMeta.getKeyProperty()));
-
-        String sql = SqlOperation.PATCH.format(tableMeta.getTableName(), values, condition);
-        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        SqlSource sqlSource = NullMaskSqlSource.forPatch(configuration, modelClass, tableMeta);
 
         return addMappedStatement(mapperClass, SqlOperation.PATCH.getMethod(), sqlSource, SqlCommandType.UPDATE,
                                   modelClass, null, Boolean.class, new NoKeyGenerator(), null, null);
@@ -8,16 +8,19 @@ import org.apache.ibatis.mapping.SqlSource;
 import com.zhihu.fust.commons.lang.tuple.Pair;
 import com.zhihu.fust.spring.mybatis.TableMeta;
 import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTables;
 
 public class RemoveOp extends AbstractOperation {
 
     @Override
     public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
-        String condition = Constants.GEN_ENTITY_EQ_SQL_PAIR.apply(
-                Pair.of(tableMeta.getKeyColumn(), tableMeta.getKeyProperty()));
-        String sql = String.format(SqlOperation.REMOVE.getSql(), tableMeta.getTableName(), condition);
-
-        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        SqlSource sqlSource = PrecompiledTables.getSqlSource(configuration, modelClass, SqlOperation.REMOVE.getMethod());
+        if (sqlSource == null) {
+            String condition = Constants.GEN_ENTITY_EQ_SQL_PAIR.apply(
+                    Pair.of(tableMeta.getKeyColumn(), tableMeta.getKeyProperty()));
+            String sql = String.format(SqlOperation.REMOVE.getSql(), tableMeta.getTableName(), condition);
+            sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        }
         return addMappedStatement(
                 mapperClass, SqlOperation.REMOVE.getMethod(), sqlSource,
                 SqlCommandType.DELETE, null, null,
@@ -0,0 +1,20 @@
+package com.zhihu.fust.spring.mybatis.operations;
+
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+
+public class ScanBatchOp extends AbstractOperation {
+    @Override
+    public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta table) {
+        String sql = SqlOperation.SCAN_BATCH.format(table.getTableName(), table.getKeyColumn(), table.getKeyColumn());
+        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, Object.class);
+        String resultId = mapperClass.getName() + "." + modelClass.getSimpleName();
+        // 事务中的 session 一级缓存会保留每一批的结果，执行前清空，只保留当前批
+        return addMappedStatement(mapperClass, SqlOperation.SCAN_BATCH.getMethod(), sqlSource, SqlCommandType.SELECT,
+                                  null, resultId, modelClass, new NoKeyGenerator(), null, null, true, false);
+    }
+}
@@ -18,13 +18,28 @@ public enum SqlOperation {
                                 + "<foreach item='et' collection='list' open='' separator=',' close=''>(%s)</foreach>"
                                 + "</script>"),
 
+    /**
+     * 单个创建，主键或唯一键冲突时忽略，NullMaskSqlSource 按非 null 字段填充列和值
+     */
+    CREATE_IGNORE("createIgnore", "insert ignore into %s (%s) values (%s)"),
+
+    /**
+     * 单个插入或更新，NullMaskSqlSource 按非 null 字段填充列、值和更新项，null 字段不插入也不更新
+     */
+    UPSERT("upsert", "insert into %s (%s) values (%s) ON DUPLICATE KEY UPDATE %s"),
+
+    /**
+     * 批量插入或更新，由 batchUpsert 分批调用，插入时 null 字段写入 null，更新时 null 字段保持原值
+     */
+    BATCH_UPSERT("batchUpsertRows", "<script>insert into %s(%s) values "
+                                    + "<foreach item='et' collection='list' open='' separator=',' close=''>(%s)</foreach>"
+                                    + " ON DUPLICATE KEY UPDATE %s"
+                                    + "</script>"),
+
     BATCH_PATCH("batchPatch", "<script>"
                               + "update %s set "
                               + "<trim prefix=\"\" suffix=\"\" suffixOverrides=\",\" >%s</trim>"
-                              + "where id in "
-                              + "<foreach collection='list' item='et' separator=',' open='(' close=')'>"
-                              + "#{et.id}"
-                              + "</foreach>"
+                              + "where %s"
                               + "</script>"),
 
     /**
@@ -44,6 +59,20 @@ public enum SqlOperation {
      */
     FIND("find", "SELECT * FROM %s WHERE `%s`=#{%s}"),
 
+    /**
+     * 按主键列表查询，ids 由 findByIds 分批
+     */
+    FIND_BY_ID_LIST("findByIdList", "<script>SELECT * FROM %s WHERE `%s` IN "
+                                    + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>"
+                                    + "</script>"),
+
+    /**
+     * 按主键升序分批读取，从 after 之后开始
+     */
+    SCAN_BATCH("scanBatch", "<script>SELECT * FROM %s "
+                            + "<if test='after != null'>WHERE `%s` &gt; #{after} </if>"
+                            + "ORDER BY `%s` LIMIT #{limit}</script>"),
+
     /**
      * 仅支持 ID 删除
      */
@@ -10,21 +10,37 @@ import org.apache.ibatis.mapping.SqlSource;
 import com.zhihu.fust.commons.lang.tuple.Pair;
 import com.zhihu.fust.spring.mybatis.TableMeta;
 import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.precompiled.PrecompiledTables;
 
 public class UpdateOp extends AbstractOperation {
 
     @Override
     public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
+        SqlSource sqlSource = PrecompiledTables.getSqlSource(configuration, modelClass, UPDATE.getMethod());
+        if (sqlSource == null) {
+            sqlSource = createSqlSource(modelClass, tableMeta);
+        }
+        return addMappedStatement(mapperClass, UPDATE.getMethod(), sqlSource, SqlCommandType.UPDATE, modelClass,
+                                  null, Boolean.class, new NoKeyGenerator(), null, null);
+    }
 
+    private SqlSource createSqlSource(Class<?> modelClass, TableMeta tableMeta) {
         String values = tableMeta.getValuesForUpdate();
         String condition = Constants.GEN_ENTITY_EQ_SQL_PAIR.apply(
                 Pair.of(tableMeta.getKeyColumn(), tableMeta.getKeyProperty()));
+        if (tableMeta.isVersioned()) {
+            String versionColumn = tableMeta.getVersionColumn();
+            values = joinValues(values, String.format(Constants.VERSION_INCREASE_FMT, versionColumn, versionColumn));
+            condition += " AND " + Constants.GEN_ENTITY_EQ_SQL_PAIR.apply(
+                    Pair.of(versionColumn, tableMeta.getVersionProperty()));
+        }
 
         String sql = UPDATE.format(tableMeta.getTableName(), values, condition);
-        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        return languageDriver.createSqlSource(configuration, sql, modelClass);
+    }
 
-        return addMappedStatement(mapperClass, UPDATE.getMethod(), sqlSource, SqlCommandType.UPDATE, modelClass,
-                                  null, Boolean.class, new NoKeyGenerator(), null, null);
+    private static String joinValues(String values, String value) {
+        return values.isEmpty() ? value : values + "," + value;
     }
 
 }
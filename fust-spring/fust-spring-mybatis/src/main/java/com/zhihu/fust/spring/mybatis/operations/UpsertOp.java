@@ -0,0 +1,27 @@
+package com.zhihu.fust.spring.mybatis.operations;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+
+public class UpsertOp extends AbstractOperation {
+    @Override
+    public MappedStatement inject(Class<?> mapperClass, Class<?> modelClass, TableMeta tableMeta) {
+        KeyGenerator keyGenerator;
+        if (tableMeta.isUseManualId()) {
+            keyGenerator = new NoKeyGenerator();
+        } else {
+            keyGenerator = new Jdbc3KeyGenerator();
+        }
+
+        SqlSource sqlSource = NullMaskSqlSource.forUpsert(configuration, modelClass, tableMeta);
+        return addMappedStatement(mapperClass, SqlOperation.UPSERT.getMethod(), sqlSource, SqlCommandType.INSERT,
+                                  modelClass, null, Boolean.class, keyGenerator,
+                                  tableMeta.getKeyProperty(), tableMeta.getKeyColumn());
+    }
+}
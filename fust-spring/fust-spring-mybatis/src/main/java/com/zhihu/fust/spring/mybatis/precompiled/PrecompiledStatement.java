@@ -0,0 +1,26 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * sql with '?' placeholders and the parameter properties, no script to parse at startup
+ */
+public final class PrecompiledStatement {
+    private final String sql;
+    private final List<String> parameters;
+
+    public PrecompiledStatement(String sql, String... parameters) {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(Arrays.asList(parameters));
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+}
@@ -0,0 +1,30 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+/**
+ * table metadata and statements of a model generated at compile time by fust-spring-mybatis-processor,
+ * named {@code <Model>_FustTable} in the package of the model, nested classes are joined by '_'
+ */
+public interface PrecompiledTable {
+    String CLASS_SUFFIX = "_FustTable";
+
+    /**
+     * @return fingerprint of the model at compile time, see {@link PrecompiledTables#getFingerprint(Class)}
+     */
+    String getFingerprint();
+
+    /**
+     * @return non static fields declared by the model, in declaration order
+     */
+    String[] getProperties();
+
+    /**
+     * @return result columns of {@link #getProperties()}, in the same order
+     */
+    String[] getResultColumns();
+
+    /**
+     * @param method TemplateDao method, see SqlOperation
+     * @return the statement, null if it is built at runtime
+     */
+    PrecompiledStatement getStatement(String method);
+}
@@ -0,0 +1,148 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.annotations.DbAutoColumn;
+import com.zhihu.fust.spring.mybatis.annotations.ManualId;
+import com.zhihu.fust.spring.mybatis.annotations.Version;
+
+/**
+ * loads the {@link PrecompiledTable} of a model once, the statements fall back to reflection when it is absent
+ * or its fingerprint does not match the model (generated by an older build)
+ */
+public final class PrecompiledTables {
+    private static final Logger logger = LoggerFactory.getLogger(PrecompiledTables.class);
+
+    private static final ClassValue<Optional<PrecompiledTable>> TABLES = new ClassValue<Optional<PrecompiledTable>>() {
+        @Override
+        protected Optional<PrecompiledTable> computeValue(Class<?> modelClass) {
+            return Optional.ofNullable(load(modelClass));
+        }
+    };
+
+    private PrecompiledTables() {
+    }
+
+    /**
+     * @return precompiled table of the model, null if absent
+     */
+    public static PrecompiledTable get(Class<?> modelClass) {
+        return TABLES.get(modelClass).orElse(null);
+    }
+
+    /**
+     * @return sql source of the precompiled statement, null if absent
+     */
+    public static SqlSource getSqlSource(Configuration configuration, Class<?> modelClass, String method) {
+        PrecompiledTable table = get(modelClass);
+        PrecompiledStatement statement = table == null ? null : table.getStatement(method);
+        if (statement == null) {
+            return null;
+        }
+        List<ParameterMapping> mappings = new ArrayList<>(statement.getParameters().size());
+        for (String parameter : statement.getParameters()) {
+            // same as the script of an unknown parameter type, the type handler is resolved by the value
+            mappings.add(new ParameterMapping.Builder(configuration, parameter, Object.class).build());
+        }
+        return new StaticSqlSource(configuration, statement.getSql(), mappings);
+    }
+
+    static String getClassName(Class<?> modelClass) {
+        return modelClass.getName().replace('$', '_') + PrecompiledTable.CLASS_SUFFIX;
+    }
+
+    private static PrecompiledTable load(Class<?> modelClass) {
+        String className = getClassName(modelClass);
+        Class<?> tableClass;
+        try {
+            tableClass = Class.forName(className, true, modelClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        PrecompiledTable table;
+        try {
+            table = (PrecompiledTable) tableClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            logger.warn("load precompiled table error|{}", className, e);
+            return null;
+        }
+        if (!matches(table, modelClass)) {
+            logger.warn("precompiled table does not match the model, fall back to reflection|{}", className);
+            return null;
+        }
+        return table;
+    }
+
+    private static boolean matches(PrecompiledTable table, Class<?> modelClass) {
+        return getFingerprint(modelClass).equals(table.getFingerprint())
+               && table.getResultColumns().length == table.getProperties().length;
+    }
+
+    /**
+     * everything the precompiled statements are built from, same as TableDescriptor of the processor:
+     * {@code table|keyProperty:keyColumn|property:column:flags,...} of the non static declared fields,
+     * flags K for @Id or @ManualId, A for @DbAutoColumn, V for @Version
+     */
+    public static String getFingerprint(Class<?> modelClass) {
+        Table table = modelClass.getAnnotation(Table.class);
+        Field keyField = findKeyField(modelClass);
+        if (keyField == null && modelClass.getSuperclass() != null) {
+            keyField = findKeyField(modelClass.getSuperclass());
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        fingerprint.append(table == null ? "" : table.name()).append('|');
+        if (keyField != null) {
+            fingerprint.append(keyField.getName()).append(':').append(TableMeta.getColumnName(keyField));
+        }
+        fingerprint.append('|');
+        boolean first = true;
+        for (Field field : modelClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            if (!first) {
+                fingerprint.append(',');
+            }
+            first = false;
+            fingerprint.append(field.getName()).append(':').append(TableMeta.getColumnName(field)).append(':');
+            if (isKey(field)) {
+                fingerprint.append('K');
+            }
+            if (field.isAnnotationPresent(DbAutoColumn.class)) {
+                fingerprint.append('A');
+            }
+            if (field.isAnnotationPresent(Version.class)) {
+                fingerprint.append('V');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static Field findKeyField(Class<?> clazz) {
+        for (Field field : clazz.getDeclaredFields()) {
+            if (isKey(field)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKey(Field field) {
+        return field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(ManualId.class);
+    }
+}
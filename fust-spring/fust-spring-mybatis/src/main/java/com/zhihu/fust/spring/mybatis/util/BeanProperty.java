@@ -0,0 +1,88 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.google.common.base.CaseFormat;
+
+/**
+ * read a model property through a {@link MethodHandle}, resolved once instead of reflection per call
+ * <p>
+ * the public getter (getXxx or isXxx) is used if present, like mybatis MetaObject, otherwise the field.
+ */
+public final class BeanProperty {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String name;
+    private final Class<?> type;
+    private final MethodHandle getter;
+
+    private BeanProperty(String name, Class<?> type, MethodHandle getter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+    }
+
+    public static BeanProperty of(Field field) {
+        Class<?> owner = field.getDeclaringClass();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            Method method = findGetter(owner, field);
+            MethodHandle handle = method != null ? lookup.unreflect(method) : lookup.unreflectGetter(field);
+            return new BeanProperty(field.getName(), field.getType(), handle.asType(GETTER_TYPE));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("access property error|" + owner.getName() + "." + field.getName(), e);
+        }
+    }
+
+    /**
+     * @param modelClass model class, the property may be declared in a super class
+     */
+    public static BeanProperty of(Class<?> modelClass, String name) {
+        for (Class<?> c = modelClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return of(c.getDeclaredField(name));
+            } catch (NoSuchFieldException e) {
+                // try super class
+            }
+        }
+        throw new IllegalArgumentException("property not found|" + modelClass.getName() + "." + name);
+    }
+
+    private static Method findGetter(Class<?> owner, Field field) {
+        String suffix = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, field.getName());
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                Method method = owner.getMethod(prefix + suffix);
+                if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() == field.getType()) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // no such getter
+            }
+        }
+        return null;
+    }
+
+    public Object get(Object model) {
+        try {
+            return (Object) getter.invokeExact(model);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("get property error|" + name, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+}
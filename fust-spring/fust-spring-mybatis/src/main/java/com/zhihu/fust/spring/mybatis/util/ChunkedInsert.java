@@ -0,0 +1,38 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * insert a large list by fixed-size chunks, one multi-row insert per chunk
+ * <p>
+ * every full chunk has the same sql, so the prepared statement is reused, only the last chunk differs.
+ * the chunks are sub lists of the input, generated keys are filled back to the models in order.
+ */
+public final class ChunkedInsert {
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private ChunkedInsert() {
+    }
+
+    /**
+     * @param inserter  insert one chunk
+     * @param models    models to insert
+     * @param chunkSize max rows of one insert
+     * @return all chunks inserted
+     */
+    public static <T> boolean insert(Predicate<List<T>> inserter, List<T> models, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive|" + chunkSize);
+        }
+        if (models == null || models.isEmpty()) {
+            return false;
+        }
+        boolean inserted = true;
+        for (int from = 0; from < models.size(); from += chunkSize) {
+            List<T> chunk = models.subList(from, Math.min(models.size(), from + chunkSize));
+            inserted &= inserter.test(chunk);
+        }
+        return inserted;
+    }
+}
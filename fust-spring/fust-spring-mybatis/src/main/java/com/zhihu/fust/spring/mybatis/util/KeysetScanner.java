@@ -0,0 +1,91 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * read a table in primary key order batch by batch, the next batch starts after the key of the last row,
+ * a batch is loaded only when the previous one is consumed, so at most one batch is held in memory.
+ *
+ * @param <T> model
+ */
+public final class KeysetScanner<T> implements Iterator<T> {
+
+    @FunctionalInterface
+    public interface BatchLoader<T> {
+        /**
+         * @param after key of the last row of the previous batch, null for the first batch
+         * @param limit max rows of the batch
+         * @return rows in primary key order
+         */
+        List<T> load(Serializable after, int limit);
+    }
+
+    private final BatchLoader<T> loader;
+    private final int batchSize;
+    private Serializable after;
+    private List<T> batch = Collections.emptyList();
+    private int index;
+    private boolean exhausted;
+
+    private KeysetScanner(BatchLoader<T> loader, Serializable after, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive|" + batchSize);
+        }
+        this.loader = loader;
+        this.after = after;
+        this.batchSize = batchSize;
+    }
+
+    public static <T> Iterator<T> iterator(BatchLoader<T> loader, Serializable after, int batchSize) {
+        return new KeysetScanner<>(loader, after, batchSize);
+    }
+
+    public static <T> Stream<T> stream(BatchLoader<T> loader, Serializable after, int batchSize) {
+        Iterator<T> iterator = iterator(loader, after, batchSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < batch.size()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        if (!batch.isEmpty()) {
+            after = getKey(batch.get(batch.size() - 1));
+        }
+        List<T> next = loader.load(after, batchSize);
+        batch = next == null ? Collections.emptyList() : next;
+        index = 0;
+        // a short batch is the last one, skip the empty query at the end
+        exhausted = batch.size() < batchSize;
+        return !batch.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(index++);
+    }
+
+    private static Serializable getKey(Object row) {
+        Object key = TableMetaUtil.getKeyValue(row);
+        if (!(key instanceof Serializable)) {
+            throw new IllegalStateException("primary key is null or not serializable|" + row.getClass().getName());
+        }
+        return (Serializable) key;
+    }
+}
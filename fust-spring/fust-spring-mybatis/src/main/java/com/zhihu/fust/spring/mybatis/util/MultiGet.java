@@ -0,0 +1,179 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zhihu.fust.commons.lang.concurrent.NamingPatternThreadFactory;
+import com.zhihu.fust.spring.jdbc.JdbcConnectionHint;
+import com.zhihu.fust.spring.mybatis.FindByIdsResult;
+
+import io.opentelemetry.context.Context;
+
+/**
+ * load models by primary keys in IN-list chunks
+ * <ul>
+ *     <li>null and duplicated ids are dropped, integral ids are compared by value, e.g. 1 and 1L are the same</li>
+ *     <li>a chunk is padded with its last id to the next power of 2 (at most chunkSize),
+ *     so only a few sql shapes are prepared and the statement cache stays effective</li>
+ *     <li>parallel: chunks run on a bounded executor, each on its own connection, the caller thread takes the first
+ *     chunk. in a transaction, with a master hint or after a write (read-your-writes routing) the chunks run
+ *     sequentially on the caller thread</li>
+ * </ul>
+ */
+public final class MultiGet {
+    public static final int DEFAULT_CHUNK_SIZE = 200;
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_SIZE = 256;
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<>(QUEUE_SIZE),
+                                          NamingPatternThreadFactory.of("dao-multi-get-%d", true),
+                                          new ThreadPoolExecutor.CallerRunsPolicy());
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private MultiGet() {
+    }
+
+    /**
+     * @param loader    query one chunk
+     * @param ids       primary keys
+     * @param chunkSize max ids of one query
+     * @param parallel  run the chunks in parallel
+     */
+    public static <T> FindByIdsResult<T> find(Function<List<?>, List<T>> loader, Collection<?> ids,
+                                              int chunkSize, boolean parallel) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive|" + chunkSize);
+        }
+        // normalized key -> input id, in input order
+        Map<Object, Object> keys = new LinkedHashMap<>();
+        for (Object id : ids) {
+            if (id != null) {
+                keys.putIfAbsent(normalize(id), id);
+            }
+        }
+        if (keys.isEmpty()) {
+            return new FindByIdsResult<>(Collections.emptyList(), Collections.emptyList());
+        }
+
+        List<List<Object>> chunks = chunk(new ArrayList<>(keys.values()), chunkSize);
+        List<List<T>> results = parallel && canRunParallel(chunks.size())
+                                ? loadParallel(loader, chunks)
+                                : loadSequential(loader, chunks);
+
+        Map<Object, T> found = new HashMap<>(keys.size() * 4 / 3 + 1);
+        for (List<T> rows : results) {
+            for (T row : rows) {
+                found.putIfAbsent(normalize(TableMetaUtil.getKeyValue(row)), row);
+            }
+        }
+        List<T> models = new ArrayList<>(found.size());
+        List<Object> missingIds = new ArrayList<>();
+        keys.forEach((key, id) -> {
+            T model = found.get(key);
+            if (model != null) {
+                models.add(model);
+            } else {
+                missingIds.add(id);
+            }
+        });
+        return new FindByIdsResult<>(models, missingIds);
+    }
+
+    static List<List<Object>> chunk(List<Object> ids, int chunkSize) {
+        List<List<Object>> chunks = new ArrayList<>((ids.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Object> chunk = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + chunkSize)));
+            int shape = shapeSize(chunk.size(), chunkSize);
+            Object last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < shape) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static int shapeSize(int size, int chunkSize) {
+        int shape = Integer.highestOneBit(size);
+        if (shape < size) {
+            shape <<= 1;
+        }
+        return Math.min(shape, chunkSize);
+    }
+
+    static Object normalize(Object key) {
+        if (key instanceof Long) {
+            return key;
+        }
+        if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        if (key instanceof BigInteger && ((BigInteger) key).bitLength() < Long.SIZE) {
+            return ((BigInteger) key).longValue();
+        }
+        return key;
+    }
+
+    private static boolean canRunParallel(int chunks) {
+        // other threads can not join the transaction or see the thread-local hints and write marks
+        return chunks > 1
+               && !TransactionSynchronizationManager.isActualTransactionActive()
+               && !JdbcConnectionHint.isMaster()
+               && !JdbcConnectionHint.hasWrites();
+    }
+
+    private static <T> List<List<T>> loadSequential(Function<List<?>, List<T>> loader, List<List<Object>> chunks) {
+        List<List<T>> results = new ArrayList<>(chunks.size());
+        for (List<Object> chunk : chunks) {
+            results.add(loader.apply(chunk));
+        }
+        return results;
+    }
+
+    private static <T> List<List<T>> loadParallel(Function<List<?>, List<T>> loader, List<List<Object>> chunks) {
+        Context context = Context.current();
+        List<Future<List<T>>> futures = new ArrayList<>(chunks.size() - 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            List<Object> chunk = chunks.get(i);
+            futures.add(EXECUTOR.submit(context.wrap(() -> loader.apply(chunk))));
+        }
+        List<List<T>> results = new ArrayList<>(chunks.size());
+        try {
+            results.add(loader.apply(chunks.get(0)));
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("findByIds interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("findByIds error|" + cause.getMessage(), cause);
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+}
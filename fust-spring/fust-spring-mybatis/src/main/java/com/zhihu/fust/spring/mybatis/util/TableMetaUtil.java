@@ -1,14 +1,16 @@
 package com.zhihu.fust.spring.mybatis.util;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
+import org.apache.ibatis.reflection.SystemMetaObject;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zhihu.fust.commons.lang.StringUtils;
 import com.zhihu.fust.spring.mybatis.TableMeta;
@@ -16,17 +18,23 @@ import com.zhihu.fust.spring.mybatis.annotations.ManualId;
 
 public class TableMetaUtil {
     private static ObjectMapper objectMapper = new ObjectMapper();
-    private static Map<String, TableMeta> ginTableMetaCache = new HashMap<>();
-    private static Map<String, Class<?>> mapperModelClassCache = new HashMap<>();
-
-    public static synchronized TableMeta getTableMetaByModelClass(Class<?> entityClass) {
-
-        TableMeta tableMeta = ginTableMetaCache.get(entityClass.getName());
-        if (tableMeta != null) {
-            return tableMeta;
+    /**
+     * computed once per model class and read without locks
+     */
+    private static final ClassValue<TableMeta> TABLE_META_CACHE = new ClassValue<TableMeta>() {
+        @Override
+        protected TableMeta computeValue(Class<?> entityClass) {
+            return createTableMeta(entityClass);
         }
+    };
+    private static final Map<String, Class<?>> MAPPER_MODEL_CLASS_CACHE = new ConcurrentHashMap<>();
 
-        tableMeta = new TableMeta(entityClass.getDeclaredFields());
+    public static TableMeta getTableMetaByModelClass(Class<?> entityClass) {
+        return TABLE_META_CACHE.get(entityClass);
+    }
+
+    private static TableMeta createTableMeta(Class<?> entityClass) {
+        TableMeta tableMeta = new TableMeta(entityClass.getDeclaredFields());
         Table table = entityClass.getAnnotation(Table.class);
         tableMeta.setTableName(table.name());
         tableMeta.setSchemaName(table.schema());
@@ -42,11 +50,17 @@ public class TableMetaUtil {
         String keyColumn = keyField.map(TableMeta::getColumnName).orElse(null);
         tableMeta.setKeyProperty(keyProperty);
         tableMeta.setKeyColumn(keyColumn);
-        ginTableMetaCache.put(entityClass.getName(), tableMeta);
-
         return tableMeta;
     }
 
+    /**
+     * @return primary key value of the model
+     */
+    public static Object getKeyValue(Object model) {
+        TableMeta tableMeta = getTableMetaByModelClass(model.getClass());
+        return SystemMetaObject.forObject(model).getValue(tableMeta.getKeyProperty());
+    }
+
     private static Optional<Field> findKeyField(Class<?> clazz) {
         if (clazz == null) {
             return Optional.empty();
@@ -55,22 +69,30 @@ public class TableMetaUtil {
                 f -> f.isAnnotationPresent(Id.class) || f.isAnnotationPresent(ManualId.class)).findFirst();
     }
 
-    public static synchronized Class<?> getModelClassByMapper(Class<?> mapperClass) {
+    public static Class<?> getModelClassByMapper(Class<?> mapperClass) {
         if (mapperClass == null) {
             return null;
         }
-        String name = mapperClass.getName();
-        Class<?> modelClass = mapperModelClassCache.get(name);
+        Class<?> modelClass = MAPPER_MODEL_CLASS_CACHE.get(mapperClass.getName());
         if (modelClass != null) {
             return modelClass;
         }
         modelClass = ClassUtils.extractModelClass(mapperClass);
-        mapperModelClassCache.put(name, modelClass);
+        if (modelClass != null) {
+            MAPPER_MODEL_CLASS_CACHE.putIfAbsent(mapperClass.getName(), modelClass);
+        }
         return modelClass;
     }
 
+    /**
+     * @return model class of the mapper registered by {@link #getModelClassByMapper(Class)}, null if absent
+     */
+    public static Class<?> getModelClassByMapperName(String name) {
+        return MAPPER_MODEL_CLASS_CACHE.get(name);
+    }
+
     public static TableMeta getMetaByMapperName(String name) {
-        Class<?> modelClass = mapperModelClassCache.get(name);
+        Class<?> modelClass = MAPPER_MODEL_CLASS_CACHE.get(name);
         if (modelClass == null) {
             return null;
         }
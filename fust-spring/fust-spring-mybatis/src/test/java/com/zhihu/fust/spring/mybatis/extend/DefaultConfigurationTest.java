@@ -0,0 +1,90 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import com.zhihu.fust.spring.jdbc.DataSourceAdapter;
+import com.zhihu.fust.spring.mybatis.TemplateDao;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DefaultConfigurationTest {
+
+    @Table(name = "order_item", schema = "order")
+    public static class OrderItem {
+        @Id
+        private Long id;
+        private String name;
+    }
+
+    public interface OrderItemDao extends TemplateDao<OrderItem> {
+    }
+
+    private static class NoopInterceptor implements Interceptor {
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            return invocation.proceed();
+        }
+    }
+
+    private static Map<String, DataSourceAdapter> dataSources(String... names) {
+        Map<String, DataSourceAdapter> adapters = new LinkedHashMap<>();
+        for (String name : names) {
+            adapters.put(name, new DataSourceAdapter(name, mock(DataSource.class)));
+        }
+        return adapters;
+    }
+
+    @Test
+    void testSchemeConfigurations() {
+        NoopInterceptor noop = new NoopInterceptor();
+        DefaultConfiguration configuration = new DefaultConfiguration(dataSources("user", "order", "item"), null,
+                                                                      Collections.singletonList(noop));
+
+        Configuration order = configuration.getSchemeConfig("order");
+        assertNotNull(order);
+        assertNotSame(order, configuration.getSchemeConfig("user"));
+        assertNotSame(order, configuration.getSchemeConfig("item"));
+        assertNotNull(order.getEnvironment());
+
+        List<Interceptor> interceptors = order.getInterceptors();
+        assertEquals(2, interceptors.size());
+        assertSame(noop, interceptors.get(0));
+        assertTrue(interceptors.get(1) instanceof DefaultExecutorInterceptor);
+    }
+
+    @Test
+    void testParallelSchemeConfigurations() {
+        DefaultConfiguration configuration = new DefaultConfiguration(dataSources("user", "order", "item"), null,
+                                                                      Collections.emptyList(), true);
+
+        for (String scheme : new String[]{"user", "order", "item"}) {
+            Configuration schemeConfig = configuration.getSchemeConfig(scheme);
+            assertNotNull(schemeConfig);
+            assertNotSame(configuration, schemeConfig);
+            assertEquals(1, schemeConfig.getInterceptors().size());
+        }
+        assertNotSame(configuration.getSchemeConfig("user"), configuration.getSchemeConfig("order"));
+    }
+
+    @Test
+    void testMapperParsedOnce() {
+        DefaultConfiguration configuration = new DefaultConfiguration(dataSources("user", "order"), null);
+        configuration.addMapper(OrderItemDao.class);
+
+        String findId = OrderItemDao.class.getName() + ".find";
+        assertTrue(configuration.getSchemeConfig("order").hasStatement(findId));
+        assertFalse(configuration.getSchemeConfig("user").hasStatement(findId));
+        assertTrue(configuration.getMapperParseMillis().containsKey(OrderItemDao.class.getName()));
+    }
+}
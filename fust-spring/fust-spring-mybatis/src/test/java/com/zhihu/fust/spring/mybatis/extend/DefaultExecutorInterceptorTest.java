@@ -0,0 +1,266 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import com.zhihu.fust.spring.jdbc.JdbcConnectionHint;
+import com.zhihu.fust.spring.mybatis.TemplateDao;
+import com.zhihu.fust.spring.mybatis.annotations.Cached;
+import com.zhihu.fust.spring.mybatis.cache.EntityCaches;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DefaultExecutorInterceptorTest {
+
+    @Table(name = "item", schema = "shop")
+    public static class Item {
+        @Id
+        private Long id;
+        private int count;
+    }
+
+    public interface ItemDao extends TemplateDao<Item> {
+    }
+
+    @Cached
+    @Table(name = "cached_item", schema = "shop")
+    public static class CachedItem {
+        @Id
+        private Long id;
+        private String name;
+    }
+
+    public interface CachedItemDao extends TemplateDao<CachedItem> {
+    }
+
+    @Cached(staleReadWindowMs = 0)
+    @Table(name = "fresh_item", schema = "shop")
+    public static class FreshItem {
+        @Id
+        private Long id;
+    }
+
+    public interface FreshItemDao extends TemplateDao<FreshItem> {
+    }
+
+    private final Configuration configuration = new Configuration();
+    private final List<String> databaseNames = new ArrayList<>();
+    private final DefaultExecutorInterceptor interceptor = new DefaultExecutorInterceptor(databaseNames::add);
+
+    private MappedStatement statement(String resource, String method) {
+        return new MappedStatement.Builder(configuration, resource + "." + method,
+                                           parameter -> null, SqlCommandType.UPDATE)
+                .resource(resource)
+                .build();
+    }
+
+    private Object update(MappedStatement ms) throws Throwable {
+        Executor executor = mock(Executor.class);
+        when(executor.update(any(), any())).thenReturn(1);
+        Invocation invocation = new Invocation(executor,
+                                               Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                                               new Object[]{ms, new Item()});
+        return interceptor.intercept(invocation);
+    }
+
+    private Executor queryExecutor(Object... rows) throws Exception {
+        Executor executor = mock(Executor.class);
+        when(executor.query(any(), any(), any(), any())).thenReturn(Arrays.asList(rows));
+        return executor;
+    }
+
+    private Object find(Executor executor, MappedStatement ms, Object id) throws Throwable {
+        Invocation invocation = new Invocation(executor,
+                                               Executor.class.getMethod("query", MappedStatement.class, Object.class,
+                                                                        RowBounds.class, ResultHandler.class),
+                                               new Object[]{ms, id, RowBounds.DEFAULT, null});
+        return interceptor.intercept(invocation);
+    }
+
+    @Test
+    void testSchema() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(ItemDao.class);
+        MappedStatement ms = statement(ItemDao.class.getName(), "update");
+
+        assertEquals(1, update(ms));
+        assertEquals(Arrays.asList("shop", ""), databaseNames);
+        assertSame(interceptor.getStatementMeta(ms), interceptor.getStatementMeta(ms));
+    }
+
+    @Test
+    void testPatchNotSupported() {
+        TableMetaUtil.getModelClassByMapper(ItemDao.class);
+        MappedStatement ms = statement(ItemDao.class.getName(), "patch");
+
+        assertThrows(IllegalArgumentException.class, () -> update(ms));
+        assertTrue(databaseNames.isEmpty());
+    }
+
+    @Test
+    void testOtherMapper() throws Throwable {
+        MappedStatement ms = statement("com.example.OtherDao", "update");
+
+        assertEquals(1, update(ms));
+        assertEquals(Arrays.asList(""), databaseNames);
+        assertNull(interceptor.getStatementMeta(ms).getSchemaName());
+    }
+
+    @Test
+    void testEntityCache() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(CachedItemDao.class);
+        MappedStatement findMs = statement(CachedItemDao.class.getName(), "find");
+        CachedItem row = new CachedItem();
+        row.id = 1L;
+        row.name = "a";
+        Executor executor = queryExecutor(row);
+
+        List<?> first = (List<?>) find(executor, findMs, 1L);
+        List<?> second = (List<?>) find(executor, findMs, 1);
+        verify(executor, times(1)).query(any(), any(), any(), any());
+        assertSame(row, first.get(0));
+        CachedItem cached = (CachedItem) second.get(0);
+        assertNotSame(row, cached);
+        assertEquals("a", cached.name);
+
+        // the cached model is a copy
+        cached.name = "b";
+        assertEquals("a", ((CachedItem) ((List<?>) find(executor, findMs, 1L)).get(0)).name);
+
+        // update invalidates
+        Executor updateExecutor = mock(Executor.class);
+        when(updateExecutor.update(any(), any())).thenReturn(1);
+        Map<String, Object> params = new HashMap<>();
+        params.put("et", row);
+        interceptor.intercept(new Invocation(updateExecutor,
+                                             Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                                             new Object[]{statement(CachedItemDao.class.getName(), "update"), params}));
+        find(executor, findMs, 1L);
+        verify(executor, times(2)).query(any(), any(), any(), any());
+    }
+
+    @Test
+    void testEntityCacheMiss() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(CachedItemDao.class);
+        MappedStatement findMs = statement(CachedItemDao.class.getName(), "find");
+        Executor executor = queryExecutor();
+
+        assertEquals(Collections.emptyList(), find(executor, findMs, 404L));
+        find(executor, findMs, 404L);
+        verify(executor, times(2)).query(any(), any(), any(), any());
+    }
+
+    @Test
+    void testEntityCacheInvalidatedDuringFind() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(FreshItemDao.class);
+        MappedStatement findMs = statement(FreshItemDao.class.getName(), "find");
+        FreshItem row = new FreshItem();
+        row.id = 1L;
+        Executor executor = mock(Executor.class);
+        // a write of the row commits while the find is reading the old one
+        when(executor.query(any(), any(), any(), any())).thenAnswer(invocation -> {
+            interceptor.getStatementMeta(findMs).getEntityCache().invalidate(1L);
+            return Collections.singletonList(row);
+        }).thenReturn(Collections.singletonList(row));
+
+        find(executor, findMs, 1L);
+        find(executor, findMs, 1L);
+        find(executor, findMs, 1L);
+        verify(executor, times(2)).query(any(), any(), any(), any());
+    }
+
+    @Test
+    void testEntityCacheStaleReadWindow() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(CachedItemDao.class);
+        MappedStatement findMs = statement(CachedItemDao.class.getName(), "find");
+        CachedItem row = new CachedItem();
+        row.id = 2L;
+        Executor executor = queryExecutor(row);
+
+        interceptor.getStatementMeta(findMs).getEntityCache().invalidate(2L);
+        find(executor, findMs, 2L);
+        find(executor, findMs, 2L);
+        verify(executor, times(2)).query(any(), any(), any(), any());
+    }
+
+    @Test
+    void testEntityCacheAfterWrite() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(FreshItemDao.class);
+        MappedStatement findMs = statement(FreshItemDao.class.getName(), "find");
+        FreshItem row = new FreshItem();
+        row.id = 3L;
+        Executor executor = queryExecutor(row);
+
+        JdbcConnectionHint.markWrite("shop", 60_000);
+        try {
+            find(executor, findMs, 3L);
+            find(executor, findMs, 3L);
+            verify(executor, times(2)).query(any(), any(), any(), any());
+        } finally {
+            JdbcConnectionHint.clearWrites();
+        }
+    }
+
+    @Test
+    void testEntityCacheBroadcastAfterCommit() throws Throwable {
+        TableMetaUtil.getModelClassByMapper(CachedItemDao.class);
+        MappedStatement batchPatchMs = statement(CachedItemDao.class.getName(), "batchPatch");
+        CachedItem first = new CachedItem();
+        first.id = 4L;
+        CachedItem second = new CachedItem();
+        second.id = 5L;
+        Map<String, Object> params = new HashMap<>();
+        params.put("list", Arrays.asList(first, second));
+        Executor executor = mock(Executor.class);
+        when(executor.update(any(), any())).thenReturn(2);
+        Invocation invocation = new Invocation(executor,
+                                               Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                                               new Object[]{batchPatchMs, params});
+
+        List<List<String>> published = new ArrayList<>();
+        EntityCaches.setBroadcaster((cacheName, keys) -> published.add(new ArrayList<>(keys)));
+        try {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                interceptor.intercept(invocation);
+                assertTrue(published.isEmpty());
+                List<TransactionSynchronization> synchronizations =
+                        TransactionSynchronizationManager.getSynchronizations();
+                synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+                assertTrue(published.isEmpty());
+                synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                // one message with all keys of the write
+                assertEquals(Collections.singletonList(Arrays.asList("4", "5")), published);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            // published at once without transaction
+            interceptor.intercept(invocation);
+            assertEquals(2, published.size());
+        } finally {
+            EntityCaches.setBroadcaster(null);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import com.zhihu.fust.spring.mybatis.Constants;
+import com.zhihu.fust.spring.mybatis.TemplateDao;
+import com.zhihu.fust.spring.mybatis.annotations.Version;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockSupportTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @Id
+        private Long id;
+        @Version
+        private Long version;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public void setVersion(Long version) {
+            this.version = version;
+        }
+    }
+
+    public interface ItemDao extends TemplateDao<Item> {
+    }
+
+    private final Configuration configuration = new Configuration();
+
+    private StatementMeta statement(String method) {
+        TableMetaUtil.getModelClassByMapper(ItemDao.class);
+        String mapperName = ItemDao.class.getName();
+        return StatementMeta.of(new MappedStatement.Builder(configuration, mapperName + "." + method,
+                                                            parameter -> null, SqlCommandType.UPDATE)
+                                        .resource(mapperName)
+                                        .build());
+    }
+
+    private static Item item(long version) {
+        Item item = new Item();
+        item.setId(1L);
+        item.setVersion(version);
+        return item;
+    }
+
+    @Test
+    void testPatchIncreasesVersion() {
+        Item item = item(3);
+        assertEquals(1, OptimisticLockSupport.afterUpdate(statement("patch"), item, 1));
+        assertEquals(4L, item.getVersion());
+    }
+
+    @Test
+    void testUpdateConflict() {
+        Item item = item(3);
+        Map<String, Object> params = new HashMap<>();
+        params.put(Constants.ENTITY, item);
+
+        assertEquals(0, OptimisticLockSupport.afterUpdate(statement("update"), params, 0));
+        assertEquals(3L, item.getVersion());
+    }
+
+    @Test
+    void testBatchPatchPartialConflict() {
+        List<Item> items = Arrays.asList(item(1), item(2));
+        Map<String, Object> params = new HashMap<>();
+        params.put(Constants.ENTITIES, items);
+
+        assertEquals(0, OptimisticLockSupport.afterUpdate(statement("batchPatch"), params, 1));
+        assertEquals(1L, items.get(0).getVersion());
+
+        assertEquals(2, OptimisticLockSupport.afterUpdate(statement("batchPatch"), params, 2));
+        assertEquals(2L, items.get(0).getVersion());
+        assertEquals(3L, items.get(1).getVersion());
+    }
+
+    @Test
+    void testOtherStatements() {
+        Item item = item(3);
+        assertEquals(0, OptimisticLockSupport.afterUpdate(statement("remove"), item, 0));
+        assertEquals(3L, item.getVersion());
+    }
+
+    @Test
+    void testNullVersionRejected() {
+        Item item = item(3);
+        item.setVersion(null);
+        assertThrows(IllegalArgumentException.class,
+                     () -> OptimisticLockSupport.beforeUpdate(statement("patch"), item));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put(Constants.ENTITIES, Arrays.asList(item(1), item));
+        assertThrows(IllegalArgumentException.class,
+                     () -> OptimisticLockSupport.beforeUpdate(statement("batchPatch"), params));
+
+        OptimisticLockSupport.beforeUpdate(statement("patch"), item(3));
+        OptimisticLockSupport.beforeUpdate(statement("remove"), 1L);
+    }
+
+    @Test
+    void testBatchPatchDuplicateIdRejected() {
+        Item first = item(1);
+        Item second = item(1);
+        Map<String, Object> params = new HashMap<>();
+        params.put(Constants.ENTITIES, Arrays.asList(first, second));
+        assertThrows(IllegalArgumentException.class,
+                     () -> OptimisticLockSupport.beforeUpdate(statement("batchPatch"), params));
+
+        second.setId(2L);
+        OptimisticLockSupport.beforeUpdate(statement("batchPatch"), params);
+    }
+
+    @Test
+    void testVersionRestoredOnRollback() {
+        Item item = item(3);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, OptimisticLockSupport.afterUpdate(statement("patch"), item, 1));
+            assertEquals(1, OptimisticLockSupport.afterUpdate(statement("patch"), item, 1));
+            // updated twice in the transaction, the model keeps up with the row
+            assertEquals(5L, item.getVersion());
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size());
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(3L, item.getVersion());
+    }
+
+    @Test
+    void testVersionKeptOnCommit() {
+        Item item = item(3);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, OptimisticLockSupport.afterUpdate(statement("patch"), item, 1));
+            TransactionSynchronizationManager.getSynchronizations()
+                                             .forEach(s -> s.afterCompletion(
+                                                     TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(4L, item.getVersion());
+    }
+}
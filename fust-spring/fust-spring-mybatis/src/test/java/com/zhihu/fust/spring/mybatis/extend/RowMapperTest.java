@@ -0,0 +1,248 @@
+package com.zhihu.fust.spring.mybatis.extend;
+
+import com.zhihu.fust.spring.mybatis.TemplateDao;
+import com.zhihu.fust.spring.mybatis.annotations.ColumnTypeHandler;
+import com.zhihu.fust.spring.mybatis.annotations.DirectMapping;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowMapperTest {
+
+    public static class Tags {
+        private final List<String> values;
+
+        Tags(List<String> values) {
+            this.values = values;
+        }
+    }
+
+    public static class TagsTypeHandler extends BaseTypeHandler<Tags> {
+        @Override
+        public void setNonNullParameter(PreparedStatement ps, int i, Tags parameter, JdbcType jdbcType)
+                throws SQLException {
+            ps.setString(i, String.join(",", parameter.values));
+        }
+
+        @Override
+        public Tags getNullableResult(ResultSet rs, String columnName) throws SQLException {
+            return parse(rs.getString(columnName));
+        }
+
+        @Override
+        public Tags getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+            return parse(rs.getString(columnIndex));
+        }
+
+        @Override
+        public Tags getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+            return parse(cs.getString(columnIndex));
+        }
+
+        private static Tags parse(String value) {
+            return value == null ? null : new Tags(Arrays.asList(value.split(",")));
+        }
+    }
+
+    @DirectMapping
+    @Table(name = "row_item")
+    public static class DirectItem {
+        private static final AtomicInteger NAME_SETTER_CALLS = new AtomicInteger();
+
+        @Id
+        private Long id;
+        private String name;
+        @Column(name = "item_count")
+        private Integer count;
+        private int score;
+        @ColumnTypeHandler(TagsTypeHandler.class)
+        private Tags tags;
+
+        public void setName(String name) {
+            this.name = name;
+            NAME_SETTER_CALLS.incrementAndGet();
+        }
+    }
+
+    public interface DirectItemDao extends TemplateDao<DirectItem> {
+    }
+
+    @Table(name = "row_item")
+    public static class PlainItem {
+        @Id
+        private Long id;
+        private String name;
+        @Column(name = "item_count")
+        private Integer count;
+        private int score;
+        @ColumnTypeHandler(TagsTypeHandler.class)
+        private Tags tags;
+    }
+
+    public interface PlainItemDao extends TemplateDao<PlainItem> {
+    }
+
+    public static class BaseItem {
+        @Id
+        private Long id;
+    }
+
+    @DirectMapping
+    @Table(name = "row_item")
+    public static class InheritedItem extends BaseItem {
+        private String name;
+    }
+
+    public interface InheritedItemDao extends TemplateDao<InheritedItem> {
+    }
+
+    private final DefaultExecutorInterceptor interceptor = new DefaultExecutorInterceptor(null);
+    private DefaultConfiguration configuration;
+    private Connection keepAlive;
+    private SqlSession session;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:row_mapper;MODE=MySQL");
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE row_item (id BIGINT PRIMARY KEY, name VARCHAR(64), "
+                              + "item_count INT, score INT, tags VARCHAR(255))");
+            statement.execute("INSERT INTO row_item VALUES (1, 'a', 10, 5, 'x,y'), (2, NULL, NULL, NULL, NULL), "
+                              + "(3, 'c', 30, 7, 'z')");
+        }
+
+        configuration = new DefaultConfiguration(Collections.emptyMap(), null);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.addInterceptor(interceptor);
+        configuration.addMapper(DirectItemDao.class);
+        configuration.addMapper(PlainItemDao.class);
+        configuration.addMapper(InheritedItemDao.class);
+        session = new DefaultSqlSessionFactory(configuration).openSession(true);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        session.close();
+        keepAlive.close();
+    }
+
+    private RowMapper rowMapper(Class<?> mapperClass, String method) {
+        return interceptor.getStatementMeta(configuration.getMappedStatement(mapperClass.getName() + "." + method))
+                          .getRowMapper();
+    }
+
+    private static <T> List<List<Object>> rows(List<T> models, Function<T, List<Object>> values) {
+        return models.stream().map(values).collect(Collectors.toList());
+    }
+
+    private static List<Object> values(DirectItem item) {
+        return Arrays.asList(item.id, item.name, item.count, item.score, item.tags == null ? null : item.tags.values);
+    }
+
+    private static List<Object> values(PlainItem item) {
+        return Arrays.asList(item.id, item.name, item.count, item.score, item.tags == null ? null : item.tags.values);
+    }
+
+    @Test
+    void testStatements() {
+        assertNotNull(rowMapper(DirectItemDao.class, "find"));
+        assertNotNull(rowMapper(DirectItemDao.class, "findByIdList"));
+        assertNotNull(rowMapper(DirectItemDao.class, "scanBatch"));
+        assertNull(rowMapper(DirectItemDao.class, "update"));
+        assertNull(rowMapper(PlainItemDao.class, "find"));
+    }
+
+    @Test
+    void testSameResultAsMybatis() {
+        DirectItemDao directDao = session.getMapper(DirectItemDao.class);
+        PlainItemDao plainDao = session.getMapper(PlainItemDao.class);
+
+        DirectItem.NAME_SETTER_CALLS.set(0);
+        List<DirectItem> direct = directDao.scanBatch(null, 10);
+        List<PlainItem> plain = plainDao.scanBatch(null, 10);
+        assertEquals(rows(plain, RowMapperTest::values), rows(direct, RowMapperTest::values));
+        assertEquals(Arrays.asList(1L, "a", 10, 5, Arrays.asList("x", "y")), values(direct.get(0)));
+        // nulls are not set, primitives keep their default
+        assertEquals(Arrays.asList(2L, null, null, 0, null), values(direct.get(1)));
+        // the setter is used like mybatis, not called on null
+        assertEquals(2, DirectItem.NAME_SETTER_CALLS.get());
+
+        assertEquals(values(plainDao.find(3L)), values(directDao.find(3L)));
+        assertNull(directDao.find(404L));
+        assertEquals(rows(plainDao.findByIdList(Arrays.asList(1L, 3L)), RowMapperTest::values),
+                     rows(directDao.findByIdList(Arrays.asList(1L, 3L)), RowMapperTest::values));
+    }
+
+    @Test
+    void testSuperClassKey() {
+        // the inherited key is not in the result map, mybatis auto-maps it
+        assertNull(rowMapper(InheritedItemDao.class, "find"));
+
+        InheritedItem item = session.getMapper(InheritedItemDao.class).find(1L);
+        assertEquals(1L, ((BaseItem) item).id);
+        assertEquals("a", item.name);
+    }
+
+    @Test
+    void testShapeCache() {
+        DirectItemDao directDao = session.getMapper(DirectItemDao.class);
+        directDao.scanBatch(null, 1);
+        directDao.scanBatch(1L, 1);
+        assertEquals(1, rowMapper(DirectItemDao.class, "scanBatch").getShapeCount());
+    }
+
+    @Test
+    void testPluginWrapsDirectStatementsOnly() {
+        DefaultExecutorInterceptor fresh = new DefaultExecutorInterceptor(null);
+        MappedStatement directFind = configuration.getMappedStatement(DirectItemDao.class.getName() + ".find");
+        MappedStatement plainFind = configuration.getMappedStatement(PlainItemDao.class.getName() + ".find");
+        ResultSetHandler directHandler = new DefaultResultSetHandler(null, directFind, null, null, null,
+                                                                     RowBounds.DEFAULT);
+        ResultSetHandler plainHandler = new DefaultResultSetHandler(null, plainFind, null, null, null,
+                                                                    RowBounds.DEFAULT);
+
+        // no @DirectMapping statement met yet, the handler is returned as is
+        fresh.getStatementMeta(plainFind);
+        assertSame(directHandler, fresh.plugin(directHandler));
+
+        fresh.getStatementMeta(directFind);
+        assertNotSame(directHandler, fresh.plugin(directHandler));
+        assertSame(plainHandler, fresh.plugin(plainHandler));
+        ResultSetHandler bounded = new DefaultResultSetHandler(null, directFind, null, null, null,
+                                                               new RowBounds(0, 1));
+        assertSame(bounded, fresh.plugin(bounded));
+    }
+}
@@ -0,0 +1,186 @@
+package com.zhihu.fust.spring.mybatis.operations;
+
+import com.zhihu.fust.spring.mybatis.TableMeta;
+import com.zhihu.fust.spring.mybatis.annotations.DbAutoColumn;
+import com.zhihu.fust.spring.mybatis.annotations.Version;
+import com.zhihu.fust.spring.mybatis.util.TableMetaUtil;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NullMaskSqlSourceTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @Id
+        private Long id;
+        private String name;
+        @Column(name = "item_price")
+        private Integer price;
+        @DbAutoColumn
+        private LocalDateTime createdAt;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getPrice() {
+            return price;
+        }
+
+        public void setPrice(Integer price) {
+            this.price = price;
+        }
+    }
+
+    @Table(name = "versioned_item")
+    public static class VersionedItem {
+        @Id
+        private Long id;
+        private String name;
+        @Version
+        private Integer version;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+    }
+
+    private final Configuration configuration = new Configuration();
+    private final TableMeta tableMeta = TableMetaUtil.getTableMetaByModelClass(Item.class);
+
+    private static Item item(Long id, String name, Integer price) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setPrice(price);
+        return item;
+    }
+
+    private static List<Object> values(BoundSql boundSql) {
+        return boundSql.getParameterMappings().stream()
+                       .map(ParameterMapping::getProperty)
+                       .map(boundSql::getAdditionalParameter)
+                       .collect(Collectors.toList());
+    }
+
+    @Test
+    void testCreate() {
+        NullMaskSqlSource sqlSource = NullMaskSqlSource.forCreate(configuration, tableMeta);
+
+        BoundSql full = sqlSource.getBoundSql(item(1L, "a", 10));
+        assertEquals("insert into item (`name`,`item_price`) values (?,?)", full.getSql());
+        assertEquals(Arrays.asList("a", 10), values(full));
+
+        BoundSql partial = sqlSource.getBoundSql(item(null, null, 20));
+        assertEquals("insert into item (`item_price`) values (?)", partial.getSql());
+        assertEquals(Arrays.asList(20), values(partial));
+        assertEquals(Integer.class, partial.getParameterMappings().get(0).getJavaType());
+    }
+
+    @Test
+    void testPatch() {
+        NullMaskSqlSource sqlSource = NullMaskSqlSource.forPatch(configuration, Item.class, tableMeta);
+
+        BoundSql boundSql = sqlSource.getBoundSql(item(7L, "b", null));
+        assertEquals("UPDATE item SET `name` = ? WHERE `id` = ?", boundSql.getSql());
+        assertEquals(Arrays.asList("b", 7L), values(boundSql));
+    }
+
+    @Test
+    void testCreateIgnore() {
+        NullMaskSqlSource sqlSource = NullMaskSqlSource.forCreateIgnore(configuration, tableMeta);
+
+        BoundSql boundSql = sqlSource.getBoundSql(item(null, "a", null));
+        assertEquals("insert ignore into item (`name`) values (?)", boundSql.getSql());
+        assertEquals(Arrays.asList("a"), values(boundSql));
+    }
+
+    @Test
+    void testUpsert() {
+        NullMaskSqlSource sqlSource = NullMaskSqlSource.forUpsert(configuration, Item.class, tableMeta);
+
+        BoundSql boundSql = sqlSource.getBoundSql(item(3L, null, 30));
+        assertEquals("insert into item (`id`,`item_price`) values (?,?) ON DUPLICATE KEY UPDATE "
+                     + "`item_price` = VALUES(`item_price`),`id` = LAST_INSERT_ID(`id`)", boundSql.getSql());
+        assertEquals(Arrays.asList(3L, 30), values(boundSql));
+
+        BoundSql insertOnly = sqlSource.getBoundSql(item(null, "c", null));
+        assertEquals("insert into item (`name`) values (?) ON DUPLICATE KEY UPDATE "
+                     + "`name` = VALUES(`name`),`id` = LAST_INSERT_ID(`id`)", insertOnly.getSql());
+    }
+
+    @Test
+    void testVersioned() {
+        TableMeta versionedMeta = TableMetaUtil.getTableMetaByModelClass(VersionedItem.class);
+        VersionedItem item = new VersionedItem();
+        item.setId(7L);
+        item.setName("b");
+        item.setVersion(2);
+
+        BoundSql patch = NullMaskSqlSource.forPatch(configuration, VersionedItem.class, versionedMeta).getBoundSql(item);
+        assertEquals("UPDATE versioned_item SET `name` = ?,`version` = `version` + 1 WHERE `id` = ? AND `version` = ?",
+                     patch.getSql());
+        assertEquals(Arrays.asList("b", 7L, 2), values(patch));
+
+        BoundSql upsert = NullMaskSqlSource.forUpsert(configuration, VersionedItem.class, versionedMeta).getBoundSql(item);
+        assertEquals("insert into versioned_item (`id`,`name`) values (?,?) ON DUPLICATE KEY UPDATE "
+                     + "`name` = VALUES(`name`),`version` = `version` + 1,`id` = LAST_INSERT_ID(`id`)", upsert.getSql());
+    }
+
+    @Test
+    void testShapeCache() {
+        NullMaskSqlSource sqlSource = NullMaskSqlSource.forCreate(configuration, tableMeta);
+
+        BoundSql first = sqlSource.getBoundSql(item(null, "a", null));
+        BoundSql second = sqlSource.getBoundSql(item(null, "b", null));
+        sqlSource.getBoundSql(item(null, "c", 1));
+
+        assertSame(first.getParameterMappings(), second.getParameterMappings());
+        assertEquals(Arrays.asList("b"), values(second));
+        assertEquals(2, sqlSource.getShapeCount());
+    }
+}
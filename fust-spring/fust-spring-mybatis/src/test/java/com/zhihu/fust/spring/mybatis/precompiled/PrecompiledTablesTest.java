@@ -0,0 +1,80 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecompiledTablesTest {
+
+    @Table(name = "item")
+    public static class Item {
+        private static final int VERSION = 1;
+        @Id
+        private Long id;
+        private String itemName;
+    }
+
+    @Table(name = "stale_item")
+    public static class StaleItem {
+        @Id
+        private Long id;
+        private String itemName;
+    }
+
+    @Table(name = "renamed_item")
+    public static class RenamedItem {
+        @Id
+        private Long id;
+        @Column(name = "title")
+        private String itemName;
+    }
+
+    @Table(name = "plain_item")
+    public static class PlainItem {
+        @Id
+        private Long id;
+    }
+
+    private final Configuration configuration = new Configuration();
+
+    @Test
+    void testPrecompiled() {
+        assertEquals(PrecompiledTablesTest.class.getName() + "_Item_FustTable", PrecompiledTables.getClassName(Item.class));
+        assertTrue(PrecompiledTables.get(Item.class) instanceof PrecompiledTablesTest_Item_FustTable);
+        assertSame(PrecompiledTables.get(Item.class), PrecompiledTables.get(Item.class));
+
+        SqlSource sqlSource = PrecompiledTables.getSqlSource(configuration, Item.class, "find");
+        BoundSql boundSql = sqlSource.getBoundSql(1L);
+        assertEquals("SELECT * FROM item WHERE `id`=?", boundSql.getSql());
+        assertEquals("id", boundSql.getParameterMappings().stream()
+                                   .map(ParameterMapping::getProperty)
+                                   .collect(Collectors.joining(",")));
+        assertEquals(Object.class, boundSql.getParameterMappings().get(0).getJavaType());
+
+        assertNull(PrecompiledTables.getSqlSource(configuration, Item.class, "update"));
+    }
+
+    @Test
+    void testFallback() {
+        assertNull(PrecompiledTables.get(StaleItem.class));
+        assertNull(PrecompiledTables.getSqlSource(configuration, StaleItem.class, "find"));
+        assertNull(PrecompiledTables.get(PlainItem.class));
+        // same properties, another column
+        assertNull(PrecompiledTables.get(RenamedItem.class));
+    }
+
+    @Test
+    void testFingerprint() {
+        assertEquals("item|id:id|id:id:K,itemName:item_name:", PrecompiledTables.getFingerprint(Item.class));
+        assertEquals("renamed_item|id:id|id:id:K,itemName:title:", PrecompiledTables.getFingerprint(RenamedItem.class));
+    }
+}
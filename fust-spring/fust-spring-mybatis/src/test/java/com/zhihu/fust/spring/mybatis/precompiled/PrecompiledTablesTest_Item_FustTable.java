@@ -0,0 +1,31 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+/**
+ * same as the class generated by fust-spring-mybatis-processor for {@link PrecompiledTablesTest.Item}
+ */
+public final class PrecompiledTablesTest_Item_FustTable implements PrecompiledTable {
+    private static final String FINGERPRINT = "item|id:id|id:id:K,itemName:item_name:";
+    private static final String[] PROPERTIES = {"id", "itemName"};
+    private static final String[] RESULT_COLUMNS = {"id", "item_name"};
+    private static final PrecompiledStatement FIND = new PrecompiledStatement("SELECT * FROM item WHERE `id`=?", "id");
+
+    @Override
+    public String getFingerprint() {
+        return FINGERPRINT;
+    }
+
+    @Override
+    public String[] getProperties() {
+        return PROPERTIES.clone();
+    }
+
+    @Override
+    public String[] getResultColumns() {
+        return RESULT_COLUMNS.clone();
+    }
+
+    @Override
+    public PrecompiledStatement getStatement(String method) {
+        return "find".equals(method) ? FIND : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+/**
+ * generated before the column of {@link PrecompiledTablesTest.RenamedItem#itemName} was renamed,
+ * the properties are the same
+ */
+public final class PrecompiledTablesTest_RenamedItem_FustTable implements PrecompiledTable {
+
+    @Override
+    public String getFingerprint() {
+        return "renamed_item|id:id|id:id:K,itemName:item_name:";
+    }
+
+    @Override
+    public String[] getProperties() {
+        return new String[]{"id", "itemName"};
+    }
+
+    @Override
+    public String[] getResultColumns() {
+        return new String[]{"id", "item_name"};
+    }
+
+    @Override
+    public PrecompiledStatement getStatement(String method) {
+        return new PrecompiledStatement("SELECT * FROM renamed_item WHERE `id`=?", "id");
+    }
+}
@@ -0,0 +1,27 @@
+package com.zhihu.fust.spring.mybatis.precompiled;
+
+/**
+ * generated before {@link PrecompiledTablesTest.StaleItem#itemName} was added
+ */
+public final class PrecompiledTablesTest_StaleItem_FustTable implements PrecompiledTable {
+
+    @Override
+    public String getFingerprint() {
+        return "stale_item|id:id|id:id:K";
+    }
+
+    @Override
+    public String[] getProperties() {
+        return new String[]{"id"};
+    }
+
+    @Override
+    public String[] getResultColumns() {
+        return new String[]{"id"};
+    }
+
+    @Override
+    public PrecompiledStatement getStatement(String method) {
+        return new PrecompiledStatement("SELECT * FROM stale_item WHERE `id`=?", "id");
+    }
+}
@@ -0,0 +1,37 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedInsertTest {
+
+    @Test
+    void testChunks() {
+        List<Integer> models = IntStream.range(0, 7).boxed().collect(Collectors.toList());
+        List<List<Integer>> chunks = new ArrayList<>();
+
+        assertTrue(ChunkedInsert.insert(chunk -> chunks.add(new ArrayList<>(chunk)), models, 3));
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5), Arrays.asList(6)), chunks);
+    }
+
+    @Test
+    void testFailedChunk() {
+        List<Integer> models = IntStream.range(0, 4).boxed().collect(Collectors.toList());
+        assertFalse(ChunkedInsert.insert(chunk -> !chunk.contains(1), models, 2));
+    }
+
+    @Test
+    void testEmpty() {
+        assertFalse(ChunkedInsert.insert(chunk -> fail("no insert"), Collections.emptyList(), 2));
+        assertThrows(IllegalArgumentException.class,
+                     () -> ChunkedInsert.insert(chunk -> true, Arrays.asList(1, 2), 0));
+    }
+}
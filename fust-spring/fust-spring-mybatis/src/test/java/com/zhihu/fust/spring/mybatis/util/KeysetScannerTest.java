@@ -0,0 +1,84 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetScannerTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @Id
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * table with ids 1..rows, records the after key of each batch
+     */
+    private static KeysetScanner.BatchLoader<Item> table(long rows, List<Serializable> calls) {
+        return (after, limit) -> {
+            calls.add(after);
+            long start = after == null ? 1 : (Long) after + 1;
+            return LongStream.rangeClosed(start, Math.min(rows, start + limit - 1))
+                    .mapToObj(id -> {
+                        Item item = new Item();
+                        item.setId(id);
+                        return item;
+                    })
+                    .collect(Collectors.toList());
+        };
+    }
+
+    @Test
+    void testScanAll() {
+        List<Serializable> calls = new ArrayList<>();
+        List<Long> ids = KeysetScanner.stream(table(10, calls), null, 3)
+                .map(Item::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()), ids);
+        assertEquals(Arrays.asList(null, 3L, 6L, 9L), calls);
+    }
+
+    @Test
+    void testLoadOnDemand() {
+        List<Serializable> calls = new ArrayList<>();
+        Iterator<Item> iterator = KeysetScanner.iterator(table(10, calls), 5L, 2);
+
+        assertEquals(6L, iterator.next().getId());
+        assertEquals(1, calls.size());
+        assertEquals(7L, iterator.next().getId());
+        assertEquals(8L, iterator.next().getId());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void testExactMultipleEndsWithEmptyBatch() {
+        List<Serializable> calls = new ArrayList<>();
+        assertEquals(4, KeysetScanner.stream(table(4, calls), null, 2).count());
+        assertEquals(3, calls.size());
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetScanner.iterator(table(1, new ArrayList<>()), null, 0));
+    }
+}
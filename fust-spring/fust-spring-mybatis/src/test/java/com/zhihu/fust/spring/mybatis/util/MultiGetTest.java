@@ -0,0 +1,144 @@
+package com.zhihu.fust.spring.mybatis.util;
+
+import com.zhihu.fust.spring.jdbc.JdbcConnectionHint;
+import com.zhihu.fust.spring.mybatis.FindByIdsResult;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiGetTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @Id
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * table with even ids only, returns rows in reverse order like an unordered IN query
+     */
+    private static Function<List<?>, List<Item>> evenTable(List<List<?>> calls) {
+        return ids -> {
+            calls.add(ids);
+            List<Item> rows = ids.stream()
+                    .map(id -> ((Number) id).longValue())
+                    .filter(id -> id % 2 == 0)
+                    .distinct()
+                    .map(id -> {
+                        Item item = new Item();
+                        item.setId(id);
+                        return item;
+                    })
+                    .collect(Collectors.toList());
+            Collections.reverse(rows);
+            return rows;
+        };
+    }
+
+    private static List<Long> ids(FindByIdsResult<Item> result) {
+        return result.getModels().stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void testInputOrderAndMissing() {
+        List<List<?>> calls = new ArrayList<>();
+        FindByIdsResult<Item> result = MultiGet.find(evenTable(calls),
+                                                     Arrays.asList(8L, 3, 2L, null, 8, 5L, 4L, 6L, 7L), 4, false);
+
+        assertEquals(Arrays.asList(8L, 2L, 4L, 6L), ids(result));
+        assertEquals(Arrays.asList(3, 5L, 7L), result.getMissingIds());
+        assertFalse(result.isComplete());
+        // distinct ids 8, 3, 2, 5, 4, 6, 7 -> [8, 3, 2, 5] [4, 6, 7, 7]
+        assertEquals(2, calls.size());
+        assertEquals(Arrays.asList(4L, 6L, 7L, 7L), calls.get(1));
+    }
+
+    @Test
+    void testEmpty() {
+        List<List<?>> calls = new ArrayList<>();
+        FindByIdsResult<Item> result = MultiGet.find(evenTable(calls), Arrays.asList(null, null), 10, true);
+        assertTrue(result.getModels().isEmpty());
+        assertTrue(result.isComplete());
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void testParallel() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<List<?>> calls = Collections.synchronizedList(new ArrayList<>());
+        Function<List<?>, List<Item>> table = evenTable(calls);
+        List<Long> input = IntStream.range(0, 100).mapToObj(i -> (long) i).collect(Collectors.toList());
+
+        FindByIdsResult<Item> result = MultiGet.find(ids -> {
+            threads.add(Thread.currentThread().getName());
+            return table.apply(ids);
+        }, input, 10, true);
+
+        assertEquals(input.stream().filter(id -> id % 2 == 0).collect(Collectors.toList()), ids(result));
+        assertEquals(10, calls.size());
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    void testSequentialAfterWrite() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Long> input = IntStream.range(0, 100).mapToObj(i -> (long) i).collect(Collectors.toList());
+        JdbcConnectionHint.markWrite("db", 60_000);
+        try {
+            MultiGet.find(ids -> {
+                threads.add(Thread.currentThread().getName());
+                return Collections.<Item>emptyList();
+            }, input, 10, true);
+        } finally {
+            JdbcConnectionHint.clearWrites();
+        }
+        // the pool threads would not see the write and read a lagging replica
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    void testParallelError() {
+        List<Long> input = IntStream.range(0, 10).mapToObj(i -> (long) i).collect(Collectors.toList());
+        assertThrows(IllegalStateException.class, () -> MultiGet.find(ids -> {
+            if (ids.contains(9L)) {
+                throw new IllegalStateException("bad chunk");
+            }
+            return Collections.<Item>emptyList();
+        }, input, 2, true));
+    }
+
+    @Test
+    void testShapeSize() {
+        assertEquals(1, MultiGet.shapeSize(1, 200));
+        assertEquals(4, MultiGet.shapeSize(3, 200));
+        assertEquals(128, MultiGet.shapeSize(100, 200));
+        assertEquals(200, MultiGet.shapeSize(150, 200));
+        assertEquals(200, MultiGet.shapeSize(200, 200));
+    }
+
+    @Test
+    void testInvalidChunkSize() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> MultiGet.find(evenTable(new ArrayList<>()), Arrays.asList(1L), 0, false));
+    }
+}
@@ -0,0 +1,61 @@
+package com.zhihu.fust.telemetry.api;
+
+import java.util.concurrent.TimeUnit;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+
+/**
+ * deadline of the current request, put into the context by the server entry,
+ * so downstream calls like jdbc queries can derive their timeout from the remaining budget
+ */
+public final class RequestDeadline {
+    public static final ContextKey<RequestDeadline> REQUEST_DEADLINE_KEY = ContextKey.named("request-deadline-key");
+
+    /**
+     * based on {@link System#nanoTime()}
+     */
+    private final long deadlineNanos;
+
+    private RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param deadlineNanos deadline based on {@link System#nanoTime()}
+     */
+    public static RequestDeadline at(long deadlineNanos) {
+        return new RequestDeadline(deadlineNanos);
+    }
+
+    public static RequestDeadline after(long timeout, TimeUnit unit) {
+        return new RequestDeadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @return deadline of the current context, null if the request has no deadline
+     */
+    public static RequestDeadline current() {
+        return Context.current().get(REQUEST_DEADLINE_KEY);
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return remaining nanos, zero or negative if the deadline is exceeded
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestDeadline{remaining=" + TimeUnit.NANOSECONDS.toMillis(remainingNanos()) + "ms}";
+    }
+}
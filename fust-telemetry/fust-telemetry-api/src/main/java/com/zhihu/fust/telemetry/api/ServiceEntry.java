@@ -2,6 +2,8 @@ package com.zhihu.fust.telemetry.api;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import io.opentelemetry.context.ContextKey;
 
@@ -14,6 +16,10 @@ public class ServiceEntry {
      */
     private final String entry;
     private Map<String, String> extra;
+    /**
+     * request scoped state of other components, e.g. the writes of jdbc, shared by the tasks of the request
+     */
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>(4);
 
     public String getEntry() {
         return entry;
@@ -32,6 +38,16 @@ public class ServiceEntry {
         return this.extra.get(key);
     }
 
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String key) {
+        return (T) attributes.get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T computeAttributeIfAbsent(String key, Function<String, T> factory) {
+        return (T) attributes.computeIfAbsent(key, factory);
+    }
+
     public static ServiceEntry create(String entry) {
         return new ServiceEntry(entry);
     }
@@ -0,0 +1,93 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mysql.cj.interceptors.QueryInterceptor;
+import com.mysql.cj.jdbc.JdbcConnection;
+
+/**
+ * per query cost of the interceptor, legacy* are the previous per query endpoint and method parsing
+ * <p>
+ * run: ./gradlew :fust-telemetry:fust-telemetry-mysql:jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingQueryInterceptorBenchmark {
+    private static final String URL = "jdbc:mysql://db_host.example.com:3307/test_db?useSSL=false";
+    private static final String HOST = "db_host.example.com";
+
+    @Param({"64", "2048"})
+    private int length;
+
+    private String sql;
+    private Supplier<String> sqlSupplier;
+    private QueryInterceptor interceptor;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("  SELECT `id`, `name` FROM `user` WHERE `id` IN (");
+        while (sb.length() < length) {
+            sb.append("12345, ");
+        }
+        sb.append("1)");
+        sql = sb.toString();
+        sqlSupplier = () -> sql;
+        JdbcConnection connection = (JdbcConnection) Proxy.newProxyInstance(
+                JdbcConnection.class.getClassLoader(), new Class<?>[]{JdbcConnection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getURL":
+                            return URL;
+                        case "getHost":
+                            return HOST;
+                        default:
+                            return null;
+                    }
+                });
+        interceptor = new TracingQueryInterceptor().init(connection, new Properties(), null);
+    }
+
+    @Benchmark
+    public Object query() {
+        interceptor.preProcess(sqlSupplier, null);
+        return interceptor.postProcess(sqlSupplier, null, null, null);
+    }
+
+    @Benchmark
+    public String method() {
+        return TracingQueryInterceptor.getSqlTraceMethod(sql);
+    }
+
+    @Benchmark
+    public String legacyMethod() {
+        String lower = sql.toLowerCase().trim();
+        return lower.length() < 6 ? "others" : lower.substring(0, 6);
+    }
+
+    @Benchmark
+    public String legacyEndpoint() {
+        URI url = URI.create(URL.substring(5).replace('_', '-'));
+        int port = url.getPort() == -1 ? 3306 : url.getPort();
+        return String.format("sql_%s_%d", HOST, port).replace('.', '-');
+    }
+}
@@ -0,0 +1,46 @@
+package com.zhihu.fust.telemetry.mysql;
+
+/**
+ * a slow query sample, the sql is the fingerprint so no bound value is kept
+ */
+public final class SlowQuery {
+    private final String service;
+    private final String sql;
+    private final long elapsedNanos;
+    private final long timestampMillis;
+    private final String threadName;
+
+    SlowQuery(String service, String sql, long elapsedNanos, long timestampMillis, String threadName) {
+        this.service = service;
+        this.sql = sql;
+        this.elapsedNanos = elapsedNanos;
+        this.timestampMillis = timestampMillis;
+        this.threadName = threadName;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.3fms at=%d service=%s thread=%s sql=%s",
+                             elapsedNanos / 1e6, timestampMillis, service, threadName, sql);
+    }
+}
@@ -0,0 +1,103 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * fixed size buffer keeping the slowest queries, lock-free
+ * <p>
+ * a query faster than all kept ones is rejected by a single volatile read,
+ * otherwise it replaces the fastest kept one by CAS.
+ */
+final class SlowQueryBuffer {
+    private static final int MAX_ATTEMPTS = 4;
+
+    private final AtomicReferenceArray<SlowQuery> slots;
+    /**
+     * elapsed of the fastest kept query when the buffer is full, a lower bound to admit
+     */
+    private volatile long floorNanos;
+
+    SlowQueryBuffer(int size) {
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * @return false if a query of the elapsed is rejected for sure, checked before building the query
+     */
+    boolean accepts(long elapsedNanos) {
+        return elapsedNanos > floorNanos;
+    }
+
+    /**
+     * @return true if the query is kept
+     */
+    boolean offer(SlowQuery query) {
+        long elapsed = query.getElapsedNanos();
+        if (elapsed <= floorNanos) {
+            return false;
+        }
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int minIndex = -1;
+            SlowQuery min = null;
+            long secondMin = Long.MAX_VALUE;
+            for (int i = 0; i < slots.length(); i++) {
+                SlowQuery current = slots.get(i);
+                if (current == null) {
+                    if (slots.compareAndSet(i, null, query)) {
+                        return true;
+                    }
+                    current = slots.get(i);
+                    if (current == null) {
+                        continue;
+                    }
+                }
+                if (min == null || current.getElapsedNanos() < min.getElapsedNanos()) {
+                    if (min != null) {
+                        secondMin = Math.min(secondMin, min.getElapsedNanos());
+                    }
+                    min = current;
+                    minIndex = i;
+                } else {
+                    secondMin = Math.min(secondMin, current.getElapsedNanos());
+                }
+            }
+            if (min == null) {
+                continue;
+            }
+            if (min.getElapsedNanos() >= elapsed) {
+                floorNanos = min.getElapsedNanos();
+                return false;
+            }
+            if (slots.compareAndSet(minIndex, min, query)) {
+                floorNanos = Math.min(secondMin, elapsed);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return kept queries, slowest first
+     */
+    List<SlowQuery> snapshot() {
+        List<SlowQuery> queries = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            SlowQuery query = slots.get(i);
+            if (query != null) {
+                queries.add(query);
+            }
+        }
+        queries.sort(Comparator.comparingLong(SlowQuery::getElapsedNanos).reversed());
+        return queries;
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        floorNanos = 0;
+    }
+}
@@ -0,0 +1,205 @@
+package com.zhihu.fust.telemetry.mysql;
+
+/**
+ * normalize a sql to its shape, statements only differ in literals share one fingerprint
+ * <ul>
+ *     <li>string, number and hex literals are replaced by {@code ?}</li>
+ *     <li>a list of literals, e.g. {@code IN (1, 2, 3)} or {@code VALUES (1, 'a')}, is collapsed to {@code (?+)},
+ *     repeated rows of a multi-row insert are collapsed to one</li>
+ *     <li>comments are removed, whitespace is collapsed to a single space</li>
+ * </ul>
+ * the sql is scanned once, sql longer than {@link #MAX_SQL_LENGTH} is cut.
+ */
+public final class SqlFingerprint {
+    static final int MAX_SQL_LENGTH = 4096;
+    private static final String LIST = "(?+)";
+
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        int length = Math.min(sql.length(), MAX_SQL_LENGTH);
+        StringBuilder out = new StringBuilder(Math.min(length, 256));
+        // output index of the last '(' whose content are literals only, -1 if none
+        int listStart = -1;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, length, c);
+                appendLiteral(out);
+            } else if (isNumberStart(sql, i, length, out)) {
+                i = skipNumber(sql, i, length);
+                appendLiteral(out);
+            } else if (c == '-' && i + 1 < length && isDigit(sql.charAt(i + 1)) && isSignPosition(out)) {
+                i = skipNumber(sql, i + 1, length);
+                appendLiteral(out);
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 || end >= length ? length : end + 2;
+                appendSpace(out);
+            } else if (c == '-' && i + 2 < length && sql.charAt(i + 1) == '-' && sql.charAt(i + 2) == ' '
+                       || c == '#') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                appendSpace(out);
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(out);
+                i++;
+            } else if (c == '(') {
+                out.append(c);
+                listStart = out.length() - 1;
+                i++;
+            } else if (c == ')') {
+                if (listStart >= 0 && isLiteralList(out, listStart)) {
+                    out.setLength(listStart);
+                    if (endsWithRepeatedList(out)) {
+                        // (?+), (?+) -> (?+)
+                        trimTrailingSeparator(out);
+                    } else {
+                        out.append(LIST);
+                    }
+                } else {
+                    out.append(c);
+                }
+                listStart = -1;
+                i++;
+            } else {
+                if (c != ',' && c != '?') {
+                    // a name or an operator in the parentheses, not a literal list
+                    listStart = -1;
+                }
+                out.append(c);
+                i++;
+            }
+        }
+        int end = out.length();
+        if (end > 0 && out.charAt(end - 1) == ' ') {
+            out.setLength(end - 1);
+        }
+        return out.toString();
+    }
+
+    private static int skipQuoted(String sql, int start, int length, char quote) {
+        int i = start + 1;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    // escaped by doubling
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isNumberStart(String sql, int i, int length, StringBuilder out) {
+        char c = sql.charAt(i);
+        boolean digit = c >= '0' && c <= '9';
+        if (!digit && !(c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1)))) {
+            return false;
+        }
+        // part of a name, e.g. t1 or db_2
+        if (out.length() == 0) {
+            return true;
+        }
+        char prev = out.charAt(out.length() - 1);
+        return !(Character.isLetterOrDigit(prev) || prev == '_' || prev == '$' || prev == '`');
+    }
+
+    /**
+     * a '-' after these is the sign of a number, not a minus
+     */
+    private static boolean isSignPosition(StringBuilder out) {
+        int i = out.length() - 1;
+        if (i >= 0 && out.charAt(i) == ' ') {
+            i--;
+        }
+        if (i < 0) {
+            return true;
+        }
+        char prev = out.charAt(i);
+        return prev == '(' || prev == ',' || prev == '=' || prev == '<' || prev == '>';
+    }
+
+    private static int skipNumber(String sql, int start, int length) {
+        int i = start;
+        if (sql.charAt(i) == '0' && i + 1 < length && (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+            i += 2;
+        }
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '.') {
+                i++;
+            } else if ((c == '+' || c == '-') && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1) == 'E')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void appendLiteral(StringBuilder out) {
+        out.append('?');
+    }
+
+    private static void appendSpace(StringBuilder out) {
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+
+    private static boolean isLiteralList(StringBuilder out, int start) {
+        boolean literal = false;
+        for (int i = start + 1; i < out.length(); i++) {
+            char c = out.charAt(i);
+            if (c == '?') {
+                literal = true;
+            } else if (c != ',' && c != ' ') {
+                return false;
+            }
+        }
+        return literal;
+    }
+
+    private static boolean endsWithRepeatedList(StringBuilder out) {
+        int i = out.length() - 1;
+        while (i >= 0 && out.charAt(i) == ' ') {
+            i--;
+        }
+        if (i < 0 || out.charAt(i) != ',') {
+            return false;
+        }
+        i--;
+        while (i >= 0 && out.charAt(i) == ' ') {
+            i--;
+        }
+        int start = i - LIST.length() + 1;
+        return start >= 0 && out.indexOf(LIST, start) == start;
+    }
+
+    private static void trimTrailingSeparator(StringBuilder out) {
+        int i = out.length() - 1;
+        while (i >= 0 && (out.charAt(i) == ' ' || out.charAt(i) == ',')) {
+            i--;
+        }
+        out.setLength(i + 1);
+    }
+}
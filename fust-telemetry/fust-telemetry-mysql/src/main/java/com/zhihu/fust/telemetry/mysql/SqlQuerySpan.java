@@ -6,13 +6,20 @@ import io.opentelemetry.api.trace.Span;
 final class SqlQuerySpan {
     private final Span span;
     private final ServiceMeter serviceMeter;
+    private final String service;
+    private final String sql;
+    private final long startNanos;
 
-    SqlQuerySpan(Span span, ServiceMeter serviceMeter) {
+    SqlQuerySpan(Span span, ServiceMeter serviceMeter, String service, String sql) {
         this.span = span;
         this.serviceMeter = serviceMeter;
+        this.service = service;
+        this.sql = sql;
+        this.startNanos = System.nanoTime();
     }
 
     public void end() {
+        SqlStatistics.record(service, sql, System.nanoTime() - startNanos);
         if (span != null) {
             span.end();
         }
@@ -0,0 +1,112 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.zhihu.fust.commons.lang.PropertyUtils;
+
+/**
+ * per sql fingerprint statistics and the slowest queries of this instance,
+ * recorded by {@link TracingQueryInterceptor}
+ * <p>
+ * call {@link #dump(int)} on demand, e.g. from an admin endpoint, to see which sql shape costs the most time.
+ * <p>
+ * a fingerprint scans and copies the whole sql, the per fingerprint stats fingerprint every query so they are
+ * opt-in, by default only a slow query admitted into the slowest queries is fingerprinted.
+ * <p>
+ * properties (system property or env):
+ * <ul>
+ *     <li>SQL_STATS_ENABLED: per fingerprint stats of all queries, default false</li>
+ *     <li>SLOW_SQL_THRESHOLD_MS: queries slower than it are candidates of the slowest queries, default 100</li>
+ * </ul>
+ */
+public final class SqlStatistics {
+    private static final String STATS_ENABLED = "SQL_STATS_ENABLED";
+    private static final String SLOW_THRESHOLD_MS = "SLOW_SQL_THRESHOLD_MS";
+    private static final int MAX_FINGERPRINTS = 1024;
+    private static final int SLOW_QUERY_SIZE = 64;
+    /**
+     * fingerprints over {@link #MAX_FINGERPRINTS} are recorded here
+     */
+    static final String OVERFLOW = "(others)";
+
+    private static final boolean ENABLED = PropertyUtils.getBoolProperty(STATS_ENABLED).orElse(false);
+    private static final long SLOW_THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(PropertyUtils.getIntProperty(SLOW_THRESHOLD_MS).orElse(100));
+    private static final ConcurrentHashMap<String, SqlStats> STATS = new ConcurrentHashMap<>();
+    private static final SlowQueryBuffer SLOW_QUERIES = new SlowQueryBuffer(SLOW_QUERY_SIZE);
+
+    private SqlStatistics() {
+    }
+
+    /**
+     * @return true if the per fingerprint stats are enabled, the slowest queries are always kept
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    static void record(String service, String sql, long elapsedNanos) {
+        boolean slow = elapsedNanos >= SLOW_THRESHOLD_NANOS && SLOW_QUERIES.accepts(elapsedNanos);
+        if (!ENABLED && !slow) {
+            // the common case, no fingerprint
+            return;
+        }
+        String fingerprint = SqlFingerprint.of(sql);
+        if (ENABLED) {
+            SqlStats stats = STATS.get(fingerprint);
+            if (stats == null) {
+                String key = STATS.size() < MAX_FINGERPRINTS ? fingerprint : OVERFLOW;
+                stats = STATS.computeIfAbsent(key, SqlStats::new);
+            }
+            stats.record(elapsedNanos);
+        }
+        if (slow) {
+            SLOW_QUERIES.offer(new SlowQuery(service, fingerprint, elapsedNanos, System.currentTimeMillis(),
+                                             Thread.currentThread().getName()));
+        }
+    }
+
+    /**
+     * @return stats of all fingerprints, by total time desc
+     */
+    public static List<SqlStats> getStats() {
+        List<SqlStats> list = new ArrayList<>(STATS.values());
+        list.sort(Comparator.comparingLong(SqlStats::getTotalNanos).reversed());
+        return list;
+    }
+
+    /**
+     * @return the slowest queries since start or last reset, slowest first
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        return SLOW_QUERIES.snapshot();
+    }
+
+    /**
+     * @param top number of fingerprints by total time
+     * @return text report of the top fingerprints and the slowest queries
+     */
+    public static String dump(int top) {
+        StringBuilder sb = new StringBuilder();
+        List<SqlStats> stats = getStats();
+        sb.append("sql stats, fingerprints|").append(stats.size()).append('\n');
+        for (int i = 0; i < Math.min(top, stats.size()); i++) {
+            sb.append(stats.get(i)).append('\n');
+        }
+        List<SlowQuery> slowQueries = getSlowQueries();
+        sb.append("slow queries|").append(slowQueries.size()).append('\n');
+        for (SlowQuery query : slowQueries) {
+            sb.append(query).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static void reset() {
+        STATS.clear();
+        SLOW_QUERIES.clear();
+    }
+}
@@ -18,10 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Properties;
-import java.util.Set;
 import java.util.function.Supplier;
 
 /**
@@ -31,10 +28,17 @@ import java.util.function.Supplier;
 public final class TracingQueryInterceptor implements QueryInterceptor {
     private static final Logger log = LoggerFactory.getLogger(TracingQueryInterceptor.class);
     private static final String METHOD_OTHERS = "others";
-    private static final Set<String> OPERATIONS = new HashSet<>(
-            Arrays.asList("insert", "update", "select", "delete"));
+    private static final String[] OPERATIONS = {"select", "insert", "update", "delete"};
+    private static final int OPERATION_LENGTH = 6;
+    private static final int MAX_STATEMENT_LENGTH = 200;
+    private static final int DEFAULT_PORT = 3306;
     private MysqlConnection connection;
     private boolean interceptingExceptions;
+    /**
+     * endpoint of the connection, resolved once in init
+     */
+    private String connectionString;
+    private String serviceName;
     private final ThreadLocal<SqlQuerySpan> currentSegment = new ThreadLocal<>();
     private static final Telemetry TELEMETRY = Telemetry.create("meter-mysql");
 
@@ -56,11 +60,7 @@ public final class TracingQueryInterceptor implements QueryInterceptor {
             return null;
         }
 
-        final String method = getSqlTraceMethod(sql.get());
-        if (METHOD_OTHERS.equals(method)) {
-            return originalResultSet;
-        }
-
+        // only set by preProcess for traced methods, so the sql is not needed here
         final SqlQuerySpan sqlQuerySpan = currentSegment.get();
         if (sqlQuerySpan == null) {
             return null;
@@ -81,23 +81,22 @@ public final class TracingQueryInterceptor implements QueryInterceptor {
         if (METHOD_OTHERS.equals(method)) {
             return; // no tracing others
         }
-        // strip "jdbc:"
-        final URI url = URI.create(safeUrl(connection.getURL().substring(5)));
-        final String host = getHost(connection);
-        final int port = url.getPort() == -1 ? 3306 : url.getPort();
-        final String serviceName = String.format("sql_%s_%d", host, port)
-                .replace('.', '-');
+        if (serviceName == null) {
+            resolveEndpoint();
+        }
 
         final Span span = TELEMETRY.getTracer()
                 .spanBuilder(serviceName)
                 .setSpanKind(SpanKind.CLIENT)
                 .setAttribute(SemanticAttributes.DB_OPERATION, method)
-                .setAttribute(SemanticAttributes.DB_CONNECTION_STRING, host + ':' + port)
+                .setAttribute(SemanticAttributes.DB_CONNECTION_STRING, connectionString)
                 .setAttribute(SemanticAttributes.DB_SYSTEM, "MySQL")
                 .setAttribute(SemanticAttributes.PEER_SERVICE, serviceName)
-                .setAttribute(SemanticAttributes.DB_STATEMENT,
-                        sql.length() > 200 ? sql.substring(0, 200) : sql)
                 .startSpan();
+        if (span.isRecording()) {
+            // the statement is only copied for a sampled span
+            span.setAttribute(SemanticAttributes.DB_STATEMENT, truncate(sql));
+        }
 
         // entry method
         final ServiceEntry entry = Telemetry.getServiceEntry();
@@ -108,23 +107,53 @@ public final class TracingQueryInterceptor implements QueryInterceptor {
         serviceMeter.setMethod(entryMethod);
         serviceMeter.setTargetService(serviceName);
         serviceMeter.setTargetMethod(method);
-        serviceMeter.setTargetService(serviceName);
-        currentSegment.set(new SqlQuerySpan(span, serviceMeter));
+        currentSegment.set(new SqlQuerySpan(span, serviceMeter, serviceName, sql));
+    }
+
+    private void resolveEndpoint() {
+        final String host = getHost(connection);
+        // strip "jdbc:"
+        final URI url = URI.create(safeUrl(connection.getURL().substring(5)));
+        final int port = url.getPort() == -1 ? DEFAULT_PORT : url.getPort();
+        connectionString = host + ':' + port;
+        serviceName = ("sql_" + host + '_' + port).replace('.', '-');
     }
 
-    private static String getSqlTraceMethod(String sql) {
+    /**
+     * detect the operation by the leading keyword in place, the sql is not copied
+     */
+    static String getSqlTraceMethod(String sql) {
         if (sql == null) {
             return "";
         }
-        sql = sql.toLowerCase().trim();
-        if (sql.length() < 6) {
-            return METHOD_OTHERS;
+        int start = 0;
+        int length = sql.length();
+        while (start < length && Character.isWhitespace(sql.charAt(start))) {
+            start++;
         }
-        final String method = sql.substring(0, 6);
-        if (!OPERATIONS.contains(method)) {
+        if (length - start < OPERATION_LENGTH) {
             return METHOD_OTHERS;
         }
-        return method;
+        for (String operation : OPERATIONS) {
+            if (sql.regionMatches(true, start, operation, 0, OPERATION_LENGTH)) {
+                return operation;
+            }
+        }
+        return METHOD_OTHERS;
+    }
+
+    /**
+     * cut the statement to {@link #MAX_STATEMENT_LENGTH}, without splitting a surrogate pair
+     */
+    static String truncate(String sql) {
+        if (sql.length() <= MAX_STATEMENT_LENGTH) {
+            return sql;
+        }
+        int end = MAX_STATEMENT_LENGTH;
+        if (Character.isHighSurrogate(sql.charAt(end - 1))) {
+            end--;
+        }
+        return sql.substring(0, end);
     }
 
     /**
@@ -154,6 +183,12 @@ public final class TracingQueryInterceptor implements QueryInterceptor {
         final TracingQueryInterceptor interceptor = new TracingQueryInterceptor();
         interceptor.connection = mysqlConnection;
         interceptor.interceptingExceptions = false;
+        try {
+            interceptor.resolveEndpoint();
+        } catch (RuntimeException e) {
+            // resolved again on the first query
+            log.warn("resolve mysql endpoint error|{}", e.getMessage());
+        }
         return interceptor;
     }
 
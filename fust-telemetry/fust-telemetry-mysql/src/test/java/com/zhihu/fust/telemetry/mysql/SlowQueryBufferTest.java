@@ -0,0 +1,20 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryBufferTest {
+
+    @Test
+    void testSlowestQueriesKept() {
+        SlowQueryBuffer buffer = new SlowQueryBuffer(4);
+        for (int i = 1; i <= 10; i++) {
+            buffer.offer(new SlowQuery("s", "q", i, 0, "t"));
+        }
+        assertFalse(buffer.offer(new SlowQuery("s", "q", 3, 0, "t")));
+        assertEquals(4, buffer.snapshot().size());
+        assertEquals(10, buffer.snapshot().get(0).getElapsedNanos());
+        assertEquals(7, buffer.snapshot().get(3).getElapsedNanos());
+    }
+}
@@ -0,0 +1,30 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlFingerprintTest {
+
+    @Test
+    void testLiteralsReplaced() {
+        assertEquals("SELECT * FROM t1 WHERE name = ? AND x > ? AND y = ?",
+                     SqlFingerprint.of("SELECT * FROM t1 WHERE name = 'a''b' AND x > -1.5e-3 AND y = 0x1F"));
+        assertEquals("select col1-? from t2 where x=?", SqlFingerprint.of("select col1-1 from t2 where x=-3"));
+    }
+
+    @Test
+    void testListsCollapsed() {
+        assertEquals("select a from t where id in (?+)", SqlFingerprint.of("select a from t where id in (1, 2, 3)"));
+        assertEquals("select a from t where id in (?+)", SqlFingerprint.of("select a from t where id in (?, ?)"));
+        assertEquals("insert into t (a, b) values (?+)",
+                     SqlFingerprint.of("insert into t (a, b) values (1, 'x'), (2, 'y'),(3,'z')"));
+        assertEquals("select a from t where id in (select id from u where d in (?+))",
+                     SqlFingerprint.of("select a from t where id in (select id from u where d in (4,5))"));
+    }
+
+    @Test
+    void testCommentsAndWhitespace() {
+        assertEquals("select a from t limit ?", SqlFingerprint.of("  select a  /* c */\n from t -- x\n limit 10 "));
+    }
+}
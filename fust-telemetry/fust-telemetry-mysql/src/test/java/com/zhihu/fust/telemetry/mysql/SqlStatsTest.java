@@ -0,0 +1,20 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatsTest {
+
+    @Test
+    void testPercentile() {
+        SqlStats stats = new SqlStats("q");
+        for (int i = 1; i <= 100; i++) {
+            stats.record(i * 1_000_000L);
+        }
+        assertEquals(100, stats.getCount());
+        assertEquals(100_000_000L, stats.getMaxNanos());
+        long p50 = stats.getPercentileMicros(50);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 1.125, "p50|" + p50);
+    }
+}
@@ -0,0 +1,33 @@
+package com.zhihu.fust.telemetry.mysql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingQueryInterceptorTest {
+
+    @Test
+    void testSqlTraceMethod() {
+        assertEquals("select", TracingQueryInterceptor.getSqlTraceMethod("  SELECT * FROM t"));
+        assertEquals("insert", TracingQueryInterceptor.getSqlTraceMethod("\ninsert into t values (1)"));
+        assertEquals("update", TracingQueryInterceptor.getSqlTraceMethod("Update t set a = 1"));
+        assertEquals("delete", TracingQueryInterceptor.getSqlTraceMethod("delete from t"));
+        assertEquals("others", TracingQueryInterceptor.getSqlTraceMethod("SET NAMES utf8mb4"));
+        assertEquals("others", TracingQueryInterceptor.getSqlTraceMethod("  sel"));
+        assertEquals("", TracingQueryInterceptor.getSqlTraceMethod(null));
+    }
+
+    @Test
+    void testTruncate() {
+        String sql = "select 1";
+        assertSame(sql, TracingQueryInterceptor.truncate(sql));
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 199; i++) {
+            sb.append('a');
+        }
+        sb.append("😀 tail");
+        String truncated = TracingQueryInterceptor.truncate(sb.toString());
+        assertEquals(199, truncated.length());
+    }
+}